@@ -1,7 +1,9 @@
 package java_work.de.backend.contoller;
 
+import jakarta.validation.Valid;
+import java_work.de.backend.dto.CartBatchRequestDTO;
 import java_work.de.backend.dto.CartDTO;
-import java_work.de.backend.model.OrderItem;
+import java_work.de.backend.dto.CartItemRequestDTO;
 import java_work.de.backend.service.CartService;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,11 +21,18 @@ public class CartController {
         return cartService.getCart(userEmail);
     }
 
+    //  Nur productId und quantity werden ausgewertet; Name, Bild und Preis kommen aus dem Produkt
     @PostMapping("/{userEmail}/add")
-    public CartDTO addCart(@PathVariable String userEmail, @RequestBody OrderItem item) {
+    public CartDTO addCart(@PathVariable String userEmail, @Valid @RequestBody CartItemRequestDTO item) {
         return cartService.addToCart(userEmail,item);
     }
 
+    //  Mehrere Änderungen in Reihenfolge, ein Round-Trip und ein Schreibvorgang; Antwort ist der fertige Warenkorb
+    @PostMapping("/{userEmail}/batch")
+    public CartDTO applyBatch(@PathVariable String userEmail, @Valid @RequestBody CartBatchRequestDTO batch) {
+        return cartService.applyBatch(userEmail, batch.operations());
+    }
+
     @PutMapping("/{userEmail}/update/{productId}")
     public CartDTO updateQuantity(@PathVariable String userEmail, @PathVariable String productId, @RequestParam int quantity) {
 
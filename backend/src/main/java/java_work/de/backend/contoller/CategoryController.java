@@ -2,6 +2,8 @@ package java_work.de.backend.contoller;
 
 import jakarta.validation.Valid;
 import java_work.de.backend.dto.CategoryDTO;
+import java_work.de.backend.dto.CategoryNodeDTO;
+import java_work.de.backend.service.CatalogVersion;
 import java_work.de.backend.service.CategoryServic;
 
 import org.springframework.http.HttpStatus;
@@ -10,18 +12,22 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/categories")
 @PreAuthorize("hasRole('ROLE_ADMIN')")
 public class CategoryController {
     private final CategoryServic categoryService;
+    private final CatalogVersion catalogVersion;
 
-    public CategoryController(CategoryServic categoryServic, CategoryServic categoryService) {
+    public CategoryController(CategoryServic categoryServic, CategoryServic categoryService, CatalogVersion catalogVersion) {
         this.categoryService = categoryService;
+        this.catalogVersion = catalogVersion;
     }
 
     //Neue Kategorie erstellen
@@ -38,7 +44,11 @@ public class CategoryController {
     // Alle Kategorien abrufen
     @GetMapping
     @PreAuthorize("hasRole('ROLE_ADMIN')")
-    public ResponseEntity<List<CategoryDTO>> getAllCategories() {
+    public ResponseEntity<List<CategoryDTO>> getAllCategories(ServletWebRequest request) {
+        //  Kategorien ändern sich selten: unverändert -> 304 ohne Datenbankabfrage
+        if (ConditionalGet.notModified(request, catalogVersion.etag(), catalogVersion.lastModified())) {
+            return null;
+        }
         List<CategoryDTO> categories = categoryService.getAllCategory();
 
         if (categories.isEmpty()) {
@@ -47,4 +57,27 @@ public class CategoryController {
 
         return ResponseEntity.ok(categories);
     }
+
+    //  Kategoriebaum mit Produktanzahl und Preisspanne – öffentlich, z. B. für "Küche (123)" im Shop
+    @GetMapping("/tree")
+    @PreAuthorize("permitAll()")
+    public List<CategoryNodeDTO> getCategoryTree(ServletWebRequest request) {
+        //  Zahlen ändern sich mit jedem Produkt, die Katalog-ETag ebenso
+        if (ConditionalGet.notModified(request, catalogVersion.etag(), catalogVersion.lastModified())) {
+            return null;
+        }
+        return categoryService.getCategoryTree();
+    }
+
+    //  Oberkategorie ändern, Body: {"parentId": "..."} (null/leer = Wurzel)
+    @PutMapping("/{id}/parent")
+    public CategoryDTO moveCategory(@PathVariable String id, @RequestBody Map<String, String> body) {
+        return categoryService.moveCategory(id, body.get("parentId"));
+    }
+
+    //  Kennzahlen per Aggregation komplett neu berechnen
+    @PostMapping("/tree/rebuild")
+    public List<CategoryNodeDTO> rebuildCategoryTree() {
+        return categoryService.rebuildCategoryTree();
+    }
 }
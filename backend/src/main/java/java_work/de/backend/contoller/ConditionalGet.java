@@ -0,0 +1,28 @@
+package java_work.de.backend.contoller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Instant;
+
+/*
+ Conditional GET für Controller: setzt ETag, Last-Modified und `Cache-Control: no-cache`
+ (Browser dürfen speichern, müssen aber jedes Mal nachfragen) und prüft If-None-Match /
+ If-Modified-Since. Liefert true, wenn der Client aktuell ist – dann hat Spring schon 304
+ gesetzt und der Controller gibt einfach null zurück, ohne die Antwort zu berechnen.
+ */
+public final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    public static boolean notModified(ServletWebRequest request, String etag, Instant lastModified) {
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        }
+        return request.checkNotModified(etag, lastModified == null ? -1 : lastModified.toEpochMilli());
+    }
+}
@@ -1,5 +1,10 @@
 package java_work.de.backend.contoller;
 
+import java_work.de.backend.service.InventoryUnavailableException;
+import java_work.de.backend.service.OutOfStockException;
+import java_work.de.backend.service.VersionConflictException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -40,6 +45,53 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Fehler: Objekt wurde nicht gefunden!");
     }
 
+    //  UNGÜLTIGE PARAMETER (z. B. falscher Cursor)
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Fehler: " + ex.getMessage());
+    }
+
+    //  NICHT GENUG BESTAND beim Checkout (409, damit das Frontend den Warenkorb anpassen kann)
+    @ExceptionHandler(OutOfStockException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<Map<String, Object>> handleOutOfStock(OutOfStockException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", ex.getMessage());
+        response.put("productId", ex.getProductId());
+        response.put("requested", ex.getRequested());
+        response.put("available", ex.getAvailable());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    //  INVENTAR-LEDGER auf diesem Knoten nicht aktiv (503: der Client darf es gleich noch einmal versuchen)
+    @ExceptionHandler(InventoryUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<String> handleInventoryUnavailable(InventoryUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Fehler: " + ex.getMessage());
+    }
+
+    //  VERSIONSKONFLIKT: 409 mit dem aktuellen Stand, damit der Client ohne erneutes Laden entscheiden kann
+    @ExceptionHandler(VersionConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<Map<String, Object>> handleVersionConflict(VersionConflictException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", ex.getMessage());
+        response.put("entity", ex.getEntity());
+        response.put("id", ex.getId());
+        response.put("current", ex.getCurrent());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    //  GLEICHZEITIGE ÄNDERUNG, die auch nach mehreren Versuchen nicht durchkam (409, Client lädt neu)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<String> handleOptimisticLocking(OptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Fehler: " + ex.getMessage());
+    }
+
     //  JSON-FORMAT-FEHLER (z. B. falsches JSON-Format)
     @ExceptionHandler(HttpMessageNotReadableException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -0,0 +1,141 @@
+package java_work.de.backend.contoller;
+
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ImageService;
+import java_work.de.backend.service.ImageStore;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/images")
+public class ImageController {
+    //  Inhalt zu einem Hash ändert sich nie – Browser darf ein Jahr cachen, ohne nachzufragen
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    //  Variante noch nicht fertig, Original wird ausgeliefert – nur kurz cachen
+    private static final CacheControl FALLBACK = CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic();
+
+    private final ImageStore imageStore;
+    private final ImageService imageService;
+    private final ImageRenditionService renditionService;
+
+    public ImageController(ImageStore imageStore, ImageService imageService, ImageRenditionService renditionService) {
+        this.imageStore = imageStore;
+        this.imageService = imageService;
+        this.renditionService = renditionService;
+    }
+
+    /*
+     Bild anhand seines Hashes streamen.
+     - Der Hash ist gleichzeitig ein starker ETag (If-None-Match -> 304)
+     - Range-Anfragen (ein Bereich) werden mit 206 beantwortet
+     - Die Bytes gehen per FileChannel.transferTo in den Response-Stream. Der Servlet-Stream hat keinen Channel,
+       Channels.newChannel kopiert daher blockweise über einen kleinen Puffer – das Bild liegt nie komplett im Heap
+     - `?variant=thumbnail|listing|detail` liefert die verkleinerte Variante (Fallback: Original)
+     */
+    @GetMapping("/{hash}")
+    public ResponseEntity<StreamingResponseBody> getImage(
+            @PathVariable String hash,
+            @RequestParam(required = false) String variant,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader) {
+        if (imageStore.size(hash) < 0) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String servedHash = hash;
+        CacheControl cacheControl = IMMUTABLE;
+        if (variant != null) {
+            Optional<String> rendition = renditionService.resolve(hash, ImageRenditionService.Variant.fromKey(variant));
+            if (rendition.isPresent()) {
+                servedHash = rendition.get();
+            } else {
+                cacheControl = FALLBACK;
+            }
+        }
+        long size = imageStore.size(servedHash);
+        if (size < 0) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String eTag = "\"" + servedHash + "\"";
+        if (matchesETag(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        MediaType contentType = MediaType.parseMediaType(imageService.contentType(servedHash));
+        long start = 0;
+        long end = size - 1;
+        HttpStatus status = HttpStatus.OK;
+
+        if (rangeHeader != null && size > 0) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                //  Mehrere Bereiche (multipart/byteranges) unterstützen wir nicht – dann einfach komplett senden
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(size);
+                    end = ranges.get(0).getRangeEnd(size);
+                    status = HttpStatus.PARTIAL_CONTENT;
+                }
+            } catch (IllegalArgumentException e) {
+                return rangeNotSatisfiable(size);
+            }
+            //  HttpRange prüft nicht gegen die Größe: "bytes=500-" bei 100 Bytes wäre sonst eine negative Länge
+            if (start >= size || start > end) {
+                return rangeNotSatisfiable(size);
+            }
+        }
+
+        String source = servedHash;
+        long position = start;
+        long length = size == 0 ? 0 : end - start + 1;
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status)
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(contentType)
+                .contentLength(length);
+        if (status == HttpStatus.PARTIAL_CONTENT) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        return response.body(out -> imageStore.transferTo(source, position, length, Channels.newChannel(out)));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long size) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                .build();
+    }
+
+    //  If-None-Match kann eine Liste oder `*` enthalten, schwache Vergleiche sind für GET erlaubt
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(eTag) || value.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,85 @@
+package java_work.de.backend.contoller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java_work.de.backend.dto.ImportReportDTO;
+import java_work.de.backend.service.CatalogExportService;
+import java_work.de.backend.service.DataFormat;
+import java_work.de.backend.service.ProductImportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+//  Massendaten für Admins (Pfad /api/admin/** ist in der SecurityConfig nur für ROLE_ADMIN offen)
+@RestController
+@RequestMapping("/api/admin")
+public class ImportExportController {
+
+    private final ProductImportService productImportService;
+    private final CatalogExportService catalogExportService;
+
+    public ImportExportController(ProductImportService productImportService, CatalogExportService catalogExportService) {
+        this.productImportService = productImportService;
+        this.catalogExportService = catalogExportService;
+    }
+
+    /*
+     Produkte als NDJSON (`application/x-ndjson`) oder CSV (`text/csv`) importieren.
+     Der Body wird direkt aus dem Request-Stream gelesen, nicht erst komplett in den Speicher.
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/import/products")
+    public ImportReportDTO importProducts(HttpServletRequest request,
+                                          @RequestParam(required = false) String format) throws IOException {
+        return productImportService.importProducts(request.getInputStream(),
+                DataFormat.of(format, request.getContentType()));
+    }
+
+    /*
+     Exporte werden direkt aus dem MongoDB-Cursor in die Antwort geschrieben (StreamingResponseBody),
+     der Speicherbedarf hängt nicht von der Größe der Collection ab. `?gzip=true` komprimiert unterwegs.
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export/products")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(required = false) String format,
+                                                                @RequestParam(defaultValue = "false") boolean gzip,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        DataFormat dataFormat = DataFormat.of(format, accept);
+        return download("products", dataFormat, gzip, out -> catalogExportService.exportProducts(out, dataFormat));
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export/orders")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(required = false) String format,
+                                                              @RequestParam(defaultValue = "false") boolean gzip,
+                                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        DataFormat dataFormat = DataFormat.of(format, accept);
+        return download("orders", dataFormat, gzip, out -> catalogExportService.exportOrders(out, dataFormat));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> download(String name, DataFormat format, boolean gzip,
+                                                                  StreamingResponseBody export) {
+        StreamingResponseBody body = gzip
+                ? out -> {
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                    export.writeTo(compressed);
+                    compressed.finish();
+                }
+                : export;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + "." + format.extension())
+                        .build()
+                        .toString());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+}
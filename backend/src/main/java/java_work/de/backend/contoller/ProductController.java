@@ -1,10 +1,20 @@
 package java_work.de.backend.contoller;
 import jakarta.validation.Valid;
+import java_work.de.backend.dto.PageDTO;
+import java_work.de.backend.dto.ProductBatchDTO;
+import java_work.de.backend.dto.ProductBatchRequestDTO;
 import java_work.de.backend.dto.ProductDTO;
-import java_work.de.backend.model.Product;
+import java_work.de.backend.dto.ProductQueryResultDTO;
+import java_work.de.backend.dto.ProductSummaryDTO;
+import java_work.de.backend.dto.SuggestionDTO;
+import java_work.de.backend.service.CatalogVersion;
 import java_work.de.backend.service.ProductService;
+import java_work.de.backend.service.ProductSuggester;
+import java_work.de.backend.service.Versioned;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
 
@@ -13,20 +23,80 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductSuggester productSuggester;
+    private final CatalogVersion catalogVersion;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductSuggester productSuggester,
+                             CatalogVersion catalogVersion) {
         this.productService = productService;
+        this.productSuggester = productSuggester;
+        this.catalogVersion = catalogVersion;
+    }
+
+    //  Listen tragen die ETag des Katalogstands; unverändert -> 304 ohne die Liste überhaupt zu laden
+    private boolean catalogNotModified(ServletWebRequest request) {
+        return ConditionalGet.notModified(request, catalogVersion.etag(), catalogVersion.lastModified());
     }
 
     // JEDER DARF LESEN (GET):
     @GetMapping
-    public List<ProductDTO> getProducts() {
+    public PageDTO<ProductDTO> getProducts(@RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer size,
+                                           ServletWebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return productService.findProductPage(cursor, size);
+    }
+
+    //  Alter Endpunkt ohne Pagination, nur noch mit `?unpaged=true`
+    @GetMapping(params = "unpaged=true")
+    public List<ProductDTO> getAllProducts(ServletWebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
         return productService.findAllProducts();
     }
 
+    //  `?view=summary`: nur id, name, price, stock, erstes Bild und categoryId
+    @GetMapping(params = "view=summary")
+    public PageDTO<ProductSummaryDTO> getProductSummaries(@RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer size,
+                                                         ServletWebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return productService.findProductSummaryPage(cursor, size);
+    }
+
+    @GetMapping(params = {"unpaged=true", "view=summary"})
+    public List<ProductSummaryDTO> getAllProductSummaries(ServletWebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return productService.findAllProductSummaries();
+    }
+
+    //  Mehrere Produkte nach ID in einem Aufruf (Reihenfolge wie angefragt, fehlende IDs unter `missing`)
+    @PostMapping("/batch")
+    public ProductBatchDTO getProductBatch(@Valid @RequestBody ProductBatchRequestDTO request) {
+        return productService.findProductBatch(request.ids());
+    }
+
+    //  Dasselbe als GET für kurze Listen: `?ids=a,b,c`
+    @GetMapping(params = "ids")
+    public ProductBatchDTO getProductBatch(@RequestParam List<String> ids) {
+        return productService.findProductBatch(ids);
+    }
+
+    //  Starker ETag aus Produktversion und Bestand, Last-Modified aus `updatedAt`
     @GetMapping("/{id}")
-    public ProductDTO getProduct(@PathVariable String id) {
-        return productService.findProductById(id);
+    public ProductDTO getProduct(@PathVariable String id, ServletWebRequest request) {
+        Versioned<ProductDTO> product = productService.findVersionedProductById(id);
+        if (ConditionalGet.notModified(request, product.etag(), product.lastModified())) {
+            return null;
+        }
+        return product.body();
     }
 
     // NUR ADMIN DARF:
@@ -39,8 +109,10 @@ public class ProductController {
 
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("/{id}")
-    public ProductDTO updateProduct(@PathVariable String id,  @Valid @RequestBody ProductDTO productDTO) {
-        return productService.updateProduct(id, productDTO);
+    public ProductDTO updateProduct(@PathVariable String id,  @Valid @RequestBody ProductDTO productDTO,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        //  Mit dem ETag aus GET /{id}: 409, falls das Produkt seitdem geändert wurde
+        return productService.updateProduct(id, productDTO, ifMatch);
     }
 
     @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -50,23 +122,91 @@ public class ProductController {
     }
 
 
+    //  Volltextsuche über Name und Beschreibung, nach Relevanz sortiert
+    @GetMapping("/search")
+    public PageDTO<ProductDTO> search(@RequestParam String q,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Integer size) {
+        return productService.search(q, cursor, size);
+    }
+
+    @GetMapping(value = "/search", params = "view=summary")
+    public PageDTO<ProductSummaryDTO> searchSummaries(@RequestParam String q,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer size) {
+        return productService.searchSummaries(q, cursor, size);
+    }
+
+    //  Text, Kategorien und Preisbereich in einer Abfrage, mit Facetten-Zählungen
+    @GetMapping("/query")
+    public ProductQueryResultDTO query(@RequestParam(required = false) String q,
+                                      @RequestParam(name = "categoryId", required = false) List<String> categoryIds,
+                                      @RequestParam(required = false) Double minPrice,
+                                      @RequestParam(required = false) Double maxPrice,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Integer size) {
+        return productService.query(q, categoryIds, minPrice, maxPrice, cursor, size);
+    }
+
+    //  Autovervollständigung für die Suchleiste (Produkt- und Kategorienamen, nach Beliebtheit)
+    @GetMapping("/suggest")
+    public List<SuggestionDTO> suggest(@RequestParam String prefix,
+                                       @RequestParam(defaultValue = "10") int limit) {
+        return productSuggester.suggest(prefix, limit);
+    }
+
     //  Suche nach Name
     @GetMapping("/search/name")
-    public List<Product> searchByName(@RequestParam String name) {
+    public List<ProductDTO> searchByName(@RequestParam String name) {
         return productService.searchByName(name);
     }
 
     //  Suche nach Kategorie
     @GetMapping("/search/category")
-    public List<Product> searchByCategory(@RequestParam String category) {
-        System.out.println("API-Anfrage für Kategorie: " + category); // Debugging
-        return productService.searchByCategory(category);
+    public PageDTO<ProductDTO> searchByCategory(@RequestParam String category,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer size,
+                                                ServletWebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return productService.searchByCategory(category, cursor, size);
     }
 
     //  Suche nach Preisbereich
     @GetMapping("/search/price")
-    public List<Product> searchByPrice(@RequestParam double minPrice, @RequestParam double maxPrice) {
+    public List<ProductDTO> searchByPrice(@RequestParam double minPrice, @RequestParam double maxPrice,
+                                          ServletWebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
         return productService.searchByPriceRange(minPrice, maxPrice);
     }
+
+    //  Suchen mit `?view=summary` liefern nur die schlanke Projektion
+    @GetMapping(value = "/search/name", params = "view=summary")
+    public List<ProductSummaryDTO> searchSummariesByName(@RequestParam String name) {
+        return productService.searchSummariesByName(name);
+    }
+
+    @GetMapping(value = "/search/category", params = "view=summary")
+    public PageDTO<ProductSummaryDTO> searchSummariesByCategory(@RequestParam String category,
+                                                                @RequestParam(required = false) String cursor,
+                                                                @RequestParam(required = false) Integer size,
+                                                                ServletWebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return productService.searchSummariesByCategory(category, cursor, size);
+    }
+
+    @GetMapping(value = "/search/price", params = "view=summary")
+    public List<ProductSummaryDTO> searchSummariesByPrice(@RequestParam double minPrice, @RequestParam double maxPrice,
+                                                          ServletWebRequest request) {
+        if (catalogNotModified(request)) {
+            return null;
+        }
+        return productService.searchSummariesByPriceRange(minPrice, maxPrice);
+    }
 }
 
@@ -0,0 +1,13 @@
+package java_work.de.backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+//  Reihenfolge zählt: die Operationen werden genau so nacheinander angewendet
+public record CartBatchRequestDTO(
+        @NotEmpty(message = "Mindestens eine Operation angeben!")
+        List<@Valid CartOperationDTO> operations
+) {
+}
@@ -0,0 +1,14 @@
+package java_work.de.backend.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+//  Nur Produkt und Menge – Name, Bilder und Preis bestimmt der Server selbst
+public record CartItemRequestDTO(
+        @NotBlank(message = "Produkt-ID fehlt!")
+        String productId,
+
+        @Min(value = 1, message = "Menge muss mindestens 1 sein!")
+        int quantity
+) {
+}
@@ -0,0 +1,19 @@
+package java_work.de.backend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+//  Eine Warenkorb-Änderung innerhalb eines Batches; quantity wird bei REMOVE ignoriert
+public record CartOperationDTO(
+        @NotNull(message = "Operation fehlt!")
+        Type type,
+
+        @NotBlank(message = "Produkt-ID fehlt!")
+        String productId,
+
+        int quantity
+) {
+    public enum Type {
+        ADD, UPDATE, REMOVE
+    }
+}
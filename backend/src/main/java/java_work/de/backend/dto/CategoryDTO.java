@@ -2,6 +2,7 @@ package java_work.de.backend.dto;
 
 public record CategoryDTO(
         String id,
-        String name
+        String name,
+        String parentId // Optional: ID der Oberkategorie
 ) {
 }
@@ -0,0 +1,9 @@
+package java_work.de.backend.dto;
+
+//  Anzahl Treffer pro Kategorie in einer Facettensuche
+public record CategoryFacetDTO(
+        String categoryId,
+        String name,
+        int count
+) {
+}
@@ -0,0 +1,16 @@
+package java_work.de.backend.dto;
+
+import java.util.List;
+
+//  Knoten im Kategoriebaum mit vorberechneten Kennzahlen
+public record CategoryNodeDTO(
+        String id,
+        String name,
+        String parentId,
+        long productCount, // Produkte direkt in dieser Kategorie
+        long totalProductCount, // inklusive aller Unterkategorien
+        Double minPrice, // über den ganzen Teilbaum, null ohne Produkte
+        Double maxPrice,
+        List<CategoryNodeDTO> children
+) {
+}
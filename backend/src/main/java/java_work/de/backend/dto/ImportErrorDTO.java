@@ -0,0 +1,8 @@
+package java_work.de.backend.dto;
+
+//  Fehler in einer Zeile des Imports (Zeilennummer der Quelldatei, 1-basiert)
+public record ImportErrorDTO(
+        long line,
+        String message
+) {
+}
@@ -0,0 +1,12 @@
+package java_work.de.backend.dto;
+
+import java.util.List;
+
+//  Ergebnis eines Bulk-Imports: fehlerhafte Zeilen brechen den Import nicht ab
+public record ImportReportDTO(
+        long imported,
+        long failed,
+        List<ImportErrorDTO> errors, // Höchstens `products.import.max-errors` Einträge
+        boolean errorsTruncated // true, wenn es mehr Fehler gab als aufgelistet
+) {
+}
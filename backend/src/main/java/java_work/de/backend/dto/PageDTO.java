@@ -0,0 +1,9 @@
+package java_work.de.backend.dto;
+
+import java.util.List;
+
+public record PageDTO<T>(
+        List<T> items,
+        String next // Cursor für die nächste Seite, null wenn keine weiteren Einträge
+) {
+}
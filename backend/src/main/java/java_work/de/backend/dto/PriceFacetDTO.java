@@ -0,0 +1,9 @@
+package java_work.de.backend.dto;
+
+//  Anzahl Treffer pro Preisbereich; min inklusive, max exklusiv (null = nach oben offen)
+public record PriceFacetDTO(
+        double min,
+        Double max,
+        int count
+) {
+}
@@ -0,0 +1,10 @@
+package java_work.de.backend.dto;
+
+import java.util.List;
+
+//  Ergebnis eines Multi-Gets: gefundene Produkte in Anfrage-Reihenfolge, fehlende IDs extra aufgelistet
+public record ProductBatchDTO(
+        List<ProductDTO> items,
+        List<String> missing // Unbekannte oder ungültige IDs, ebenfalls in Anfrage-Reihenfolge
+) {
+}
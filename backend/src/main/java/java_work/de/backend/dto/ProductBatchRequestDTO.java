@@ -0,0 +1,12 @@
+package java_work.de.backend.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+//  Body für POST /api/products/batch
+public record ProductBatchRequestDTO(
+        @NotEmpty(message = "Mindestens eine Produkt-ID erforderlich!")
+        List<String> ids
+) {
+}
@@ -0,0 +1,15 @@
+package java_work.de.backend.dto;
+
+import java.util.List;
+
+//  Ergebnis von `/api/products/query`: eine Seite Treffer plus Facetten-Zählungen
+//  `truncated`: sehr kurzes Präfix, Gesamtzahl und Facetten zählen nur die häufigsten passenden Begriffe
+public record ProductQueryResultDTO(
+        List<ProductDTO> items,
+        String next,
+        int total,
+        List<CategoryFacetDTO> categories,
+        List<PriceFacetDTO> prices,
+        boolean truncated
+) {
+}
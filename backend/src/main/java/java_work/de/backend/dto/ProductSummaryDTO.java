@@ -0,0 +1,11 @@
+package java_work.de.backend.dto;
+
+public record ProductSummaryDTO(
+        String id,
+        String name,
+        Double price,
+        Integer stock,
+        String image, // URL des ersten Bildes (kleine Variante)
+        String categoryId
+) {
+}
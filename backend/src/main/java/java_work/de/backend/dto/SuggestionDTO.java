@@ -0,0 +1,9 @@
+package java_work.de.backend.dto;
+
+//  Ein Vorschlag für die Autovervollständigung (type = "product" oder "category")
+public record SuggestionDTO(
+        String type,
+        String id,
+        String text
+) {
+}
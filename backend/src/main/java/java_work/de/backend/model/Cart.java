@@ -2,12 +2,17 @@ package java_work.de.backend.model;
 
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
 
+@Document
 public record Cart(
         @Id ObjectId id,
-        String userEmail, //  Jeder User hat seinen eigenen Warenkorb
-        List<OrderItem> items //  Produkte im Warenkorb
+        @Indexed(unique = true) String userEmail, //  Jeder User hat seinen eigenen Warenkorb
+        List<CartItem> items, //  Produkt-Referenzen mit Menge und Preis
+        @Version Long version //  Wird bei jeder Änderung erhöht; Batch-Updates schreiben nur, wenn er sich nicht bewegt hat
 ) {
 }
@@ -0,0 +1,14 @@
+package java_work.de.backend.model;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/*
+ Warenkorbposition als reine Referenz: Name und Bilder kommen beim Lesen aus dem Produkt-Cache.
+ Nur der Preis beim Hinzufügen wird festgehalten – unter dem bisherigen Feldnamen "price",
+ damit ältere Warenkörbe (mit name/images) ohne Migration lesbar bleiben.
+ */
+public record CartItem(
+        String productId, //  Referenz auf das Produkt
+        int quantity,
+        @Field("price") double priceSnapshot //  Preis pro Stück beim Hinzufügen
+) {}
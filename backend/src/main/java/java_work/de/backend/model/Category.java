@@ -1,9 +1,13 @@
 package java_work.de.backend.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
 
+@Document
 public record Category(
         @Id String id,
-        String name
+        @Indexed String name,
+        @Indexed String parentId //  Oberkategorie, null für Wurzelkategorien
 ) {
 }
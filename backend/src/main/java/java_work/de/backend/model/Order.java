@@ -2,11 +2,18 @@ package java_work.de.backend.model;
 
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
 
 
 import java.util.List;
 
-
+//  Abfragen nach Benutzer bzw. Status, neueste Bestellungen zuerst
+@CompoundIndex(name = "userEmail_id", def = "{'userEmail': 1, '_id': -1}")
+@CompoundIndex(name = "orderStatus_id", def = "{'orderStatus': 1, '_id': -1}")
+@CompoundIndex(name = "paymentStatus_id", def = "{'paymentStatus': 1, '_id': -1}")
+@Document
 public record Order(
         @Id ObjectId id,
         String userEmail, //  Verknüpfung zum Benutzer
@@ -17,7 +24,8 @@ public record Order(
         OrderStatus orderStatus, // Bestellstatus (nur Admin)
         PaymentMethod paymentMethod, //  Zahlungsmethode hinzugefügt
         String stripePaymentIntentId, // Stripe Payment Intent speichern
-        boolean returnRequested //  Neue Spalte für Rückgabe-Anfrage
+        boolean returnRequested, //  Neue Spalte für Rückgabe-Anfrage
+        @Version Long version //  Optimistic Locking: save() schreibt nur, wenn niemand dazwischen geändert hat
 ) {
     //  Enum für den Zahlungsstatus
     public enum PaymentStatus {
@@ -3,18 +3,33 @@ package java_work.de.backend.model;
 
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
 import java.util.List;
 
+//  Kategoriesuche: Gleichheit auf categoryId, sortiert/paginiert über _id
+//  Kategorie-Kennzahlen (CategoryTree): Anzahl und Min/Max-Preis pro Kategorie direkt aus dem Index
+@CompoundIndexes({
+        @CompoundIndex(name = "categoryId_id", def = "{'categoryId': 1, '_id': 1}"),
+        @CompoundIndex(name = "categoryId_price", def = "{'categoryId': 1, 'price': 1}")
+})
+@Document
 public record Product(
         @Id
         ObjectId id, //  MongoDB generiert automatisch `ObjectId`
         String name,
         String description,
-        Double price,
+        @Indexed Double price, //  Preisbereichs-Suche
         Integer stock,
-        List<String> images, // Bild als Base64 speichern
-        String categoryId
+        List<String> images, // Hashes der Bilder im ImageStore (kein Base64 mehr im Dokument)
+        String categoryId,
+        @Version Long version, //  Wird bei jeder Änderung hochgezählt (ETag); save() schreibt nur, wenn sie noch stimmt
+        Instant updatedAt //  Letzte Änderung (Last-Modified)
 )
 {
 
@@ -1,11 +1,14 @@
 package java_work.de.backend.model;
 
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
 
+@Document
 public record User(
 
-        String email,
+        @Indexed(unique = true) String email, //  Login und alle Abfragen laufen über die E-Mail
         String password,
         String firstName,
         String lastName,
@@ -8,14 +8,6 @@ import java.util.List;
 
 public interface ProductRepository extends MongoRepository<Product, String> {
 
-    //  Suche nach Name (case-insensitive)
-    @Query("{ 'name': { $regex: ?0, $options: 'i' } }")
-    List<Product> findByNameRegexIgnoreCase(String name);
-
-    //  Suche nach Kategorie
-    @Query("{ 'category': { $regex: ?0, $options: 'i' } }")
-    List<Product> findByCategoryContainingIgnoreCase(String category);
-
     // Produkte nach Kategorie abrufen
     List<Product> findByCategoryId(String categoryId);
 
@@ -1,98 +1,369 @@
 package java_work.de.backend.service;
 
 import java_work.de.backend.dto.CartDTO;
+import java_work.de.backend.dto.CartItemRequestDTO;
+import java_work.de.backend.dto.CartOperationDTO;
 import java_work.de.backend.model.Cart;
+import java_work.de.backend.model.CartItem;
 import java_work.de.backend.model.OrderItem;
+import java_work.de.backend.model.Product;
 import java_work.de.backend.repo.CartRepository;
+import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 
+/*
+ Jede Änderung am Warenkorb ist ein einziges atomares Update auf das Cart-Dokument
+ (findAndModify liefert gleich den neuen Stand zurück) – kein Laden, Umbauen und Zurückschreiben
+ der ganzen Liste. Zwei Tabs, die gleichzeitig etwas hinzufügen, können sich so nichts mehr überschreiben:
+ - Produkt schon drin:  {userEmail, items.productId}           $inc items.$.quantity
+ - Produkt neu:         {userEmail, items.productId: {$ne: …}}  $push items (upsert legt den Warenkorb an)
+ - Menge setzen:        {userEmail, items.productId}           $set items.$.quantity
+ - Entfernen:           {userEmail}                            $pull items {productId}
+ Mit `cart.mode=memory` liegen aktive Warenkörbe stattdessen im HotCartStore; die Änderungen laufen dort
+ pro Nutzer serialisiert auf der Liste im Speicher und werden gebündelt nach MongoDB geschrieben.
+ Gespeichert wird pro Position nur {productId, quantity, price}; Name und Bild holt mapTODTO für alle
+ Positionen auf einmal aus dem Produkt-Cache (Rest per `$in`).
+ Jede Änderung erhöht `version`; darauf baut applyBatch auf (ein bedingtes Update für viele Operationen).
+ */
 @Service
 public class CartService {
 
+    //  Wie oft addToCart zwischen $inc und $push wechselt, wenn ein paralleler Request dazwischenkommt
+    private static final int MAX_ADD_ATTEMPTS = 5;
+    //  Wie oft ein Batch neu angewendet wird, wenn der Warenkorb zwischen Lesen und Schreiben geändert wurde
+    private static final int MAX_BATCH_ATTEMPTS = 5;
+
     private final CartRepository cartRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ProductService productService;
+    private final ImageRenditionService renditionService;
+    private final HotCartStore hotCarts;
+    private final VersionConflicts versionConflicts;
+    private final int maxBatchOperations;
 
-    public CartService(CartRepository cartRepository) {
+    public CartService(CartRepository cartRepository, MongoTemplate mongoTemplate, ProductService productService,
+                       ImageRenditionService renditionService, Optional<HotCartStore> hotCarts,
+                       VersionConflicts versionConflicts,
+                       @Value("${cart.batch.max-operations:100}") int maxBatchOperations) {
         this.cartRepository = cartRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.productService = productService;
+        this.renditionService = renditionService;
+        this.hotCarts = hotCarts.orElse(null);
+        this.versionConflicts = versionConflicts;
+        this.maxBatchOperations = maxBatchOperations;
     }
 
     public CartDTO getCart(String userEmail) {
+        if (hotCarts != null) {
+            return mapTODTO(hotCarts.get(userEmail));
+        }
         Cart cart = cartRepository.findByUserEmail(userEmail)
-                .orElse(new Cart(new ObjectId(),userEmail, List.of())); // Falls kein Warenkorb existiert, erstelle neuen
+                .orElse(new Cart(new ObjectId(),userEmail, List.of(), null)); // Falls kein Warenkorb existiert, erstelle neuen
 
         return mapTODTO(cart);
     }
 
-    public CartDTO addToCart(String userEmail, OrderItem item) {
-        Cart cart = cartRepository.findByUserEmail(userEmail)
-                .orElse(new Cart(new ObjectId(),userEmail, List.of()));
-
-        List<OrderItem> updateItems = new ArrayList<>(cart.items()); //  eine veränderbare Liste!
+    public CartDTO addToCart(String userEmail, CartItemRequestDTO request) {
+        if (request.quantity() <= 0) {
+            throw new IllegalArgumentException("Menge muss größer als 0 sein");
+        }
+        //  Preis kommt vom Produkt, nicht vom Client
+        Product product = productService.findProductMap(List.of(request.productId())).get(request.productId());
+        if (product == null) {
+            throw new NoSuchElementException("Kein Produkt mit ID " + request.productId() + " gefunden!");
+        }
+        CartItem item = new CartItem(request.productId(), request.quantity(), product.price());
+        if (hotCarts != null) {
+            return mapTODTO(hotCarts.update(userEmail, items -> merge(items, item)));
+        }
 
-        Optional<OrderItem> existingItem=updateItems.stream()
-                .filter(i ->i.productId().equals(item.productId()))
-                .findFirst();
+        for (int attempt = 1; ; attempt++) {
+            Cart cart = incrementExisting(userEmail, item);
+            if (cart == null) {
+                try {
+                    cart = pushNew(userEmail, item);
+                } catch (DuplicateKeyException e) {
+                    /*  Upsert kollidiert mit dem Unique-Index auf userEmail: Der Warenkorb existiert schon
+                        und enthält das Produkt inzwischen (anderer Tab) – oder wurde parallel angelegt.
+                        In beiden Fällen greift beim nächsten Durchlauf das $inc bzw. das $push. */
+                    if (attempt >= MAX_ADD_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+            }
+            if (cart != null) {
+                return mapTODTO(cart);
+            }
+        }
+    }
 
-        if(existingItem.isPresent()) {
-            OrderItem newItem = new OrderItem(
-                    item.productId(),
-                    item.name(),
-                    item.images(),
-                    existingItem.get().quantity()+item.quantity(),
-                    item.price()
-            );
-            updateItems.remove(existingItem.get());
-            updateItems.add(newItem);
-        }else {
-            updateItems.add(item);
+    /*
+     Viele Änderungen, ein Schreibvorgang: Warenkorb lesen, alle Operationen der Reihe nach im Speicher
+     anwenden und das Ergebnis mit einem einzigen findAndModify schreiben – aber nur, wenn `version` noch
+     dieselbe ist (sonst von vorn). Upsert legt einen fehlenden Warenkorb an; existiert er inzwischen doch,
+     scheitert das Upsert am Unique-Index und der nächste Durchlauf liest ihn. Erneut anwenden ist hier
+     unkritisch (Hinzufügen/Setzen/Entfernen auf dem neuen Stand); erst wenn es nach MAX_BATCH_ATTEMPTS
+     nicht klappt, gibt es 409 mit dem aktuellen Warenkorb.
+     Alle Operationen gelten gemeinsam oder gar nicht (z. B. unbekanntes Produkt -> nichts wird geändert).
+     */
+    public CartDTO applyBatch(String userEmail, List<CartOperationDTO> operations) {
+        if (operations.size() > maxBatchOperations) {
+            throw new IllegalArgumentException("Höchstens " + maxBatchOperations + " Operationen pro Anfrage erlaubt");
+        }
+        Map<String, Double> prices = pricesForAdds(operations);
+        if (hotCarts != null) {
+            return mapTODTO(hotCarts.update(userEmail, items -> apply(items, operations, prices)));
+        }
+        for (int attempt = 1; attempt <= MAX_BATCH_ATTEMPTS; attempt++) {
+            Cart current = cartRepository.findByUserEmail(userEmail).orElse(null);
+            List<CartItem> items = apply(current == null ? List.of() : items(current), operations, prices);
+            //  Ohne Version (neu oder Altbestand): Feld darf nicht existieren – $inc legt es dann mit 1 an
+            Criteria version = current == null || current.version() == null
+                    ? Criteria.where("version").exists(false)
+                    : Criteria.where("version").is(current.version());
+            Query query = new Query(Criteria.where("userEmail").is(userEmail).andOperator(version));
+            try {
+                Cart saved = mongoTemplate.findAndModify(query, new Update().set("items", items).inc("version", 1),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true), Cart.class);
+                if (saved != null) {
+                    return mapTODTO(saved);
+                }
+            } catch (DuplicateKeyException e) {
+                //  Parallel geändert oder angelegt: neu lesen und erneut anwenden
+                if (attempt < MAX_BATCH_ATTEMPTS) {
+                    versionConflicts.retried("cart");
+                }
+            }
         }
-        Cart updatedCart=new Cart(cart.id(),userEmail,updateItems);
-        cartRepository.save(updatedCart);
-        return mapTODTO(updatedCart);
+        versionConflicts.rejected("cart");
+        throw new VersionConflictException("cart", userEmail, getCart(userEmail));
     }
 
     public CartDTO updateCartQuantity(String userEmail, String productId, int quantity) {
-        Cart cart = cartRepository.findByUserEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("Warenkorb not found"));
+        if (hotCarts != null) {
+            return mapTODTO(hotCarts.update(userEmail, items -> items.stream()
+                    .map(item -> item.productId().equals(productId)
+                            ? new CartItem(item.productId(), quantity, item.priceSnapshot())
+                            : item)
+                    .filter(item -> item.quantity() > 0)
+                    .toList()));
+        }
+        if (quantity <= 0) {
+            //  Falls die Menge 0 ist, wird das Produkt entfernt!
+            return mapTODTO(pull(userEmail, productId));
+        }
+        Cart cart = mongoTemplate.findAndModify(lineQuery(userEmail, productId),
+                new Update().set("items.$.quantity", quantity).inc("version", 1), returnNew(), Cart.class);
+        if (cart == null) {
+            //  Produkt nicht (mehr) im Warenkorb: unveränderten Stand zurückgeben
+            cart = cartRepository.findByUserEmail(userEmail)
+                    .orElseThrow(() -> new RuntimeException("Warenkorb not found"));
+        }
+        return mapTODTO(cart);
+    }
 
-        List<OrderItem> updateItems = cart.items().stream()
-                .map(item -> item.productId().equals(productId)
-                ?new OrderItem(item.productId(),item.name(),item.images(),quantity,item.price())
-                        :item)
-                .filter(item -> item.quantity() > 0) //  Falls die Menge 0 ist, wird das Produkt entfernt!
-                .toList();
+    public void removeItem(String userEmail, String productId) {
+        if (hotCarts != null) {
+            hotCarts.update(userEmail, items -> items.stream().filter(item -> !item.productId().equals(productId)).toList());
+            return;
+        }
+        pull(userEmail, productId);
+    }
 
-        Cart updatedCart=new Cart(cart.id(),userEmail,updateItems);
-        cartRepository.save(updatedCart);
-        return mapTODTO(updatedCart);
 
+    public void clearCart(String userEmail) {
+        if (hotCarts != null) {
+            hotCarts.clear(userEmail);
+            return;
+        }
+        mongoTemplate.remove(cartQuery(userEmail), Cart.class); //  Ein Delete über userEmail, ohne vorheriges Laden
     }
 
-    public void removeItem(String userEmail, String productId) {
-        Cart cart = cartRepository.findByUserEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("Warenkorb nicht gefunden"));
+    /*
+     Nach einer Bestellung nur den bestellten Stand entfernen: gelöscht wird bedingt auf die gelesene `version`.
+     Wurde der Warenkorb seitdem geändert (z. B. im zweiten Tab etwas hinzugefügt), werden nur die
+     unveränderten bestellten Positionen herausgenommen – neue oder geänderte bleiben liegen.
+     */
+    public void removeOrdered(Cart ordered) {
+        if (hotCarts != null) {
+            hotCarts.update(ordered.userEmail(), items -> items.stream().filter(item -> !ordered.items().contains(item)).toList());
+            return;
+        }
+        Query unchanged = new Query(Criteria.where("_id").is(ordered.id()).and("version").is(ordered.version()));
+        if (mongoTemplate.remove(unchanged, Cart.class).getDeletedCount() > 0) {
+            return;
+        }
+        List<Document> orderedLines = ordered.items().stream()
+                .map(item -> new Document("productId", item.productId()).append("quantity", item.quantity()))
+                .toList();
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(ordered.id())),
+                new Update().pull("items", new Document("$or", orderedLines)).inc("version", 1), Cart.class);
+    }
 
-        List<OrderItem> updatedItems = cart.items().stream()
-                .filter(item -> !item.productId().equals(productId)) //  Nur die übriggebliebenen Items behalten
+    //  Preis-Schnappschüsse für alle ADD-Operationen mit einem Batch-Lookup; unbekanntes Produkt bricht alles ab
+    private Map<String, Double> pricesForAdds(List<CartOperationDTO> operations) {
+        List<String> added = operations.stream()
+                .filter(operation -> operation.type() == CartOperationDTO.Type.ADD)
+                .map(CartOperationDTO::productId)
                 .toList();
+        Map<String, Double> prices = new HashMap<>();
+        if (added.isEmpty()) {
+            return prices;
+        }
+        Map<String, Product> products = productService.findProductMap(added);
+        for (String productId : added) {
+            Product product = products.get(productId);
+            if (product == null) {
+                throw new NoSuchElementException("Kein Produkt mit ID " + productId + " gefunden!");
+            }
+            prices.put(productId, product.price());
+        }
+        return prices;
+    }
+
+    private static List<CartItem> apply(List<CartItem> items, List<CartOperationDTO> operations, Map<String, Double> prices) {
+        List<CartItem> result = items;
+        for (CartOperationDTO operation : operations) {
+            String productId = operation.productId();
+            int quantity = operation.quantity();
+            result = switch (operation.type()) {
+                case ADD -> {
+                    if (quantity <= 0) {
+                        throw new IllegalArgumentException("Menge muss größer als 0 sein");
+                    }
+                    yield merge(result, new CartItem(productId, quantity, prices.get(productId)));
+                }
+                //  Menge 0 entfernt die Position, wie bei updateCartQuantity
+                case UPDATE -> result.stream()
+                        .map(item -> item.productId().equals(productId)
+                                ? new CartItem(productId, quantity, item.priceSnapshot())
+                                : item)
+                        .filter(item -> item.quantity() > 0)
+                        .toList();
+                case REMOVE -> result.stream().filter(item -> !item.productId().equals(productId)).toList();
+            };
+        }
+        return result;
+    }
 
-        Cart updatedCart = new Cart(cart.id(), userEmail, updatedItems);
-        cartRepository.save(updatedCart); //  Aktualisierte Liste speichern!
+    //  Speicher-Variante von $inc/$push: Menge erhöhen oder Position anhängen
+    private static List<CartItem> merge(List<CartItem> items, CartItem item) {
+        List<CartItem> merged = new ArrayList<>(items);
+        for (int i = 0; i < merged.size(); i++) {
+            CartItem existing = merged.get(i);
+            if (existing.productId().equals(item.productId())) {
+                merged.set(i, new CartItem(item.productId(), existing.quantity() + item.quantity(), item.priceSnapshot()));
+                return merged;
+            }
+        }
+        merged.add(item);
+        return merged;
     }
 
+    //  null, wenn das Produkt noch nicht im Warenkorb liegt (oder es keinen Warenkorb gibt)
+    private Cart incrementExisting(String userEmail, CartItem item) {
+        Update update = new Update()
+                .inc("items.$.quantity", item.quantity())
+                .set("items.$.price", item.priceSnapshot())
+                .unset("items.$.name") //  Altbestand: kopierte Produktdaten beim ersten Anfassen entfernen
+                .unset("items.$.images")
+                .inc("version", 1);
+        return mongoTemplate.findAndModify(lineQuery(userEmail, item.productId()), update, returnNew(), Cart.class);
+    }
 
-    public void clearCart(String userEmail) {
-        cartRepository.findByUserEmail(userEmail)
-                .ifPresent(cart -> cartRepository.deleteById(cart.id().toString())); //  Lösche das Cart anhand der ObjectId!
+    /*
+     Der Filter trifft nur Warenkörbe ohne dieses Produkt; fehlt der Warenkorb ganz, legt das Upsert ihn an
+     (userEmail kommt aus dem Gleichheitsfilter). Existiert der Warenkorb aber mit dem Produkt, versucht
+     das Upsert ein zweites Dokument einzufügen und scheitert am Unique-Index -> DuplicateKeyException.
+     */
+    private Cart pushNew(String userEmail, CartItem item) {
+        Query query = new Query(Criteria.where("userEmail").is(userEmail).and("items.productId").ne(item.productId()));
+        return mongoTemplate.findAndModify(query, new Update().push("items", item).inc("version", 1),
+                FindAndModifyOptions.options().upsert(true).returnNew(true), Cart.class);
     }
 
+    private Cart pull(String userEmail, String productId) {
+        Cart cart = mongoTemplate.findAndModify(cartQuery(userEmail),
+                new Update().pull("items", new Document("productId", productId)).inc("version", 1), returnNew(), Cart.class);
+        if (cart == null) {
+            throw new RuntimeException("Warenkorb nicht gefunden");
+        }
+        return cart;
+    }
 
+    private static Query cartQuery(String userEmail) {
+        return new Query(Criteria.where("userEmail").is(userEmail));
+    }
 
+    //  Trifft den Warenkorb nur, wenn die Position existiert; `items.$` zeigt dann genau auf sie
+    private static Query lineQuery(String userEmail, String productId) {
+        return new Query(Criteria.where("userEmail").is(userEmail).and("items.productId").is(productId));
+    }
+
+    private static FindAndModifyOptions returnNew() {
+        return FindAndModifyOptions.options().returnNew(true);
+    }
+
+    /*
+     Bestellpositionen als unveränderlicher Schnappschuss: aktueller Name, Bild nur als Hash-Referenz
+     (das erste, mehr zeigt die Bestellübersicht nicht), Preis aus dem Warenkorb.
+     */
+    public List<OrderItem> toOrderItems(Cart cart) {
+        Map<String, Product> products = productService.findProductMap(productIds(cart));
+        return items(cart).stream()
+                .map(item -> {
+                    Product product = products.get(item.productId());
+                    if (product == null) {
+                        throw new IllegalArgumentException("Produkt " + item.productId() + " ist nicht mehr verfügbar");
+                    }
+                    return new OrderItem(item.productId(), product.name(), firstImageRef(product), item.quantity(),
+                            item.priceSnapshot());
+                })
+                .toList();
+    }
+
+    //  Alle Positionen mit einem Batch-Lookup anreichern; gelöschte Produkte bleiben sichtbar, damit man sie entfernen kann
     private CartDTO mapTODTO(Cart cart) {
-        return new CartDTO(cart.id().toString(),cart.userEmail(),cart.items());
+        Map<String, Product> products = productService.findProductMap(productIds(cart));
+        List<OrderItem> items = items(cart).stream()
+                .map(item -> {
+                    Product product = products.get(item.productId());
+                    return new OrderItem(item.productId(),
+                            product == null ? "Nicht mehr verfügbar" : product.name(),
+                            product == null ? List.of()
+                                    : renditionService.toUrls(firstImageRef(product), ImageRenditionService.Variant.THUMBNAIL),
+                            item.quantity(), item.priceSnapshot());
+                })
+                .toList();
+        return new CartDTO(cart.id().toString(),cart.userEmail(),items);
+    }
+
+    private static List<CartItem> items(Cart cart) {
+        return cart.items() == null ? List.of() : cart.items();
+    }
+
+    private static List<String> productIds(Cart cart) {
+        return items(cart).stream().map(CartItem::productId).toList();
+    }
+
+    private static List<String> firstImageRef(Product product) {
+        List<String> images = product.images();
+        return images == null || images.isEmpty() || !ImageService.isHash(images.get(0)) ? List.of() : List.of(images.get(0));
     }
 }
@@ -0,0 +1,268 @@
+package java_work.de.backend.service;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import java_work.de.backend.model.Category;
+import java_work.de.backend.model.Product;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/*
+ Hält die lokalen Katalog-Caches mehrerer Backend-Instanzen konsistent.
+ Jeder Knoten lauscht per MongoDB Change Stream auf `product` und `category` und veröffentlicht
+ für jede Änderung ein ProductChangedEvent / CategoryChangedEvent (remote = true); Updates, die nur den
+ Bestand betreffen, als StockChangedEvent.
+ Das Resume-Token wird pro Knoten in `change_stream_state` gespeichert, damit ein neu gestarteter
+ Knoten die verpassten Änderungen nachholt. Benötigt ein Replica Set (Change Streams).
+ Aktivieren mit `catalog.change-stream.enabled=true`.
+ */
+@Component
+@ConditionalOnProperty(name = "catalog.change-stream.enabled", havingValue = "true")
+public class CatalogChangeStreamListener implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogChangeStreamListener.class);
+    private static final String STATE_COLLECTION = "change_stream_state";
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final Set<String> STOCK_FIELDS = Set.of("stock", "updatedAt", "ledgerSeq");
+
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public CatalogChangeStreamListener(MongoTemplate mongoTemplate, ApplicationEventPublisher eventPublisher,
+                                       @Value("${catalog.change-stream.node-id:}") String nodeId) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (Class<?> type : List.of(Product.class, Category.class)) {
+            String collection = mongoTemplate.getCollectionName(type);
+            //  Cursor möglichst schon hier öffnen, damit ab jetzt keine Änderung verloren geht
+            MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = tryOpen(collection);
+            Thread worker = new Thread(() -> watch(collection, cursor), "change-stream-" + collection);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        logger.info(" Change Streams für den Katalog gestartet (Knoten '{}')", nodeId);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        workers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void watch(String collection, MongoChangeStreamCursor<ChangeStreamDocument<Document>> initialCursor) {
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = initialCursor;
+        long backoff = 500;
+        while (running) {
+            try {
+                if (cursor == null) {
+                    cursor = open(collection);
+                }
+                ChangeStreamDocument<Document> change = cursor.tryNext(); // wartet maximal maxAwaitTime
+                if (change != null) {
+                    handle(collection, change);
+                    boolean invalidated = change.getOperationType() == OperationType.INVALIDATE;
+                    saveResumeToken(collection, change.getResumeToken(), invalidated);
+                    if (invalidated) {
+                        //  Nach einem Invalidate ist der Stream beendet und muss neu geöffnet werden
+                        closeQuietly(cursor);
+                        cursor = null;
+                    }
+                }
+                backoff = 500;
+            } catch (MongoException e) {
+                closeQuietly(cursor);
+                cursor = null;
+                if (!running) {
+                    break;
+                }
+                if (e instanceof MongoCommandException command && command.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+                    //  Token liegt nicht mehr im Oplog: Neu beginnen und vorsichtshalber alles verwerfen
+                    logger.warn(" Resume-Token für '{}' ist abgelaufen, alle lokalen Caches werden verworfen", collection);
+                    deleteResumeToken(collection);
+                    publishAll(collection);
+                    continue;
+                }
+                logger.warn(" Change Stream für '{}' unterbrochen ({}), neuer Versuch in {} ms", collection, e.getMessage(), backoff);
+                sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+        closeQuietly(cursor);
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> tryOpen(String collection) {
+        try {
+            return open(collection);
+        } catch (MongoException e) {
+            logger.warn(" Change Stream für '{}' konnte nicht geöffnet werden: {}", collection, e.getMessage());
+            return null;
+        }
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open(String collection) {
+        ChangeStreamIterable<Document> stream = mongoTemplate.getCollection(collection)
+                .watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        Document state = loadState(collection);
+        if (state != null && state.getString("token") != null) {
+            BsonDocument token = BsonDocument.parse(state.getString("token"));
+            //  Token eines Invalidate-Events (Drop/Rename) lehnt resumeAfter ab, nur startAfter geht
+            stream = Boolean.TRUE.equals(state.getBoolean("invalidated"))
+                    ? stream.startAfter(token)
+                    : stream.resumeAfter(token);
+        }
+        return stream.cursor();
+    }
+
+    private void handle(String collection, ChangeStreamDocument<Document> change) {
+        OperationType operation = change.getOperationType();
+        if (operation == OperationType.DROP || operation == OperationType.RENAME
+                || operation == OperationType.DROP_DATABASE || operation == OperationType.INVALIDATE) {
+            publishAll(collection);
+            return;
+        }
+        String id = change.getDocumentKey() == null ? null : idOf(change.getDocumentKey().get("_id"));
+        if (id == null) {
+            return;
+        }
+        boolean deleted = operation == OperationType.DELETE;
+
+        if (collection.equals(mongoTemplate.getCollectionName(Product.class))) {
+            if (isStockOnly(change)) {
+                eventPublisher.publishEvent(new StockChangedEvent(id, true));
+                return;
+            }
+            Product product = deleted || change.getFullDocument() == null
+                    ? null
+                    : mongoTemplate.getConverter().read(Product.class, change.getFullDocument());
+            eventPublisher.publishEvent(new ProductChangedEvent(id, product, deleted, true));
+        } else {
+            eventPublisher.publishEvent(new CategoryChangedEvent(id, true));
+        }
+    }
+
+    //  Update, das nur Bestandsfelder setzt (Checkout, Storno, Ledger-Flush)
+    private static boolean isStockOnly(ChangeStreamDocument<Document> change) {
+        UpdateDescription update = change.getUpdateDescription();
+        if (change.getOperationType() != OperationType.UPDATE || update == null || update.getUpdatedFields() == null) {
+            return false;
+        }
+        return (update.getRemovedFields() == null || update.getRemovedFields().isEmpty())
+                && STOCK_FIELDS.containsAll(update.getUpdatedFields().keySet());
+    }
+
+    private void publishAll(String collection) {
+        if (collection.equals(mongoTemplate.getCollectionName(Product.class))) {
+            eventPublisher.publishEvent(new ProductChangedEvent(null, null, false, true));
+        } else {
+            eventPublisher.publishEvent(new CategoryChangedEvent(null, true));
+        }
+    }
+
+    private static String idOf(BsonValue id) {
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+
+    //  Resume-Token pro Knoten und Collection speichern
+    private Document loadState(String collection) {
+        return stateCollection().find(Filters.eq("_id", stateKey(collection))).first();
+    }
+
+    private void saveResumeToken(String collection, BsonDocument token, boolean invalidated) {
+        if (token == null) {
+            return;
+        }
+        String key = stateKey(collection);
+        stateCollection().replaceOne(Filters.eq("_id", key),
+                new Document("_id", key).append("token", token.toJson()).append("invalidated", invalidated),
+                new ReplaceOptions().upsert(true));
+    }
+
+    private void deleteResumeToken(String collection) {
+        stateCollection().deleteOne(Filters.eq("_id", stateKey(collection)));
+    }
+
+    private MongoCollection<Document> stateCollection() {
+        return mongoTemplate.getCollection(STATE_COLLECTION);
+    }
+
+    private String stateKey(String collection) {
+        return nodeId + ":" + collection;
+    }
+
+    private static void closeQuietly(MongoChangeStreamCursor<?> cursor) {
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } catch (RuntimeException ignored) {
+                // Cursor ist ohnehin nicht mehr benutzbar
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String defaultNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
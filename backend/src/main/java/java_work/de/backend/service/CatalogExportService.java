@@ -0,0 +1,183 @@
+package java_work.de.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java_work.de.backend.dto.OrderDTO;
+import java_work.de.backend.dto.ProductDTO;
+import java_work.de.backend.model.Address;
+import java_work.de.backend.model.Order;
+import java_work.de.backend.model.OrderItem;
+import java_work.de.backend.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ Export von Produkten und Bestellungen als NDJSON oder CSV direkt aus einem MongoDB-Cursor.
+ Es wird nie eine Liste der ganzen Collection gebaut: Dokumente kommen batchweise vom Cursor,
+ werden einzeln serialisiert und sofort in den (gepufferten) Response-Stream geschrieben.
+ Der Produkt-Export hat dieselben Spalten wie der Import und kann dort wieder eingelesen werden.
+ */
+@Service
+public class CatalogExportService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogExportService.class);
+    private static final int CURSOR_BATCH_SIZE = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final List<String> PRODUCT_COLUMNS =
+            List.of("id", "name", "description", "price", "stock", "categoryId", "images");
+    private static final List<String> ORDER_COLUMNS =
+            List.of("id", "userEmail", "totalPrice", "paymentStatus", "orderStatus", "paymentMethod",
+                    "returnRequested", "items", "shippingAddress");
+
+    private final MongoTemplate mongoTemplate;
+    private final ImageService imageService;
+    private final ObjectMapper objectMapper;
+
+    public CatalogExportService(MongoTemplate mongoTemplate, ImageService imageService, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.imageService = imageService;
+        this.objectMapper = objectMapper;
+    }
+
+    public long exportProducts(OutputStream out, DataFormat format) throws IOException {
+        return export(Product.class, out, format, PRODUCT_COLUMNS, this::toProductDTO, product -> Arrays.asList(
+                product.id(),
+                product.name(),
+                product.description(),
+                product.price(),
+                product.stock(),
+                product.categoryId(),
+                String.join("|", product.images())));
+    }
+
+    public long exportOrders(OutputStream out, DataFormat format) throws IOException {
+        return export(Order.class, out, format, ORDER_COLUMNS, this::toOrderDTO, order -> Arrays.asList(
+                order.id(),
+                order.userEmail(),
+                order.totalPrice(),
+                order.paymentStatus(),
+                order.orderStatus(),
+                order.paymentMethod(),
+                order.returnRequested(),
+                order.items().stream()
+                        .map(item -> item.productId() + " x " + item.quantity())
+                        .collect(Collectors.joining("|")),
+                formatAddress(order.shippingAddress())));
+    }
+
+    private <T, D> long export(Class<T> type, OutputStream target, DataFormat format, List<String> columns,
+                               Function<T, D> toDTO, Function<D, List<Object>> toRow) throws IOException {
+        //  Sortiert nach _id (Index), der Treiber holt jeweils CURSOR_BATCH_SIZE Dokumente nach
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(CURSOR_BATCH_SIZE);
+        Writer out = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long count = 0;
+        try (Stream<T> documents = mongoTemplate.stream(query, type)) {
+            if (format == DataFormat.CSV) {
+                writeCsvLine(out, columns);
+            }
+            Iterator<T> iterator = documents.iterator();
+            while (iterator.hasNext()) {
+                D dto = toDTO.apply(iterator.next());
+                if (format == DataFormat.CSV) {
+                    writeCsvLine(out, toRow.apply(dto));
+                } else {
+                    out.write(objectMapper.writeValueAsString(dto));
+                    out.write('\n');
+                }
+                count++;
+            }
+        }
+        out.flush(); //  Nicht schließen: den Ziel-Stream (ggf. gzip) schließt der Aufrufer
+        logger.info(" Export {} ({}): {} Dokumente", mongoTemplate.getCollectionName(type), format, count);
+        return count;
+    }
+
+    private static void writeCsvLine(Writer out, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(csvField(values.get(i)));
+        }
+        out.write("\r\n");
+    }
+
+    //  Felder mit Trennzeichen, Anführungszeichen oder Zeilenumbruch werden nach RFC 4180 gequotet
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(",") || text.contains(";") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    private ProductDTO toProductDTO(Product product) {
+        return new ProductDTO(
+                product.id().toHexString(),
+                product.name(),
+                product.description(),
+                product.price(),
+                product.stock(),
+                imageService.toUrls(product.images()),
+                product.categoryId());
+    }
+
+    private OrderDTO toOrderDTO(Order order) {
+        List<OrderItem> items = order.items() == null ? List.of() : order.items().stream()
+                .map(item -> new OrderItem(item.productId(), item.name(), imageService.toUrls(item.images()),
+                        item.quantity(), item.price()))
+                .toList();
+        return new OrderDTO(
+                order.id().toHexString(),
+                order.userEmail(),
+                items,
+                order.totalPrice(),
+                order.shippingAddress(),
+                nameOf(order.paymentStatus()),
+                nameOf(order.orderStatus()),
+                nameOf(order.paymentMethod()),
+                order.stripePaymentIntentId(),
+                order.returnRequested());
+    }
+
+    private static String nameOf(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+
+    private static String formatAddress(Address address) {
+        if (address == null) {
+            return null;
+        }
+        return Arrays.stream(new String[]{
+                        joinNonBlank(" ", address.street(), address.houseNumber()),
+                        joinNonBlank(" ", address.postalCode(), address.city()),
+                        address.country()})
+                .filter(part -> part != null && !part.isBlank())
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String joinNonBlank(String separator, String... parts) {
+        return Arrays.stream(parts)
+                .filter(part -> part != null && !part.isBlank())
+                .collect(Collectors.joining(separator));
+    }
+}
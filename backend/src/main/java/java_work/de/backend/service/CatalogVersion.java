@@ -0,0 +1,46 @@
+package java_work.de.backend.service;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ Versionsstand des Katalogs für Conditional GETs der Listen (ETag / Last-Modified).
+ Die Generation wird erst hochgezählt, wenn eine Änderung verarbeitet ist: bei Produkten vom
+ ProductCache nach dem Invalidieren, bei Kategorien nach dem Speichern. Wer die neue ETag sieht,
+ bekommt also auch die neuen Daten.
+ Die Epoche (Startzeit des Prozesses) steckt mit in der ETag, damit nach einem Neustart oder auf
+ einem anderen Knoten nie zufällig dieselbe ETag für einen anderen Stand herauskommt.
+ */
+@Component
+public class CatalogVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Instant lastModified = Instant.now();
+
+    public void advance() {
+        generation.incrementAndGet();
+        lastModified = Instant.now();
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    //  Schwache ETag: gleicher Stand, aber z. B. unterschiedlich komprimiert ausgeliefert
+    public String etag() {
+        return "W/\"" + epoch + "-" + generation.get() + "\"";
+    }
+
+    public Instant lastModified() {
+        return lastModified;
+    }
+
+    @EventListener
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        advance();
+    }
+}
@@ -0,0 +1,10 @@
+package java_work.de.backend.service;
+
+/*
+ Eine Kategorie wurde angelegt, geändert oder gelöscht (categoryId == null: alle).
+ */
+public record CategoryChangedEvent(
+        String categoryId,
+        boolean remote
+) {
+}
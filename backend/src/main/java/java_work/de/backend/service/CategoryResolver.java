@@ -0,0 +1,100 @@
+package java_work.de.backend.service;
+
+import java_work.de.backend.model.Category;
+import java_work.de.backend.repo.CategoryRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ Übersetzt Kategorienamen aus der Suche in Kategorie-IDs, IDs zurück in Anzeigenamen (Facetten)
+ und beantwortet "gibt es diese Kategorie?".
+ Die Zuordnung (normalisierter Name -> IDs, ID -> Name) wird einmal geladen und bei jeder
+ Kategorieänderung (CategoryChangedEvent) verworfen und beim nächsten Zugriff neu gelesen –
+ von genau einem Thread (SingleFlight), gleichzeitige Zugriffe warten auf dieses Ergebnis.
+ */
+@Component
+public class CategoryResolver {
+
+    private final CategoryRepository categoryRepository;
+    private final SingleFlight<String, Snapshot> loads = new SingleFlight<>();
+    private volatile Snapshot snapshot;
+    private volatile long generation;
+
+    private record Snapshot(Map<String, List<String>> idsByName, Set<String> ids, Map<String, String> namesById) {
+    }
+
+    public CategoryResolver(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    /*
+     Exakter Name (ohne Groß-/Kleinschreibung und Umlaut-Varianten) gewinnt,
+     sonst alle Kategorien, deren Name den Text enthält.
+     */
+    public List<String> resolve(String name) {
+        if (name == null || name.isBlank()) {
+            return List.of();
+        }
+        Map<String, List<String>> names = snapshot().idsByName();
+        String key = ProductSearchIndex.normalize(name.trim());
+        List<String> exact = names.get(key);
+        if (exact != null) {
+            return exact;
+        }
+        List<String> ids = new ArrayList<>();
+        names.forEach((categoryName, categoryIds) -> {
+            if (categoryName.contains(key)) {
+                ids.addAll(categoryIds);
+            }
+        });
+        return ids;
+    }
+
+    //  Existenzprüfung ohne Datenbank-Roundtrip (z. B. für jede Zeile eines Imports)
+    public boolean exists(String categoryId) {
+        return categoryId != null && snapshot().ids().contains(categoryId);
+    }
+
+    //  Anzeigename zur ID; null, wenn es die Kategorie nicht (mehr) gibt
+    public String name(String categoryId) {
+        return categoryId == null ? null : snapshot().namesById().get(categoryId);
+    }
+
+    @EventListener
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        generation++;
+        snapshot = null;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : loads.load("categories", this::load);
+    }
+
+    private Snapshot load() {
+        long loadedGeneration = generation;
+        Map<String, List<String>> names = new HashMap<>();
+        Set<String> ids = new HashSet<>();
+        Map<String, String> namesById = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            ids.add(category.id());
+            if (category.name() != null) {
+                namesById.put(category.id(), category.name());
+                names.computeIfAbsent(ProductSearchIndex.normalize(category.name().trim()), key -> new ArrayList<>())
+                        .add(category.id());
+            }
+        }
+        Snapshot loaded = new Snapshot(names, ids, namesById);
+        if (generation == loadedGeneration) {
+            snapshot = loaded; //  Während des Ladens geändert? Dann nicht merken, nächster Zugriff lädt neu
+        }
+        return loaded;
+    }
+}
@@ -1,29 +1,63 @@
 package java_work.de.backend.service;
 
 import java_work.de.backend.dto.CategoryDTO;
+import java_work.de.backend.dto.CategoryNodeDTO;
 import java_work.de.backend.model.Category;
 import java_work.de.backend.repo.CategoryRepository;
 import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class CategoryServic {
     private final CategoryRepository categoryRepository;
+    private final CategoryTree categoryTree;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CategoryServic(CategoryRepository categoryRepository) {
+    public CategoryServic(CategoryRepository categoryRepository, CategoryTree categoryTree,
+                          ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
+        this.categoryTree = categoryTree;
+        this.eventPublisher = eventPublisher;
     }
 
     public CategoryDTO addCategory(CategoryDTO categoryDTO) {
-        Category category = new Category(new ObjectId().toHexString(), categoryDTO.name());
+        String parentId = blankToNull(categoryDTO.parentId());
+        if (parentId != null && !categoryRepository.existsById(parentId)) {
+            throw new IllegalArgumentException("Oberkategorie existiert nicht: " + parentId);
+        }
+        Category category = new Category(new ObjectId().toHexString(), categoryDTO.name(), parentId);
         Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory.id(), false));
 
         return mapToDTO(savedCategory); //  Hier wandeln wir die gespeicherte `Category` in `CategoryDTO` um
     }
 
+    //  Kategorie unter eine andere Oberkategorie hängen (null = Wurzel); Zyklen werden abgelehnt
+    public CategoryDTO moveCategory(String id, String parentId) {
+        Category category = categoryRepository.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("Kategorie " + id + " nicht gefunden!"));
+        String newParent = blankToNull(parentId);
+        Set<String> seen = new HashSet<>();
+        for (String current = newParent; current != null; ) {
+            if (current.equals(id) || !seen.add(current)) {
+                throw new IllegalArgumentException("Kategorie kann nicht unter sich selbst hängen");
+            }
+            current = categoryRepository.findById(current)
+                    .orElseThrow(() -> new IllegalArgumentException("Oberkategorie existiert nicht: " + newParent))
+                    .parentId();
+        }
+        Category saved = categoryRepository.save(new Category(category.id(), category.name(), newParent));
+        eventPublisher.publishEvent(new CategoryChangedEvent(saved.id(), false));
+        return mapToDTO(saved);
+    }
+
     public List<CategoryDTO> getAllCategory() {
         List<Category> categories = categoryRepository.findAll();
 
@@ -32,9 +66,22 @@ public class CategoryServic {
                 .collect(Collectors.toList());
     }
 
+    //  Baum mit Produktanzahl und Preisspanne pro Kategorie (aus dem Speicher)
+    public List<CategoryNodeDTO> getCategoryTree() {
+        return categoryTree.getTree();
+    }
+
+    public List<CategoryNodeDTO> rebuildCategoryTree() {
+        return categoryTree.rebuild();
+    }
+
 
     // Hilfsmethode zur Umwandlung von Category → CategoryDTO
     private CategoryDTO mapToDTO(Category category) {
-        return new CategoryDTO(category.id(), category.name());
+        return new CategoryDTO(category.id(), category.name(), category.parentId());
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
     }
 }
@@ -0,0 +1,237 @@
+package java_work.de.backend.service;
+
+import java_work.de.backend.dto.CategoryNodeDTO;
+import java_work.de.backend.model.Category;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.repo.CategoryRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/*
+ Kategoriebaum mit vorberechneten Kennzahlen pro Kategorie: Anzahl Produkte sowie Min-/Max-Preis,
+ jeweils für die Kategorie selbst und aufsummiert über alle Unterkategorien.
+ - Die Zahlen liegen im Speicher; der fertige Baum wird bis zur nächsten Änderung wiederverwendet.
+ - ProductService meldet jedes Speichern/Löschen mit altem und neuem Stand, die Zähler werden direkt
+   angepasst. Nur wenn das billigste oder teuerste Produkt einer Kategorie wegfällt, muss diese eine
+   Kategorie neu aggregiert werden ($match + $group über den Index categoryId_price).
+ - Importe und Änderungen anderer Knoten (Change Stream) liefern keinen alten Stand: dann wird beim
+   nächsten Zugriff alles per Aggregation neu berechnet. `rebuild()` macht das sofort.
+ */
+@Component
+public class CategoryTree {
+    private static final Logger logger = LoggerFactory.getLogger(CategoryTree.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final CategoryRepository categoryRepository;
+
+    //  Alles unter `this` synchronisiert
+    private final Map<String, Stats> stats = new HashMap<>();
+    private final Set<String> dirty = new HashSet<>();
+    private boolean allDirty = true;
+    private List<CategoryNodeDTO> tree;
+
+    private static final class Stats {
+        long count;
+        Double minPrice;
+        Double maxPrice;
+    }
+
+    public CategoryTree(MongoTemplate mongoTemplate, CategoryRepository categoryRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.categoryRepository = categoryRepository;
+    }
+
+    public synchronized List<CategoryNodeDTO> getTree() {
+        if (allDirty) {
+            aggregate(null);
+        } else if (!dirty.isEmpty()) {
+            aggregate(Set.copyOf(dirty));
+        }
+        if (tree == null) {
+            tree = build();
+        }
+        return tree;
+    }
+
+    //  Sofort alles neu aggregieren (z. B. nach manuellen Änderungen in der Datenbank)
+    public synchronized List<CategoryNodeDTO> rebuild() {
+        allDirty = true;
+        return getTree();
+    }
+
+    //  previous == null: neues Produkt
+    public synchronized void productSaved(Product previous, Product current) {
+        if (previous != null && Objects.equals(previous.categoryId(), current.categoryId())
+                && Objects.equals(previous.price(), current.price())) {
+            return; //  Name, Bilder, Bestand … ändern an den Kennzahlen nichts
+        }
+        if (previous != null) {
+            remove(previous);
+        }
+        add(current);
+        tree = null;
+    }
+
+    public synchronized void productDeleted(Product previous) {
+        remove(previous);
+        tree = null;
+    }
+
+    @EventListener
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        //  Lokale Einzeländerungen meldet der ProductService direkt (mit altem Stand)
+        if (event.allProducts() || event.remote()) {
+            allDirty = true;
+            tree = null;
+        }
+    }
+
+    @EventListener
+    public synchronized void onCategoryChanged(CategoryChangedEvent event) {
+        tree = null; //  Struktur (Name, Oberkategorie) neu lesen, Zahlen bleiben gültig
+    }
+
+    private void add(Product product) {
+        if (allDirty || product.categoryId() == null) {
+            return;
+        }
+        Stats entry = stats.computeIfAbsent(product.categoryId(), id -> new Stats());
+        entry.count++;
+        Double price = product.price();
+        if (price != null) {
+            entry.minPrice = entry.minPrice == null ? price : Math.min(entry.minPrice, price);
+            entry.maxPrice = entry.maxPrice == null ? price : Math.max(entry.maxPrice, price);
+        }
+    }
+
+    private void remove(Product product) {
+        if (allDirty || product.categoryId() == null) {
+            return;
+        }
+        Stats entry = stats.get(product.categoryId());
+        if (entry == null) {
+            dirty.add(product.categoryId());
+            return;
+        }
+        entry.count = Math.max(0, entry.count - 1);
+        if (entry.count == 0) {
+            stats.remove(product.categoryId());
+        } else if (product.price() != null
+                && (product.price().equals(entry.minPrice) || product.price().equals(entry.maxPrice))) {
+            dirty.add(product.categoryId()); //  Neues Minimum/Maximum nur per Aggregation bestimmbar
+        }
+    }
+
+    /*
+     categoryIds == null: alle Kategorien. Der $group-Schritt liefert pro categoryId
+     Anzahl und Min/Max-Preis – ohne ein einziges Produkt in die Anwendung zu laden.
+     */
+    private void aggregate(Set<String> categoryIds) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(categoryIds == null
+                ? Criteria.where("categoryId").ne(null)
+                : Criteria.where("categoryId").in(categoryIds)));
+        stages.add(Aggregation.group("categoryId").count().as("count").min("price").as("minPrice").max("price").as("maxPrice"));
+
+        Map<String, Stats> fresh = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(Aggregation.newAggregation(stages), Product.class, Document.class)
+                .getMappedResults()) {
+            Stats entry = new Stats();
+            entry.count = row.get("count", Number.class).longValue();
+            entry.minPrice = toDouble(row.get("minPrice"));
+            entry.maxPrice = toDouble(row.get("maxPrice"));
+            fresh.put(row.getString("_id"), entry);
+        }
+        if (categoryIds == null) {
+            stats.clear();
+            logger.info(" Kategorie-Kennzahlen neu aggregiert: {} Kategorien mit Produkten", fresh.size());
+        } else {
+            categoryIds.forEach(stats::remove);
+        }
+        stats.putAll(fresh);
+        dirty.clear();
+        allDirty = false;
+        tree = null;
+    }
+
+    private List<CategoryNodeDTO> build() {
+        List<Category> categories = categoryRepository.findAll();
+        Set<String> known = new HashSet<>();
+        categories.forEach(category -> known.add(category.id()));
+        Map<String, List<Category>> childrenByParent = new HashMap<>();
+        List<Category> roots = new ArrayList<>();
+        for (Category category : categories) {
+            //  Unbekannte Oberkategorie: als Wurzel zeigen statt die Kategorie zu verlieren
+            if (category.parentId() == null || !known.contains(category.parentId())) {
+                roots.add(category);
+            } else {
+                childrenByParent.computeIfAbsent(category.parentId(), id -> new ArrayList<>()).add(category);
+            }
+        }
+        Set<String> visited = new HashSet<>();
+        List<CategoryNodeDTO> result = new ArrayList<>(nodes(roots, childrenByParent, visited));
+        //  Kategorien in einem Zyklus hängen an keiner Wurzel: ebenfalls als Wurzel zeigen
+        for (Category category : categories) {
+            if (!visited.contains(category.id())) {
+                result.addAll(nodes(List.of(category), childrenByParent, visited));
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    private List<CategoryNodeDTO> nodes(List<Category> categories, Map<String, List<Category>> childrenByParent,
+                                        Set<String> visited) {
+        List<CategoryNodeDTO> nodes = new ArrayList<>();
+        for (Category category : categories) {
+            if (visited.add(category.id())) {
+                nodes.add(node(category, childrenByParent, visited));
+            }
+        }
+        nodes.sort(Comparator.comparing(CategoryNodeDTO::name, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        return nodes;
+    }
+
+    private CategoryNodeDTO node(Category category, Map<String, List<Category>> childrenByParent, Set<String> visited) {
+        List<CategoryNodeDTO> children = nodes(childrenByParent.getOrDefault(category.id(), List.of()), childrenByParent, visited);
+        Stats own = stats.get(category.id());
+        long count = own == null ? 0 : own.count;
+        long total = count;
+        Double min = own == null ? null : own.minPrice;
+        Double max = own == null ? null : own.maxPrice;
+        for (CategoryNodeDTO child : children) {
+            total += child.totalProductCount();
+            min = minOf(min, child.minPrice());
+            max = maxOf(max, child.maxPrice());
+        }
+        return new CategoryNodeDTO(category.id(), category.name(), category.parentId(), count, total, min, max,
+                List.copyOf(children));
+    }
+
+    private static Double minOf(Double a, Double b) {
+        return a == null ? b : b == null ? a : Math.min(a, b);
+    }
+
+    private static Double maxOf(Double a, Double b) {
+        return a == null ? b : b == null ? a : Math.max(a, b);
+    }
+
+    private static Double toDouble(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+}
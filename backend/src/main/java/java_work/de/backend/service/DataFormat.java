@@ -0,0 +1,42 @@
+package java_work.de.backend.service;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+//  Austauschformate für Import und Export
+public enum DataFormat {
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    DataFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    //  Explizites `?format=` gewinnt, sonst entscheidet der Content-Type bzw. Accept-Header (Standard: NDJSON)
+    public static DataFormat of(String format, String mediaType) {
+        if (format != null && !format.isBlank()) {
+            try {
+                return valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unbekanntes Format: " + format + " (ndjson oder csv)");
+            }
+        }
+        if (mediaType != null && mediaType.toLowerCase(Locale.ROOT).contains("text/csv")) {
+            return CSV;
+        }
+        return NDJSON;
+    }
+}
@@ -0,0 +1,154 @@
+package java_work.de.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+@Component
+public class FileSystemImageStore implements ImageStore {
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemImageStore.class);
+
+    private final Path baseDir;
+
+    public FileSystemImageStore(@Value("${images.store.path:./data/images}") String basePath) {
+        this.baseDir = Path.of(basePath).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(baseDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Bildverzeichnis kann nicht angelegt werden: " + baseDir, e);
+        }
+        logger.info(" Bild-Store liegt unter {}", baseDir);
+    }
+
+    @Override
+    public String store(byte[] data) {
+        String hash = sha256(data);
+        Path target = pathOf(hash);
+        if (Files.exists(target)) {
+            return hash; //  Schon vorhanden – gleicher Inhalt, gleicher Hash
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            //  Erst in eine temporäre Datei schreiben und dann atomar verschieben,
+            //  damit Leser nie eine halb geschriebene Datei sehen
+            Path tmp = Files.createTempFile(target.getParent(), hash, ".tmp");
+            Files.write(tmp, data);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                Files.deleteIfExists(tmp); // Paralleler Upload desselben Bildes
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Bild konnte nicht gespeichert werden: " + hash, e);
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return ImageService.isHash(hash) && Files.exists(pathOf(hash));
+    }
+
+    @Override
+    public long size(String hash) {
+        if (!exists(hash)) {
+            return -1;
+        }
+        try {
+            return Files.size(pathOf(hash));
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public InputStream open(String hash) throws IOException {
+        if (!exists(hash)) {
+            throw new NoSuchElementException("Bild " + hash + " nicht gefunden!");
+        }
+        return Files.newInputStream(pathOf(hash));
+    }
+
+    @Override
+    public void transferTo(String hash, long position, long count, WritableByteChannel target) throws IOException {
+        if (!exists(hash)) {
+            throw new NoSuchElementException("Bild " + hash + " nicht gefunden!");
+        }
+        try (FileChannel channel = FileChannel.open(pathOf(hash), StandardOpenOption.READ)) {
+            //  transferTo kann weniger als angefordert übertragen, daher in einer Schleife
+            long end = position + count;
+            long current = position;
+            while (current < end) {
+                long transferred = channel.transferTo(current, end - current, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                current += transferred;
+            }
+        }
+    }
+
+    @Override
+    public void linkRendition(String sourceHash, String variant, String renditionHash) {
+        Path link = renditionPathOf(sourceHash, variant);
+        try {
+            Files.createDirectories(link.getParent());
+            Path tmp = Files.createTempFile(link.getParent(), sourceHash, ".tmp");
+            Files.writeString(tmp, renditionHash, StandardCharsets.US_ASCII);
+            Files.move(tmp, link, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Variante konnte nicht verknüpft werden: " + sourceHash + "/" + variant, e);
+        }
+    }
+
+    @Override
+    public Optional<String> findRendition(String sourceHash, String variant) {
+        if (!ImageService.isHash(sourceHash)) {
+            return Optional.empty();
+        }
+        Path link = renditionPathOf(sourceHash, variant);
+        try {
+            return Files.exists(link)
+                    ? Optional.of(Files.readString(link, StandardCharsets.US_ASCII).trim())
+                    : Optional.empty();
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    //  Varianten liegen getrennt: renditions/<variante>/ab/<hash> enthält den Hash der Variante
+    private Path renditionPathOf(String sourceHash, String variant) {
+        return baseDir.resolve("renditions").resolve(variant).resolve(sourceHash.substring(0, 2)).resolve(sourceHash);
+    }
+
+    //  Zwei Verzeichnisebenen (ab/cd/hash), damit kein Ordner zu groß wird
+    private Path pathOf(String hash) {
+        return baseDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 nicht verfügbar", e);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package java_work.de.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java_work.de.backend.model.Cart;
+import java_work.de.backend.model.CartItem;
+import java_work.de.backend.repo.CartRepository;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/*
+ Aktive Warenkörbe im Speicher (`cart.mode=memory`), MongoDB bekommt sie per Write-Behind.
+ - Pro Nutzer ein Eintrag; Änderungen eines Nutzers laufen unter dessen eigenem Monitor,
+   es gibt keine globale Sperre auf dem Schreibpfad.
+ - Ein Hintergrund-Thread schreibt alle `flush-interval` jeden geänderten Warenkorb als ein Upsert
+   (gesammelt in einem bulkWrite). Zehn Klicks auf "+" innerhalb des Intervalls ergeben einen Schreibvorgang.
+ - OrderService ruft vor dem Lesen des Warenkorbs `flush(userEmail)` auf, damit die Bestellung genau das
+   enthält, was der Nutzer gesehen hat.
+ - Geschriebene Warenkörbe, die länger als `idle-timeout` unbenutzt sind, fliegen aus dem Speicher; wird
+   `max-carts` erreicht, werden die am längsten unbenutzten vorzeitig geschrieben und verdrängt.
+ - Beim Herunterfahren wird alles Offene geschrieben, bevor die Verbindung zu MongoDB geschlossen wird.
+ Voraussetzung: Requests eines Nutzers landen immer auf demselben Knoten (Sticky Sessions oder ein Knoten),
+ sonst sieht ein anderer Knoten einen veralteten Warenkorb.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.mode", havingValue = "memory")
+public class HotCartStore implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(HotCartStore.class);
+    private static final int SHUTDOWN_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+    private final CartRepository cartRepository;
+    private final MeterRegistry meterRegistry;
+    private final int maxCarts;
+    private final Duration flushInterval;
+    private final Duration idleTimeout;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    //  Schreibvorgänge nacheinander, damit ein älterer Stand nie einen neueren überschreibt
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    //  Alle Felder außer lastAccess nur unter dem Monitor des Eintrags
+    private static final class Entry {
+        final String userEmail;
+        ObjectId id;
+        List<CartItem> items; //  null = noch nicht aus MongoDB geladen
+        long version;
+        long writtenVersion;
+        boolean evicted;
+        volatile long lastAccess = System.nanoTime();
+
+        Entry(String userEmail) {
+            this.userEmail = userEmail;
+        }
+
+        boolean dirty() {
+            return version != writtenVersion;
+        }
+    }
+
+    private record Snapshot(Entry entry, ObjectId id, List<CartItem> items, long version) {
+    }
+
+    public HotCartStore(MongoTemplate mongoTemplate, CartRepository cartRepository, MeterRegistry meterRegistry,
+                        @Value("${cart.memory.max-carts:10000}") int maxCarts,
+                        @Value("${cart.memory.flush-interval:500ms}") Duration flushInterval,
+                        @Value("${cart.memory.idle-timeout:10m}") Duration idleTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.cartRepository = cartRepository;
+        this.meterRegistry = meterRegistry;
+        this.maxCarts = Math.max(1, maxCarts);
+        this.flushInterval = flushInterval;
+        this.idleTimeout = idleTimeout;
+        meterRegistry.gauge("cart.memory.carts", entries, ConcurrentHashMap::size);
+    }
+
+    //  Vor dem Webserver starten und erst nach ihm stoppen (wie der InventoryLedger)
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = new Thread(this::flushLoop, "hot-cart-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info(" Warenkörbe im Speicher aktiv (max. {}, Flush alle {}, Leerlauf {})", maxCarts, flushInterval, idleTimeout);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(flushInterval.toMillis() * 10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (int attempt = 1; attempt <= SHUTDOWN_ATTEMPTS; attempt++) {
+            try {
+                flushAll();
+                return;
+            } catch (RuntimeException e) {
+                logger.warn(" Warenkörbe beim Herunterfahren nicht geschrieben (Versuch {}/{})", attempt, SHUTDOWN_ATTEMPTS, e);
+            }
+        }
+        logger.error(" {} geänderte Warenkörbe gehen verloren", dirtyCarts());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Cart get(String userEmail) {
+        return withEntry(userEmail, HotCartStore::snapshotOf);
+    }
+
+    //  Die Funktion bekommt die aktuellen Positionen und liefert die neuen; läuft exklusiv für diesen Nutzer
+    public Cart update(String userEmail, UnaryOperator<List<CartItem>> change) {
+        return withEntry(userEmail, entry -> {
+            List<CartItem> changed = List.copyOf(change.apply(entry.items));
+            if (!changed.equals(entry.items)) {
+                entry.items = changed;
+                entry.version++;
+            }
+            return snapshotOf(entry);
+        });
+    }
+
+    public void clear(String userEmail) {
+        update(userEmail, items -> List.of());
+    }
+
+    //  Synchron schreiben, z. B. bevor eine Bestellung den Warenkorb aus MongoDB liest
+    public void flush(String userEmail) {
+        Entry entry = entries.get(userEmail);
+        if (entry == null) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            write(List.of(entry));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public void flushAll() {
+        flushLock.lock();
+        try {
+            write(entries.values());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    //  Für Tests und Monitoring
+    public int size() {
+        return entries.size();
+    }
+
+    public int dirtyCarts() {
+        int dirty = 0;
+        for (Entry entry : entries.values()) {
+            synchronized (entry) {
+                dirty += entry.dirty() ? 1 : 0;
+            }
+        }
+        return dirty;
+    }
+
+    //  Bereits geschriebene Warenkörbe verdrängen, die seit `idle-timeout` niemand angefasst hat
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - idleTimeout.toNanos();
+        entries.values().forEach(entry -> {
+            if (entry.lastAccess - cutoff < 0) {
+                evict(entry);
+            }
+        });
+    }
+
+    private <T> T withEntry(String userEmail, Function<Entry, T> action) {
+        if (!running) {
+            throw new IllegalStateException("Warenkorb-Speicher ist nicht aktiv");
+        }
+        while (true) {
+            Entry entry = entries.get(userEmail);
+            if (entry == null) {
+                if (entries.size() >= maxCarts) {
+                    evictOverflow();
+                }
+                entry = entries.computeIfAbsent(userEmail, Entry::new);
+            }
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue; //  Gerade verdrängt: neuen Eintrag anlegen und frisch laden
+                }
+                if (entry.items == null) {
+                    load(entry);
+                }
+                entry.lastAccess = System.nanoTime();
+                return action.apply(entry);
+            }
+        }
+    }
+
+    private void load(Entry entry) {
+        Cart cart = cartRepository.findByUserEmail(entry.userEmail).orElse(null);
+        entry.id = cart == null ? new ObjectId() : cart.id();
+        entry.items = cart == null || cart.items() == null ? List.of() : List.copyOf(cart.items());
+    }
+
+    //  Speicher voll: alles schreiben, dann die am längsten unbenutzten 10 % verdrängen
+    private void evictOverflow() {
+        flushAll();
+        List<Entry> oldest = new ArrayList<>(entries.values());
+        oldest.sort(Comparator.comparingLong(entry -> entry.lastAccess));
+        int target = Math.max(1, maxCarts / 10);
+        for (int i = 0; i < oldest.size() && entries.size() > maxCarts - target; i++) {
+            evict(oldest.get(i));
+        }
+    }
+
+    private void evict(Entry entry) {
+        synchronized (entry) {
+            if (!entry.dirty()) {
+                entry.evicted = true;
+                entries.remove(entry.userEmail, entry);
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                Thread.sleep(flushInterval.toMillis());
+            } catch (InterruptedException e) {
+                return; //  stop() schreibt den Rest
+            }
+            try {
+                flushAll();
+                evictIdle();
+            } catch (RuntimeException e) {
+                //  Einträge bleiben geändert und werden beim nächsten Durchlauf erneut geschrieben
+                logger.error(" Warenkörbe konnten nicht geschrieben werden – neuer Versuch in {}", flushInterval, e);
+            }
+        }
+    }
+
+    /*
+     Ein Upsert pro geändertem Warenkorb (leerer Warenkorb = Dokument löschen), alles in einem bulkWrite.
+     Nur unter flushLock aufrufen. Ein Eintrag gilt erst als geschrieben, wenn genau dieser Stand in MongoDB ist;
+     Änderungen während des Schreibens bleiben offen für den nächsten Durchlauf.
+     */
+    private void write(Collection<Entry> candidates) {
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (Entry entry : candidates) {
+            synchronized (entry) {
+                if (entry.items != null && entry.dirty()) {
+                    snapshots.add(new Snapshot(entry, entry.id, entry.items, entry.version));
+                }
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Cart.class);
+        for (Snapshot snapshot : snapshots) {
+            Query query = new Query(Criteria.where("userEmail").is(snapshot.entry().userEmail));
+            if (snapshot.items().isEmpty()) {
+                bulk.remove(query);
+            } else {
+                bulk.upsert(query, new Update().set("items", snapshot.items()).inc("version", 1)
+                        .setOnInsert("_id", snapshot.id()));
+            }
+        }
+        bulk.execute();
+        for (Snapshot snapshot : snapshots) {
+            synchronized (snapshot.entry()) {
+                snapshot.entry().writtenVersion = snapshot.version();
+            }
+        }
+        meterRegistry.counter("cart.memory.writes").increment(snapshots.size());
+    }
+
+    private static Cart snapshotOf(Entry entry) {
+        return new Cart(entry.id, entry.userEmail, entry.items, null);
+    }
+}
@@ -0,0 +1,96 @@
+package java_work.de.backend.service;
+
+import java_work.de.backend.model.Cart;
+import java_work.de.backend.model.Order;
+import java_work.de.backend.model.OrderItem;
+import java_work.de.backend.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ Einmalige Migration: Base64-Bilder aus `product` und `order` in den ImageStore
+ verschieben und in den Dokumenten nur noch den Hash speichern. Warenkorbpositionen sind reine
+ Produkt-Referenzen: dort werden kopierte Namen und Bilder einfach entfernt.
+ Aktivieren mit `images.migration.enabled=true`. Mehrfaches Ausführen ist unkritisch,
+ da nur Dokumente mit Data-URLs angefasst werden.
+ */
+@Component
+@ConditionalOnProperty(name = "images.migration.enabled", havingValue = "true")
+public class ImageMigration implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ImageMigration.class);
+    private static final String INLINE_IMAGE_REGEX = "^data:";
+
+    private final MongoTemplate mongoTemplate;
+    private final ImageService imageService;
+
+    public ImageMigration(MongoTemplate mongoTemplate, ImageService imageService) {
+        this.mongoTemplate = mongoTemplate;
+        this.imageService = imageService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        logger.info(" Starte Bild-Migration...");
+        int products = migrateProducts();
+        long carts = slimCarts();
+        int orders = migrateOrders();
+        logger.info(" Bild-Migration fertig: {} Produkte, {} Warenkörbe, {} Bestellungen umgeschrieben", products, carts, orders);
+    }
+
+    private int migrateProducts() {
+        Query query = Query.query(Criteria.where("images").regex(INLINE_IMAGE_REGEX));
+        int count = 0;
+        //  Cursor statt findAll(), damit nie der ganze Katalog im Speicher liegt
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            for (Product product : (Iterable<Product>) products::iterator) {
+                mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(product.id())),
+                        Update.update("images", imageService.ingest(product.images())),
+                        Product.class);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //  Ein updateMulti: name/images aus allen Positionen aller Altwarenkörbe entfernen
+    private long slimCarts() {
+        return mongoTemplate.updateMulti(
+                Query.query(Criteria.where("items.images").exists(true)),
+                new Update().unset("items.$[].images").unset("items.$[].name"),
+                Cart.class).getModifiedCount();
+    }
+
+    private int migrateOrders() {
+        Query query = Query.query(Criteria.where("items.images").regex(INLINE_IMAGE_REGEX));
+        int count = 0;
+        try (Stream<Order> orders = mongoTemplate.stream(query, Order.class)) {
+            for (Order order : (Iterable<Order>) orders::iterator) {
+                mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(order.id())),
+                        Update.update("items", ingestItems(order.items())),
+                        Order.class);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private List<OrderItem> ingestItems(List<OrderItem> items) {
+        return items.stream()
+                .map(item -> new OrderItem(item.productId(), item.name(), imageService.ingest(item.images()),
+                        item.quantity(), item.price()))
+                .toList();
+    }
+}
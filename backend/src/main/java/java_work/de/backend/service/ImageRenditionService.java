@@ -0,0 +1,218 @@
+package java_work.de.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ Erzeugt verkleinerte Varianten (Thumbnail, Listing, Detail) der Produktbilder im Hintergrund.
+ - Begrenzter Thread-Pool mit begrenzter Queue, damit Uploads nie den Server blockieren
+ - Idempotent pro Content-Hash: existiert die Variante schon, wird nichts neu berechnet
+ - Queue-Tiefe als Metrik `images.renditions.queue.depth`
+ */
+@Service
+public class ImageRenditionService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageRenditionService.class);
+
+    public enum Variant {
+        THUMBNAIL(160),
+        LISTING(480),
+        DETAIL(1200);
+
+        private final int maxEdge;
+
+        Variant(int maxEdge) {
+            this.maxEdge = maxEdge;
+        }
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        public static Variant fromKey(String key) {
+            try {
+                return Variant.valueOf(key.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unbekannte Bildvariante: " + key);
+            }
+        }
+    }
+
+    private final ImageStore imageStore;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet(); // Hashes, die gerade in der Queue sind
+    private final Counter generated;
+    private final Counter failed;
+    private final String outputFormat;
+
+    public ImageRenditionService(ImageStore imageStore, MeterRegistry meterRegistry,
+                                 @Value("${images.renditions.threads:2}") int threads,
+                                 @Value("${images.renditions.queue-capacity:500}") int queueCapacity) {
+        this.imageStore = imageStore;
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, "image-renditions-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("images.renditions.queue.depth", queue, Collection::size)
+                .description("Anzahl Bilder, die auf ihre Varianten warten")
+                .register(meterRegistry);
+        this.generated = meterRegistry.counter("images.renditions.generated");
+        this.failed = meterRegistry.counter("images.renditions.failed");
+
+        //  WebP nur, wenn ein ImageIO-Plugin dafür auf dem Classpath ist – sonst JPEG
+        this.outputFormat = ImageIO.getImageWritersByFormatName("webp").hasNext() ? "webp" : "jpg";
+        logger.info(" Bildvarianten werden als '{}' erzeugt ({} Threads, Queue {})", outputFormat, threads, queueCapacity);
+    }
+
+    //  Varianten für alle Bilder anstoßen (nicht blockierend)
+    public void requestRenditions(List<String> imageHashes) {
+        if (imageHashes == null) {
+            return;
+        }
+        imageHashes.forEach(this::requestRenditions);
+    }
+
+    public void requestRenditions(String sourceHash) {
+        if (!ImageService.isHash(sourceHash) || hasAllRenditions(sourceHash) || !inFlight.add(sourceHash)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(sourceHash);
+                } finally {
+                    inFlight.remove(sourceHash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //  Queue voll: nicht schlimm, beim nächsten Abruf wird es erneut angestoßen
+            inFlight.remove(sourceHash);
+            logger.warn(" Bildvarianten-Queue voll, {} wird später erzeugt", sourceHash);
+        }
+    }
+
+    /*
+     Liefert den Hash der gewünschten Variante. Fehlt sie noch, wird sie angestoßen
+     und ein leeres Optional zurückgegeben (Aufrufer liefert dann das Original).
+     */
+    public Optional<String> resolve(String sourceHash, Variant variant) {
+        Optional<String> rendition = imageStore.findRendition(sourceHash, variant.key());
+        if (rendition.isEmpty()) {
+            requestRenditions(sourceHash);
+        }
+        return rendition;
+    }
+
+    //  Bild-URLs für Listen: zeigen auf die kleine Variante, nicht auf das Original
+    public List<String> toUrls(List<String> refs, Variant variant) {
+        if (refs == null) {
+            return List.of();
+        }
+        return refs.stream()
+                .map(ref -> ImageService.isHash(ref)
+                        ? ImageService.IMAGE_URL_PREFIX + ref + "?variant=" + variant.key()
+                        : ref)
+                .toList();
+    }
+
+    private boolean hasAllRenditions(String sourceHash) {
+        for (Variant variant : Variant.values()) {
+            if (imageStore.findRendition(sourceHash, variant.key()).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void generate(String sourceHash) {
+        try {
+            BufferedImage source;
+            try (InputStream in = imageStore.open(sourceHash)) {
+                source = ImageIO.read(in);
+            }
+            if (source == null) {
+                //  Format unbekannt: Varianten zeigen auf das Original, damit nicht ständig neu versucht wird
+                logger.warn(" Bild {} konnte nicht gelesen werden, Varianten verweisen auf das Original", sourceHash);
+                for (Variant variant : Variant.values()) {
+                    imageStore.linkRendition(sourceHash, variant.key(), sourceHash);
+                }
+                failed.increment();
+                return;
+            }
+            for (Variant variant : Variant.values()) {
+                if (imageStore.findRendition(sourceHash, variant.key()).isPresent()) {
+                    continue;
+                }
+                imageStore.linkRendition(sourceHash, variant.key(), render(sourceHash, source, variant));
+                generated.increment();
+            }
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            logger.error(" Fehler beim Erzeugen der Varianten für {}: {}", sourceHash, e.getMessage());
+        }
+    }
+
+    private String render(String sourceHash, BufferedImage source, Variant variant) throws IOException {
+        int longestEdge = Math.max(source.getWidth(), source.getHeight());
+        if (longestEdge <= variant.maxEdge) {
+            return sourceHash; //  Nie hochskalieren – das Original ist schon klein genug
+        }
+        double scale = (double) variant.maxEdge / longestEdge;
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        //  JPEG kennt keinen Alphakanal, daher immer RGB
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(target, outputFormat, out)) {
+            throw new IOException("Kein ImageIO-Writer für " + outputFormat);
+        }
+        return imageStore.store(out.toByteArray());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,98 @@
+package java_work.de.backend.service;
+
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/*
+ Übersetzt zwischen dem, was Clients schicken (Data-URLs mit Base64 oder Bild-URLs),
+ und dem, was gespeichert wird (nur der Hash aus dem ImageStore).
+ */
+@Service
+public class ImageService {
+    public static final String IMAGE_URL_PREFIX = "/api/images/";
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final ImageStore imageStore;
+
+    public ImageService(ImageStore imageStore) {
+        this.imageStore = imageStore;
+    }
+
+    //  Data-URLs in den Store schreiben und durch ihren Hash ersetzen
+    public List<String> ingest(List<String> images) {
+        if (images == null) {
+            return List.of();
+        }
+        return images.stream().map(this::ingest).toList();
+    }
+
+    public String ingest(String image) {
+        if (image == null || image.isBlank()) {
+            return image;
+        }
+        if (isInline(image)) {
+            String base64 = image.substring(image.indexOf(',') + 1);
+            return imageStore.store(Base64.getMimeDecoder().decode(base64));
+        }
+        if (image.startsWith(IMAGE_URL_PREFIX)) {
+            String ref = image.substring(IMAGE_URL_PREFIX.length());
+            int query = ref.indexOf('?');
+            return query >= 0 ? ref.substring(0, query) : ref;
+        }
+        return image; //  Hash oder externe URL unverändert lassen
+    }
+
+    //  Gespeicherte Hashes für den Client wieder in URLs umwandeln
+    public List<String> toUrls(List<String> refs) {
+        if (refs == null) {
+            return List.of();
+        }
+        return refs.stream().map(this::toUrl).toList();
+    }
+
+    public String toUrl(String ref) {
+        return isHash(ref) ? IMAGE_URL_PREFIX + ref : ref;
+    }
+
+    public static boolean isHash(String ref) {
+        return ref != null && HASH_PATTERN.matcher(ref).matches();
+    }
+
+    public static boolean isInline(String image) {
+        return image != null && image.startsWith("data:") && image.contains(";base64,");
+    }
+
+    //  Content-Type anhand der ersten Bytes erkennen (PNG, JPEG, GIF, WebP)
+    public String contentType(String hash) {
+        byte[] head = new byte[12];
+        int read;
+        try (InputStream in = imageStore.open(hash)) {
+            read = in.readNBytes(head, 0, head.length);
+        } catch (IOException e) {
+            return "application/octet-stream";
+        }
+        return sniffContentType(head, read);
+    }
+
+    static String sniffContentType(byte[] head, int length) {
+        if (length >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return "image/png";
+        }
+        if (length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (length >= 6 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F') {
+            return "image/gif";
+        }
+        if (length >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "image/webp";
+        }
+        return "application/octet-stream";
+    }
+}
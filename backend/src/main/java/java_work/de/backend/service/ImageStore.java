@@ -0,0 +1,31 @@
+package java_work.de.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Optional;
+
+/*
+ Binärer Bildspeicher, adressiert über den SHA-256-Hash des Inhalts.
+ Gleiche Bilder werden dadurch nur einmal gespeichert.
+ */
+public interface ImageStore {
+
+    //  Speichert die Bytes und gibt den Hash (Hex) zurück – idempotent
+    String store(byte[] data);
+
+    boolean exists(String hash);
+
+    //  Größe in Bytes, -1 falls nicht vorhanden
+    long size(String hash);
+
+    InputStream open(String hash) throws IOException;
+
+    //  Bytebereich direkt in einen Channel schreiben, ohne das Bild in den Heap zu laden
+    void transferTo(String hash, long position, long count, WritableByteChannel target) throws IOException;
+
+    //  Verknüpft ein Originalbild mit dem Hash einer Variante (z. B. Thumbnail)
+    void linkRendition(String sourceHash, String variant, String renditionHash);
+
+    Optional<String> findRendition(String sourceHash, String variant);
+}
@@ -0,0 +1,603 @@
+package java_work.de.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java_work.de.backend.model.Product;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/*
+ In-Memory-Lagerbestand für Flash Sales (`inventory.mode=ledger`).
+ Im Normalbetrieb ist jede Reservierung ein bedingtes Update auf das Produktdokument (InventoryService) –
+ beim meistverkauften Artikel wird dieses eine Dokument zum Schreib-Hotspot. Der Ledger hält deshalb den
+ verfügbaren Bestand pro Produkt im Speicher, aufgeteilt auf mehrere Stripes (AtomicIntegerArray, CAS
+ ohne Sperren), und entscheidet über Reservierungen in Mikrosekunden.
+ - Jede Reservierung/Freigabe wird vor der Zusage an ein Append-only-Log angehängt (ein Segment pro
+   Flush-Intervall, `<log-dir>/reservations-<erste seq>.log`, Zeilen "seq produktId delta").
+ - Ein Hintergrund-Thread schreibt die aufsummierten Deltas pro Produkt gebündelt per bulkWrite nach
+   `product.stock` (Write-Behind) und löscht danach das Segment.
+ - Jedes Produkt merkt sich in `ledgerSeq` die zuletzt eingespielte seq. Dadurch ist das Einspielen
+   idempotent: nach einem Absturz werden beim Start genau die Log-Einträge nachgeholt, die noch fehlen.
+ Es darf immer nur einen Besitzer-Knoten geben; er hält dafür eine Lease in `inventory_ledger_lease`.
+ Knoten ohne Lease starten trotzdem (Standby): sie zeigen den Bestand aus MongoDB an, lehnen Reservierungen
+ mit InventoryUnavailableException ab (503) und versuchen regelmäßig, die Lease zu übernehmen.
+ Schlägt eine Erneuerung fehl (auch durch einen Fehler), nimmt der Knoten sofort keine Reservierungen mehr an.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.mode", havingValue = "ledger")
+public class InventoryLedger implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryLedger.class);
+    private static final String LEASE_COLLECTION = "inventory_ledger_lease";
+    private static final String LEASE_ID = "inventory";
+    private static final String SEGMENT_PREFIX = "reservations-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final int stripes;
+    private final Path logDir;
+    private final Duration flushInterval;
+    private final Duration lease;
+    private final boolean fsync;
+    private final String nodeId;
+
+    private final Map<String, StockCell> cells = new ConcurrentHashMap<>();
+
+    //  Log, Sequenz und noch nicht geschriebene Deltas werden gemeinsam unter logLock geändert
+    private final ReentrantLock logLock = new ReentrantLock();
+    private Map<String, Integer> pending = new HashMap<>();
+    private FileChannel segment;
+    private Path segmentPath;
+    private long seq;
+
+    //  Abgeschnittene, aber noch nicht (erfolgreich) geschriebene Batches in Log-Reihenfolge
+    private final Deque<Batch> unflushed = new ArrayDeque<>();
+
+    private volatile boolean owner;
+    private volatile boolean logOpen; //  Log nachgespielt, Segment offen: erst dann darf `owner` gesetzt werden
+    private volatile boolean running;
+    private volatile Instant leaseCheckedAt = Instant.EPOCH;
+    private Thread flusher;
+
+    public InventoryLedger(MongoTemplate mongoTemplate, ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                           @Value("${inventory.ledger.stripes:8}") int stripes,
+                           @Value("${inventory.ledger.log-dir:./data/inventory}") String logDir,
+                           @Value("${inventory.ledger.flush-interval:200ms}") Duration flushInterval,
+                           @Value("${inventory.ledger.lease:30s}") Duration lease,
+                           @Value("${inventory.ledger.fsync:false}") boolean fsync,
+                           @Value("${inventory.ledger.node-id:}") String nodeId) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.stripes = Math.max(1, stripes);
+        this.logDir = Path.of(logDir);
+        this.flushInterval = flushInterval;
+        this.lease = lease;
+        this.fsync = fsync;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        meterRegistry.gauge("inventory.ledger.pending", this, ledger -> ledger.pendingProducts());
+    }
+
+    /*
+     Kleinere Phase als der Webserver (Spring Boot startet ihn in Phase DEFAULT_PHASE - 2048):
+     erst Lease holen und das Log nachspielen, danach nimmt der Webserver Requests an. Beim Herunterfahren
+     wird in umgekehrter Reihenfolge gestoppt – der Ledger schreibt erst, wenn keine Requests mehr laufen.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    @Override
+    public void start() {
+        if (renewLease()) {
+            takeOver();
+        } else {
+            logger.warn(" Inventar-Ledger gehört einem anderen Knoten (Lease in {}) – '{}' startet als Standby", LEASE_COLLECTION, nodeId);
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "inventory-ledger-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    //  Lease erhalten: Log nachspielen, neues Segment öffnen, ab dann Reservierungen annehmen
+    private void takeOver() {
+        logLock.lock();
+        try {
+            Files.createDirectories(logDir);
+            replay();
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reservierungs-Log " + logDir + " nicht lesbar", e);
+        } finally {
+            logLock.unlock();
+        }
+        logOpen = true;
+        owner = true;
+        logger.info(" Inventar-Ledger aktiv auf Knoten '{}' ({} Stripes, Flush alle {})", nodeId, stripes, flushInterval);
+    }
+
+    //  Beim Herunterfahren alles Offene nach MongoDB schreiben, dann die Lease freigeben
+    @Override
+    public void stop() {
+        owner = false; //  Ab jetzt keine neuen Reservierungen, das Offene wird unten geschrieben
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(flushInterval.toMillis() * 10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        if (unflushed.isEmpty()) {
+            mongoTemplate.remove(new Query(Criteria.where("_id").is(LEASE_ID).and("owner").is(nodeId)), LEASE_COLLECTION);
+        } else {
+            logger.warn(" {} Batches nicht geschrieben – werden beim nächsten Start aus dem Log nachgeholt", unflushed.size());
+        }
+        closeSegment();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    //  false im Standby oder nach verlorener Lease: Reservierungen und Bestandsänderungen werden abgelehnt
+    public boolean isOwner() {
+        return owner;
+    }
+
+    //  Alle Positionen oder keine; die Zusage gilt erst, wenn die Reservierung im Log steht
+    public void reserve(Map<String, Integer> quantities) {
+        checkOwner();
+        Map<StockCell, Integer> taken = new HashMap<>();
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            StockCell cell = cell(line.getKey());
+            if (cell == null || !cell.tryTake(line.getValue())) {
+                taken.forEach(StockCell::put);
+                throw new OutOfStockException(line.getKey(), line.getValue(), cell == null ? 0 : cell.available());
+            }
+            taken.put(cell, line.getValue());
+        }
+        Map<String, Integer> deltas = new HashMap<>();
+        quantities.forEach((productId, quantity) -> deltas.put(productId, -quantity));
+        try {
+            append(deltas);
+        } catch (IOException e) {
+            taken.forEach(StockCell::put);
+            throw new IllegalStateException("Reservierung konnte nicht protokolliert werden", e);
+        }
+    }
+
+    public void release(Map<String, Integer> quantities) {
+        checkOwner();
+        Map<String, Integer> deltas = new HashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            StockCell cell = cell(productId);
+            if (cell != null) {
+                cell.put(quantity);
+                deltas.put(productId, quantity);
+            }
+        });
+        try {
+            append(deltas);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Freigabe konnte nicht protokolliert werden", e);
+        }
+    }
+
+    //  Admin ändert den Bestand um `delta`: laufende Reservierungen bleiben gültig, nie unter 0
+    public void adjustBy(String productId, int delta) {
+        checkOwner();
+        StockCell cell = cell(productId);
+        if (cell == null) {
+            return;
+        }
+        if (delta > 0) {
+            cell.put(delta);
+        } else if (delta < 0) {
+            delta = -cell.drain(-delta);
+        }
+        if (delta != 0) {
+            try {
+                append(Map.of(productId, delta));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Bestandsänderung konnte nicht protokolliert werden", e);
+            }
+        }
+    }
+
+    //  Aktueller Bestand, falls das Produkt schon im Ledger geladen ist (sonst gilt der Wert aus MongoDB)
+    public Integer available(String productId) {
+        StockCell cell = cells.get(productId);
+        return cell == null ? null : cell.available();
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.allProducts()) {
+            //  z. B. Import: neue Produkte werden beim ersten Zugriff geladen, bekannte behalten ihren Stand
+            return;
+        }
+        if (event.deleted()) {
+            cells.remove(event.productId());
+        }
+    }
+
+    /*
+     Offene Deltas als neuen Batch abschneiden (Segment wechseln) und alle Batches der Reihe nach
+     schreiben. Schlägt ein Batch fehl, bleibt er samt Segment liegen und wird beim nächsten Mal
+     mit derselben seq wiederholt – dank `ledgerSeq` ohne doppelte Buchung.
+     */
+    public synchronized void flush() {
+        Batch batch = cut();
+        if (batch != null) {
+            unflushed.addLast(batch);
+        }
+        while (!unflushed.isEmpty()) {
+            Batch next = unflushed.peekFirst();
+            try {
+                write(next.deltas(), next.seq());
+            } catch (RuntimeException e) {
+                logger.warn(" Write-Behind für seq {} fehlgeschlagen ({}), neuer Versuch beim nächsten Flush", next.seq(), e.getMessage());
+                return;
+            }
+            unflushed.removeFirst();
+            deleteQuietly(next.segment());
+            next.deltas().keySet().forEach(productId ->
+                    eventPublisher.publishEvent(new StockChangedEvent(productId, false)));
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            try {
+                Thread.sleep(flushInterval.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                flush();
+                if (Duration.between(leaseCheckedAt, Instant.now()).compareTo(lease.dividedBy(3)) > 0) {
+                    boolean wasOwner = owner;
+                    if (!renewLease()) {
+                        if (wasOwner) {
+                            logger.error(" Lease für den Inventar-Ledger verloren – Reservierungen werden abgelehnt");
+                        }
+                    } else if (!logOpen) {
+                        takeOver(); //  Standby übernimmt, z. B. nachdem der Besitzer heruntergefahren ist
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.error(" Fehler im Inventar-Flush", e);
+            }
+        }
+    }
+
+    private Batch cut() {
+        logLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return null;
+            }
+            Batch batch = new Batch(seq, pending, segmentPath);
+            pending = new HashMap<>();
+            closeSegment();
+            openSegment();
+            return batch;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Neues Log-Segment konnte nicht angelegt werden", e);
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    //  Eine Reservierung = ein write()-Aufruf, damit sie nicht zwischen zwei Segmente fällt
+    private void append(Map<String, Integer> deltas) throws IOException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        logLock.lock();
+        try {
+            long next = seq + 1;
+            StringBuilder record = new StringBuilder();
+            deltas.forEach((productId, delta) -> record.append(next).append(' ').append(productId).append(' ').append(delta).append('\n'));
+            ByteBuffer buffer = ByteBuffer.wrap(record.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            if (fsync) {
+                segment.force(false);
+            }
+            seq = next;
+            deltas.forEach((productId, delta) -> pending.merge(productId, delta, Integer::sum));
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    /*
+     Nach einem Absturz: alle übrig gebliebenen Segmente lesen und pro Produkt nur die Einträge
+     mit seq > ledgerSeq einspielen. Ein abgeschnittener letzter Eintrag (Absturz mitten im Schreiben)
+     wird übersprungen – diese Reservierung wurde nie zugesagt.
+     */
+    private void replay() throws IOException {
+        List<Path> segments = segments();
+        long maxSeq = 0;
+        Map<String, List<long[]>> entries = new HashMap<>();
+        for (Path path : segments) {
+            maxSeq = Math.max(maxSeq, firstSeq(path) - 1);
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.trim().split(" ");
+                    if (parts.length != 3 || !ObjectId.isValid(parts[1])) {
+                        logger.warn(" Unvollständiger Log-Eintrag in {} übersprungen: '{}'", path.getFileName(), line);
+                        continue;
+                    }
+                    try {
+                        long entrySeq = Long.parseLong(parts[0]);
+                        entries.computeIfAbsent(parts[1], id -> new ArrayList<>()).add(new long[]{entrySeq, Integer.parseInt(parts[2])});
+                        maxSeq = Math.max(maxSeq, entrySeq);
+                    } catch (NumberFormatException e) {
+                        logger.warn(" Unvollständiger Log-Eintrag in {} übersprungen: '{}'", path.getFileName(), line);
+                    }
+                }
+            }
+        }
+        seq = maxSeq;
+        if (!entries.isEmpty()) {
+            Map<String, Long> applied = ledgerSeqs(entries.keySet());
+            Map<String, Integer> missing = new HashMap<>();
+            entries.forEach((productId, list) -> {
+                long done = applied.getOrDefault(productId, 0L);
+                int delta = list.stream().filter(entry -> entry[0] > done).mapToInt(entry -> (int) entry[1]).sum();
+                if (list.stream().anyMatch(entry -> entry[0] > done)) {
+                    missing.put(productId, delta);
+                }
+            });
+            if (!missing.isEmpty()) {
+                write(missing, maxSeq);
+            }
+            logger.info(" Reservierungs-Log nachgespielt: {} Produkte bis seq {}", missing.size(), maxSeq);
+        }
+        for (Path path : segments) {
+            deleteQuietly(path);
+        }
+    }
+
+    private Map<String, Long> ledgerSeqs(Iterable<String> productIds) {
+        List<ObjectId> ids = new ArrayList<>();
+        productIds.forEach(id -> ids.add(new ObjectId(id)));
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().include("ledgerSeq");
+        Map<String, Long> result = new HashMap<>();
+        for (Document document : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Product.class))) {
+            Number ledgerSeq = document.get("ledgerSeq", Number.class);
+            result.put(document.getObjectId("_id").toHexString(), ledgerSeq == null ? 0L : ledgerSeq.longValue());
+        }
+        return result;
+    }
+
+    //  Idempotent: ein Produkt, das diese seq schon hat, wird nicht noch einmal gebucht
+    private void write(Map<String, Integer> deltas, long upTo) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        Instant now = Instant.now();
+        deltas.forEach((productId, delta) -> bulk.updateOne(
+                new Query(Criteria.where("_id").is(new ObjectId(productId))
+                        .orOperator(Criteria.where("ledgerSeq").lt(upTo), Criteria.where("ledgerSeq").exists(false))),
+                new Update().inc("stock", delta).set("ledgerSeq", upTo).set("updatedAt", now))); // version bleibt (If-Match)
+        bulk.execute();
+        meterRegistry.counter("inventory.ledger.flushed").increment(deltas.size());
+    }
+
+    //  Erster Zugriff lädt den Bestand aus MongoDB; null, wenn es das Produkt nicht gibt
+    private StockCell cell(String productId) {
+        StockCell cell = cells.get(productId);
+        if (cell != null || !ObjectId.isValid(productId)) {
+            return cell;
+        }
+        return cells.computeIfAbsent(productId, id -> {
+            Product product = mongoTemplate.findById(new ObjectId(id), Product.class);
+            return product == null ? null : new StockCell(stripes, product.stock() == null ? 0 : product.stock());
+        });
+    }
+
+    private void checkOwner() {
+        if (!owner) {
+            throw new InventoryUnavailableException("Dieser Knoten besitzt den Inventar-Ledger nicht");
+        }
+    }
+
+    //  true, wenn die Lease (weiter) diesem Knoten gehört; `owner` erst, wenn auch das Log bereit ist
+    private boolean renewLease() {
+        Instant now = Instant.now();
+        leaseCheckedAt = now;
+        Query query = new Query(Criteria.where("_id").is(LEASE_ID)
+                .orOperator(Criteria.where("owner").is(nodeId), Criteria.where("expiresAt").lt(Date.from(now))));
+        Update update = new Update().set("owner", nodeId).set("expiresAt", Date.from(now.plus(lease)));
+        try {
+            mongoTemplate.upsert(query, update, LEASE_COLLECTION);
+        } catch (DuplicateKeyException e) {
+            owner = false; //  Lease gehört (noch) einem anderen Knoten
+            return false;
+        } catch (RuntimeException e) {
+            owner = false; //  Unklar, ob die Lease noch gilt: lieber ablehnen als doppelt verkaufen
+            logger.warn(" Lease für den Inventar-Ledger konnte nicht erneuert werden: {}", e.getMessage());
+            return false;
+        }
+        owner = logOpen;
+        return true;
+    }
+
+    private int pendingProducts() {
+        logLock.lock();
+        try {
+            return pending.size();
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(logDir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentPath = logDir.resolve(SEGMENT_PREFIX + String.format("%020d", seq + 1) + SEGMENT_SUFFIX);
+        segment = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void closeSegment() {
+        if (segment != null) {
+            try {
+                segment.force(false);
+                segment.close();
+            } catch (IOException e) {
+                logger.warn(" Log-Segment {} konnte nicht geschlossen werden", segmentPath, e);
+            }
+            segment = null;
+        }
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn(" Log-Segment {} konnte nicht gelöscht werden", path, e);
+        }
+    }
+
+    private static String defaultNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+
+    private record Batch(long seq, Map<String, Integer> deltas, Path segment) {
+    }
+
+    /*
+     Bestand eines Produkts, verteilt auf mehrere Zähler. Jeder Thread beginnt bei einer zufälligen
+     Stripe, dadurch konkurrieren gleichzeitige Checkouts selten um dieselbe Cache-Line.
+     Reicht keine einzelne Stripe, wird über alle Stripes eingesammelt; klappt auch das nicht,
+     geht alles Eingesammelte zurück.
+     */
+    static final class StockCell {
+        private final AtomicIntegerArray stripes;
+
+        StockCell(int count, int stock) {
+            stripes = new AtomicIntegerArray(count);
+            int total = Math.max(stock, 0);
+            for (int i = 0; i < count; i++) {
+                stripes.set(i, total / count + (i < total % count ? 1 : 0));
+            }
+        }
+
+        int available() {
+            int sum = 0;
+            for (int i = 0; i < stripes.length(); i++) {
+                sum += stripes.get(i);
+            }
+            return sum;
+        }
+
+        boolean tryTake(int quantity) {
+            int n = stripes.length();
+            int start = ThreadLocalRandom.current().nextInt(n);
+            for (int i = 0; i < n; i++) {
+                int index = (start + i) % n;
+                int current;
+                while ((current = stripes.get(index)) >= quantity) {
+                    if (stripes.compareAndSet(index, current, current - quantity)) {
+                        return true;
+                    }
+                }
+            }
+            int taken = drain(quantity);
+            if (taken == quantity) {
+                return true;
+            }
+            put(taken);
+            return false;
+        }
+
+        //  Bis zu `quantity` Stück aus beliebigen Stripes nehmen; liefert die tatsächlich genommene Menge
+        int drain(int quantity) {
+            int n = stripes.length();
+            int start = ThreadLocalRandom.current().nextInt(n);
+            int missing = quantity;
+            for (int i = 0; i < n && missing > 0; i++) {
+                int index = (start + i) % n;
+                int current;
+                while (missing > 0 && (current = stripes.get(index)) > 0) {
+                    int take = Math.min(current, missing);
+                    if (stripes.compareAndSet(index, current, current - take)) {
+                        missing -= take;
+                    }
+                }
+            }
+            return quantity - missing;
+        }
+
+        void put(int quantity) {
+            if (quantity > 0) {
+                stripes.addAndGet(ThreadLocalRandom.current().nextInt(stripes.length()), quantity);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package java_work.de.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java_work.de.backend.model.OrderItem;
+import java_work.de.backend.model.Product;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/*
+ Lagerbestand beim Checkout reservieren, ohne Überverkauf.
+ Jede Position ist ein einziges bedingtes Update auf das Produktdokument:
+   filter {_id, stock >= menge}  update {$inc: {stock: -menge}}
+ MongoDB führt das pro Dokument atomar aus – kein Lesen-Ändern-Schreiben, keine Sperren,
+ keine Retry-Schleife. Bei hunderten gleichzeitigen Checkouts desselben Artikels gewinnen genau
+ so viele, wie Bestand da ist; alle anderen bekommen sofort eine Absage.
+ Schlägt eine Position fehl, werden die schon reservierten Positionen wieder gutgeschrieben
+ (Kompensation statt Multi-Dokument-Transaktion, funktioniert auch ohne Replica Set).
+ Mit `inventory.mode=ledger` entscheidet stattdessen der InventoryLedger im Speicher (Flash Sales).
+ */
+@Service
+public class InventoryService {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final InventoryLedger ledger;
+
+    public InventoryService(MongoTemplate mongoTemplate, ApplicationEventPublisher eventPublisher,
+                            MeterRegistry meterRegistry, Optional<InventoryLedger> ledger) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.ledger = ledger.orElse(null);
+    }
+
+    //  Alle Positionen oder keine: wirft OutOfStockException, nachdem Teilreservierungen zurückgebucht sind
+    public void reserve(List<OrderItem> items) {
+        Map<String, Integer> quantities = quantitiesByProduct(items);
+        if (ledger != null) {
+            try {
+                ledger.reserve(quantities);
+            } catch (OutOfStockException | InventoryUnavailableException e) {
+                meterRegistry.counter("inventory.reservations", "outcome", "rejected").increment();
+                throw e;
+            }
+            meterRegistry.counter("inventory.reservations", "outcome", "reserved").increment();
+            return;
+        }
+        List<Product> reserved = new ArrayList<>();
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            Product product = decrement(line.getKey(), line.getValue());
+            if (product == null) {
+                meterRegistry.counter("inventory.reservations", "outcome", "rejected").increment();
+                release(reserved, quantities);
+                throw new OutOfStockException(line.getKey(), line.getValue(), availableStock(line.getKey()));
+            }
+            reserved.add(product);
+        }
+        meterRegistry.counter("inventory.reservations", "outcome", "reserved").increment();
+        reserved.forEach(product -> eventPublisher.publishEvent(new StockChangedEvent(product.id().toHexString(), false)));
+    }
+
+    //  Reservierten Bestand zurückgeben (z. B. Bestellung storniert oder nicht gespeichert)
+    public void release(List<OrderItem> items) {
+        if (ledger != null) {
+            ledger.release(quantitiesByProduct(items));
+            return;
+        }
+        quantitiesByProduct(items).forEach((productId, quantity) -> {
+            Product product = increment(productId, quantity);
+            if (product != null) {
+                eventPublisher.publishEvent(new StockChangedEvent(productId, false));
+            }
+        });
+    }
+
+    private void release(List<Product> reserved, Map<String, Integer> quantities) {
+        for (Product product : reserved) {
+            String productId = product.id().toHexString();
+            try {
+                Product restored = increment(productId, quantities.get(productId));
+                if (restored != null) {
+                    eventPublisher.publishEvent(new StockChangedEvent(productId, false));
+                }
+            } catch (RuntimeException e) {
+                //  Ohne Rückbuchung fehlt Bestand – laut loggen, damit es korrigiert werden kann
+                logger.error(" Rückbuchung fehlgeschlagen: Produkt {} +{}", productId, quantities.get(productId), e);
+            }
+        }
+    }
+
+    //  Bedingtes atomares Abbuchen; null, wenn nicht genug da ist (oder das Produkt fehlt)
+    private Product decrement(String productId, int quantity) {
+        if (!ObjectId.isValid(productId)) {
+            return null;
+        }
+        Query query = new Query(Criteria.where("_id").is(new ObjectId(productId)).and("stock").gte(quantity));
+        return mongoTemplate.findAndModify(query, stockUpdate(-quantity), FindAndModifyOptions.options().returnNew(true),
+                Product.class);
+    }
+
+    private Product increment(String productId, int quantity) {
+        if (!ObjectId.isValid(productId)) {
+            return null;
+        }
+        Query query = new Query(Criteria.where("_id").is(new ObjectId(productId)));
+        return mongoTemplate.findAndModify(query, stockUpdate(quantity), FindAndModifyOptions.options().returnNew(true),
+                Product.class);
+    }
+
+    //  Ohne `version`: die schützt nur Admin-Änderungen (If-Match), der Bestand steht selbst im ETag
+    private static Update stockUpdate(int delta) {
+        return new Update().inc("stock", delta).set("updatedAt", Instant.now());
+    }
+
+    private int availableStock(String productId) {
+        if (!ObjectId.isValid(productId)) {
+            return 0;
+        }
+        Product product = mongoTemplate.findById(new ObjectId(productId), Product.class);
+        return product == null || product.stock() == null ? 0 : product.stock();
+    }
+
+    //  Gleiche Produkte zusammenfassen; feste Reihenfolge nach ID
+    private static Map<String, Integer> quantitiesByProduct(List<OrderItem> items) {
+        Map<String, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : items) {
+            if (item.quantity() <= 0) {
+                throw new IllegalArgumentException("Ungültige Menge für Produkt " + item.productId() + ": " + item.quantity());
+            }
+            quantities.merge(item.productId(), item.quantity(), Integer::sum);
+        }
+        return quantities;
+    }
+}
@@ -0,0 +1,9 @@
+package java_work.de.backend.service;
+
+//  Reservierung abgelehnt: dieser Knoten hält die Lease des Inventar-Ledgers nicht (Standby oder Lease verloren)
+public class InventoryUnavailableException extends IllegalStateException {
+
+    public InventoryUnavailableException(String message) {
+        super(message);
+    }
+}
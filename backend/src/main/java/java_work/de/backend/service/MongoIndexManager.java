@@ -0,0 +1,139 @@
+package java_work.de.backend.service;
+
+import java_work.de.backend.model.Cart;
+import java_work.de.backend.model.Category;
+import java_work.de.backend.model.Order;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.model.User;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ Legt beim Start alle Indizes an, die an den Models deklariert sind (@Indexed / @CompoundIndex),
+ und prüft danach per `explain`, dass die heißen Abfragen der Repositories einen Index nutzen.
+ Das Anlegen ist idempotent: vorhandene Indizes mit gleicher Definition bleiben unverändert.
+ Mit `mongo.indexes.strict=true` bricht der Start ab, wenn ein Index nicht angelegt werden kann
+ (z. B. doppelte E-Mails bei einem Unique-Index) oder eine Abfrage als COLLSCAN läuft.
+ Unabhängig davon bricht er immer ab, wenn ein Unique-Index fehlt, auf dem die Korrektheit beruht
+ (Cart.userEmail: der Upsert im CartService legt sonst bei parallelen Anfragen zwei Warenkörbe an).
+ */
+@Component
+public class MongoIndexManager implements ApplicationRunner, Ordered {
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexManager.class);
+
+    //  Alle Models, deren Indizes per Annotation deklariert sind
+    private static final List<Class<?>> ENTITIES = List.of(Product.class, Category.class, Cart.class, Order.class, User.class);
+
+    private record RequiredUnique(Class<?> entity, String field) {
+    }
+
+    private static final List<RequiredUnique> REQUIRED_UNIQUE = List.of(new RequiredUnique(Cart.class, "userEmail"));
+
+    private record HotQuery(Class<?> entity, Document filter, Document sort) {
+    }
+
+    //  Die Abfragen der Repositories/Services, die nie die ganze Collection lesen dürfen (Werte sind egal)
+    private static final List<HotQuery> HOT_QUERIES = List.of(
+            new HotQuery(User.class, new Document("email", ""), null),
+            new HotQuery(Cart.class, new Document("userEmail", ""), null),
+            new HotQuery(Order.class, new Document("userEmail", ""), null),
+            new HotQuery(Order.class, new Document("orderStatus", "PROCESSING"), null),
+            new HotQuery(Order.class, new Document("paymentStatus", "PAID"), null),
+            new HotQuery(Product.class, new Document("categoryId", ""), new Document("_id", 1)),
+            new HotQuery(Product.class, new Document("price", new Document("$gte", 0).append("$lte", 1)), null),
+            new HotQuery(Category.class, new Document("name", ""), null));
+
+    private final MongoTemplate mongoTemplate;
+    private final QueryPlanMonitor queryPlanMonitor;
+    private final boolean strict;
+
+    public MongoIndexManager(MongoTemplate mongoTemplate, QueryPlanMonitor queryPlanMonitor,
+                             @Value("${mongo.indexes.strict:false}") boolean strict) {
+        this.mongoTemplate = mongoTemplate;
+        this.queryPlanMonitor = queryPlanMonitor;
+        this.strict = strict;
+    }
+
+    //  Vor allen anderen Runnern (z. B. der Bild-Migration)
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> problems = new ArrayList<>();
+        int indexes = ensureIndexes(problems);
+        verifyRequiredUnique();
+        verifyHotQueries(problems);
+
+        logger.info(" Index-Prüfung: {} Indizes deklariert, {} Abfragen geprüft, {} Probleme",
+                indexes, HOT_QUERIES.size(), problems.size());
+        if (problems.isEmpty()) {
+            return;
+        }
+        if (strict) {
+            throw new IllegalStateException("Index-Prüfung fehlgeschlagen: " + String.join("; ", problems));
+        }
+        problems.forEach(problem -> logger.warn(" {}", problem));
+    }
+
+    private int ensureIndexes(List<String> problems) {
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        int count = 0;
+        for (Class<?> entity : ENTITIES) {
+            IndexOperations indexOps = mongoTemplate.indexOps(entity);
+            for (IndexDefinition index : resolver.resolveIndexFor(entity)) {
+                count++;
+                try {
+                    indexOps.ensureIndex(index);
+                } catch (DataAccessException e) {
+                    problems.add("Index " + index.getIndexKeys().toJson() + " auf '"
+                            + mongoTemplate.getCollectionName(entity) + "' nicht angelegt: " + e.getMessage());
+                }
+            }
+        }
+        return count;
+    }
+
+    private void verifyRequiredUnique() {
+        for (RequiredUnique required : REQUIRED_UNIQUE) {
+            boolean present = mongoTemplate.indexOps(required.entity()).getIndexInfo().stream()
+                    .anyMatch(info -> info.isUnique() && info.getIndexFields().size() == 1
+                            && info.getIndexFields().get(0).getKey().equals(required.field()));
+            if (!present) {
+                throw new IllegalStateException("Unique-Index auf '" + mongoTemplate.getCollectionName(required.entity())
+                        + "." + required.field() + "' fehlt – Start abgebrochen (z. B. doppelte Einträge bereinigen)");
+            }
+        }
+    }
+
+    private void verifyHotQueries(List<String> problems) {
+        for (HotQuery query : HOT_QUERIES) {
+            QueryPlanMonitor.QueryShape shape = new QueryPlanMonitor.QueryShape(
+                    mongoTemplate.getCollectionName(query.entity()), query.filter(), query.sort());
+            try {
+                if (queryPlanMonitor.usesCollectionScan(null, shape)) {
+                    problems.add("COLLSCAN: " + shape.describe());
+                }
+            } catch (DataAccessException | com.mongodb.MongoException e) {
+                problems.add("explain fehlgeschlagen für " + shape.describe() + ": " + e.getMessage());
+            }
+        }
+    }
+}
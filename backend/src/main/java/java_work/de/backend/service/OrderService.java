@@ -2,31 +2,53 @@ package java_work.de.backend.service;
 import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.RefundCreateParams;
 import java_work.de.backend.dto.OrderDTO;
 import java_work.de.backend.model.Address;
 import java_work.de.backend.model.Cart;
 import java_work.de.backend.model.Order;
+import java_work.de.backend.model.OrderItem;
 import java_work.de.backend.repo.CartRepository;
 import java_work.de.backend.repo.OrderRepository;
 import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 @Service
 public class OrderService {
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
     private final OrderRepository orderRepository;
     private final CartRepository cartRepository;
-    public OrderService(OrderRepository orderRepository, CartRepository cartRepository, @Value("${stripe.secret.key}") String stripeSecretKey ) {
+    private final ImageService imageService;
+    private final InventoryService inventoryService;
+    private final HotCartStore hotCarts;
+    private final CartService cartService;
+    private final VersionConflicts versionConflicts;
+
+    //  Wie oft eine Änderung auf dem neuen Stand wiederholt wird, bevor es 409 gibt
+    private static final int MAX_UPDATE_ATTEMPTS = 3;
+
+    public OrderService(OrderRepository orderRepository, CartRepository cartRepository, CartService cartService,
+                        ImageService imageService, InventoryService inventoryService, Optional<HotCartStore> hotCarts,
+                        VersionConflicts versionConflicts,
+                        @Value("${stripe.secret.key}") String stripeSecretKey ) {
         this.orderRepository = orderRepository;
         this.cartRepository = cartRepository;
+        this.cartService = cartService;
+        this.imageService = imageService;
+        this.inventoryService = inventoryService;
+        this.hotCarts = hotCarts.orElse(null);
+        this.versionConflicts = versionConflicts;
        Stripe.apiKey = stripeSecretKey;
     }
 
@@ -36,6 +58,9 @@ public class OrderService {
        Zahlung muss erfolgreich sein, bevor Bestellung gespeichert wird
     */
     public OrderDTO placeOrder(String userEmail, Address shippingAddress, String paymentMethod, String paymentIntentId) {
+        if (hotCarts != null) {
+            hotCarts.flush(userEmail); //  Warenkorb im Speicher zuerst schreiben, sonst fehlen die letzten Änderungen
+        }
         Cart cart = cartRepository.findByUserEmail(userEmail)
                 .orElseThrow(() -> new NoSuchElementException("Warenkorb ist leer!"));
 
@@ -43,7 +68,9 @@ public class OrderService {
             throw new IllegalStateException("Warenkorb ist leer, Bestellung nicht möglich.");
         }
 
-        double totalPrice = cart.items().stream()
+        //  Warenkorb speichert nur Referenzen: hier entsteht der unveränderliche Schnappschuss der Bestellung
+        List<OrderItem> items = cartService.toOrderItems(cart);
+        double totalPrice = items.stream()
                 .mapToDouble(item -> item.price() * item.quantity())
                 .sum();
 
@@ -59,20 +86,29 @@ public class OrderService {
         Order newOrder = new Order(
                 new ObjectId(),
                 userEmail,
-                cart.items(),
+                items,
                 totalPrice,
                 shippingAddress,
                 Order.PaymentStatus.PENDING, //  Standard: Zahlung ausstehend
                 Order.OrderStatus.PROCESSING, //  Standard: Bestellung wird bearbeitet
                 method,
                 paymentIntentId, // Speichert Stripe Payment Intent ID
-                false
+                false,
+                null //  Neu: Spring Data setzt die Version beim Einfügen
 
         );
 
 
-        Order savedOrder = orderRepository.save(newOrder);
-        cartRepository.deleteById(cart.id().toString()); //  Warenkorb leeren nach Bestellung
+        //  Bestand für alle Positionen reservieren (alles oder nichts), sonst OutOfStockException
+        inventoryService.reserve(items);
+        Order savedOrder;
+        try {
+            savedOrder = orderRepository.save(newOrder);
+        } catch (RuntimeException e) {
+            inventoryService.release(items); //  Bestellung nicht gespeichert -> Reservierung zurückgeben
+            throw e;
+        }
+        cartService.removeOrdered(cart); //  Warenkorb leeren nach Bestellung (nur den bestellten Stand)
 
         return mapToDTO(savedOrder);
     }
@@ -91,25 +127,20 @@ public class OrderService {
      Nur Admin kann den Status ändern.
      */
     public OrderDTO updateOrderStatus(String orderId, String status) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new NoSuchElementException("Bestellung nicht gefunden"));
-
-
-        Order updatedOrder = new Order(
+        Order.OrderStatus orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
+        return mapToDTO(updateOrder(orderId, order -> new Order(
                 order.id(),
                 order.userEmail(),
                 order.items(),
                 order.totalPrice(),
                 order.shippingAddress(),
                 order.paymentStatus(),
-                Order.OrderStatus.valueOf(status.toUpperCase()),
+                orderStatus,
                 order.paymentMethod(),
                 order.stripePaymentIntentId(),
-                false
-
-        );
-
-        return mapToDTO(orderRepository.save(updatedOrder));
+                false,
+                order.version()
+        )));
     }
 
 
@@ -118,40 +149,44 @@ public class OrderService {
      Der Benutzer kann eine Bestellung nur stornieren, wenn sie noch nicht versandt wurde.
      */
     public boolean cancelOrder(String orderId, String userEmail) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new NoSuchElementException(" Bestellung mit ID " + orderId + " nicht gefunden!"));
-        logger.info(" Token-Benutzer: {}", userEmail);
-        logger.info(" Bestellung gehört zu: {}", order.userEmail());
-        if (!order.userEmail().equals(userEmail)) {
-            logger.warn(" Zugriff verweigert: Benutzer '{}' darf Bestellung '{}' nicht stornieren!", userEmail, order.id());
-            return false; //  Stornierung verweigern statt Exception zu werfen
-        }
-        if (order.orderStatus() == Order.OrderStatus.SHIPPED) {
-            logger.warn(" Bestellung '{}' kann nicht storniert werden, da sie bereits versandt wurde!", order.id());
-            return false; //  Bestellung kann nicht storniert werden
-        }
-        if (order.orderStatus() == Order.OrderStatus.CANCELLED) {
-            throw new IllegalStateException("Bestellung wurde bereits storniert!");
+        Order cancelled = updateOrder(orderId, order -> {
+            logger.info(" Token-Benutzer: {}", userEmail);
+            logger.info(" Bestellung gehört zu: {}", order.userEmail());
+            if (!order.userEmail().equals(userEmail)) {
+                logger.warn(" Zugriff verweigert: Benutzer '{}' darf Bestellung '{}' nicht stornieren!", userEmail, order.id());
+                return null; //  Stornierung verweigern statt Exception zu werfen
+            }
+            if (order.orderStatus() == Order.OrderStatus.CANCELLED) {
+                throw new IllegalStateException("Bestellung wurde bereits storniert!");
+            }
+            //  Nur noch nicht versandte Bestellungen: danach ist die Ware unterwegs oder beim Kunden
+            //  (Rückgaben laufen über requestReturn/approveReturn) und darf nicht erneut in den Bestand
+            if (order.orderStatus() != Order.OrderStatus.PROCESSING) {
+                logger.warn(" Bestellung '{}' kann im Status {} nicht storniert werden!", order.id(), order.orderStatus());
+                return null; //  Bestellung kann nicht storniert werden
+            }
+            // Bestellung auf "CANCELLED" setzen
+            logger.info(" Bestellung '{}' wird storniert...", order.id());
+            return new Order(
+                    order.id(),
+                    order.userEmail(),
+                    order.items(),
+                    order.totalPrice(),
+                    order.shippingAddress(),
+                    order.paymentStatus(),
+                    Order.OrderStatus.CANCELLED, // Setze den Status auf "CANCELLED"
+                    order.paymentMethod(),
+                    order.stripePaymentIntentId(),
+                    false,
+                    order.version()
+            );
+        });
+        if (cancelled == null) {
+            return false;
         }
-        // Bestellung auf "CANCELLED" setzen
-        logger.info(" Bestellung '{}' wird storniert...", order.id());
-        Order updatedOrder = new Order(
-                order.id(),
-                order.userEmail(),
-                order.items(),
-                order.totalPrice(),
-                order.shippingAddress(),
-                order.paymentStatus(),
-                Order.OrderStatus.CANCELLED, // Setze den Status auf "CANCELLED"
-                order.paymentMethod(),
-                order.stripePaymentIntentId(),
-                false
-
-
-        );
-
-        orderRepository.save(updatedOrder);
-        logger.info(" Bestellung '{}' erfolgreich storniert!", order.id());
+        //  Nur wer den Status wirklich umgesetzt hat, gibt frei – ein paralleles Storno sieht beim Wiederholen CANCELLED
+        inventoryService.release(cancelled.items()); //  Reservierten Bestand wieder freigeben
+        logger.info(" Bestellung '{}' erfolgreich storniert!", cancelled.id());
         return true;
     }
 
@@ -169,32 +204,27 @@ public class OrderService {
       Zahlungsstatus aktualisieren (nur Admin)
      */
     public OrderDTO updatePaymentStatus(String orderId, String paymentStatus) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new NoSuchElementException("Bestellung nicht gefunden!"));
-
-        Order updatedOrder = new Order(
+        Order.PaymentStatus status = Order.PaymentStatus.valueOf(paymentStatus.toUpperCase());
+        return mapToDTO(updateOrder(orderId, order -> new Order(
                 order.id(),
                 order.userEmail(),
                 order.items(),
                 order.totalPrice(),
                 order.shippingAddress(),
-                Order.PaymentStatus.valueOf(paymentStatus.toUpperCase()),
+                status,
                 order.orderStatus(),
                 order.paymentMethod(),
                 order.stripePaymentIntentId(),
-                false
-
-        );
-        return mapToDTO(orderRepository.save(updatedOrder));
+                false,
+                order.version()
+        )));
     }
 
     /*
       Lieferadresse aktualisieren
     */
     public OrderDTO updateShippingAddress(String orderId, Address newShippingAddress) {
-        Order order =orderRepository.findById(orderId)
-                .orElseThrow(() -> new NoSuchElementException("Bestellung nicht gefunden!!"));
-        Order updatedOrder = new Order(
+        return mapToDTO(updateOrder(orderId, order -> new Order(
                 order.id(),
                 order.userEmail(),
                 order.items(),
@@ -204,10 +234,9 @@ public class OrderService {
                 order.orderStatus(),
                 order.paymentMethod(),
                 order.stripePaymentIntentId(),
-                false
-
-        );
-        return mapToDTO(orderRepository.save(updatedOrder));
+                false,
+                order.version()
+        )));
     }
     /*
       Bestellung löschen
@@ -219,36 +248,34 @@ public class OrderService {
 
     //Benutzer kann eine Rückgabe anfordern
     public boolean requestReturn(String orderId, String userEmail) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new NoSuchElementException(" Bestellung nicht gefunden!"));
-
-        logger.info(" Prüfe Benutzer: '{}'", userEmail);
-        logger.info(" Bestellung gehört zu: '{}'", order.userEmail());
-
-        if (!order.userEmail().equalsIgnoreCase(userEmail)) {
-            logger.warn(" Rückgabe nicht erlaubt: Benutzer stimmt nicht überein!");
-            throw new IllegalStateException(" Rückgabe nicht erlaubt: Falscher Benutzer!");
-        }
-
-        if (order.orderStatus() != Order.OrderStatus.SHIPPED) {
-            logger.warn(" Rückgabe nicht erlaubt: Bestellung nicht versandt!");
-            throw new IllegalStateException(" Rückgabe nur nach Versand erlaubt!");
-        }
-
-        Order updatedOrder = new Order(
-                order.id(),
-                order.userEmail(),
-                order.items(),
-                order.totalPrice(),
-                order.shippingAddress(),
-                order.paymentStatus(),
-                Order.OrderStatus.RETURN_REQUESTED,
-                order.paymentMethod(),
-                order.stripePaymentIntentId(),
-                true
-        );
-
-        orderRepository.save(updatedOrder);
+        updateOrder(orderId, order -> {
+            logger.info(" Prüfe Benutzer: '{}'", userEmail);
+            logger.info(" Bestellung gehört zu: '{}'", order.userEmail());
+
+            if (!order.userEmail().equalsIgnoreCase(userEmail)) {
+                logger.warn(" Rückgabe nicht erlaubt: Benutzer stimmt nicht überein!");
+                throw new IllegalStateException(" Rückgabe nicht erlaubt: Falscher Benutzer!");
+            }
+
+            if (order.orderStatus() != Order.OrderStatus.SHIPPED) {
+                logger.warn(" Rückgabe nicht erlaubt: Bestellung nicht versandt!");
+                throw new IllegalStateException(" Rückgabe nur nach Versand erlaubt!");
+            }
+
+            return new Order(
+                    order.id(),
+                    order.userEmail(),
+                    order.items(),
+                    order.totalPrice(),
+                    order.shippingAddress(),
+                    order.paymentStatus(),
+                    Order.OrderStatus.RETURN_REQUESTED,
+                    order.paymentMethod(),
+                    order.stripePaymentIntentId(),
+                    true,
+                    order.version()
+            );
+        });
         logger.info(" Rückgabe erfolgreich angefordert!");
         return true;
     }
@@ -258,6 +285,8 @@ public class OrderService {
 
     /*
        Admin kann eine Rückgabe genehmigen und erstatten
+       Geld fließt nur einmal: Die Erstattung läuft mit einem Idempotency-Key pro Bestellung, gespeichert wird
+       danach wie alle Statusänderungen bedingt auf die Version (mit Wiederholung auf dem neuen Stand).
     */
     public boolean approveReturn(String orderId) throws StripeException {
         Order order = orderRepository.findById(orderId)
@@ -267,32 +296,66 @@ public class OrderService {
             throw new IllegalStateException("Keine Rückgabe-Anfrage für diese Bestellung.");
         }
 
-        // Stripe-Erstattung durchführen
+        /*  Erst erstatten, dann speichern: schlägt Stripe fehl, bleibt die Bestellung unverändert (kein REFUNDED
+            ohne Erstattung). Der Idempotency-Key sorgt dafür, dass eine parallele oder wiederholte Freigabe
+            (z. B. nach 409 beim Speichern) bei Stripe keine zweite Erstattung auslöst. */
         RefundCreateParams params = RefundCreateParams.builder()
                 .setPaymentIntent(order.stripePaymentIntentId())
                 .setAmount((long) (order.totalPrice() * 100))
                 .build();
-
-        Refund.create(params);
+        Refund.create(params, RequestOptions.builder().setIdempotencyKey("refund-" + orderId).build());
 
         // Bestellung als zurückgegeben markieren + Zahlungsstatus auf REFUNDED
-        Order updatedOrder = new Order(
-                order.id(),
-                order.userEmail(),
-                order.items(),
-                order.totalPrice(),
-                order.shippingAddress(),
-                Order.PaymentStatus.REFUNDED, //  Geändert: Zahlungsstatus auf REFUNDED
-                Order.OrderStatus.RETURNED,   //  Geändert: Bestellstatus auf RETURNED
-                order.paymentMethod(),
-                order.stripePaymentIntentId(),
-                false
-        );
-
-        orderRepository.save(updatedOrder);
+        updateOrder(orderId, current -> current.orderStatus() == Order.OrderStatus.RETURNED
+                ? null //  Schon von einer parallelen Freigabe gespeichert
+                : new Order(
+                        current.id(),
+                        current.userEmail(),
+                        current.items(),
+                        current.totalPrice(),
+                        current.shippingAddress(),
+                        Order.PaymentStatus.REFUNDED, //  Geändert: Zahlungsstatus auf REFUNDED
+                        Order.OrderStatus.RETURNED,   //  Geändert: Bestellstatus auf RETURNED
+                        current.paymentMethod(),
+                        current.stripePaymentIntentId(),
+                        false,
+                        current.version()
+                ));
         return true;
     }
 
+    /*
+     Bestellung mit Optimistic Locking ändern: lesen, `change` auf den gelesenen Stand anwenden, speichern
+     (save() schreibt nur, wenn die Version noch stimmt). Hat jemand dazwischen geschrieben, wird auf dem
+     neuen Stand wiederholt – `change` prüft seine Bedingungen (z. B. "noch nicht versandt") dabei jedes Mal
+     neu, daher ist das Wiederholen sicher. Liefert `change` null, wird nichts gespeichert.
+     */
+    private Order updateOrder(String orderId, UnaryOperator<Order> change) {
+        for (int attempt = 1; attempt <= MAX_UPDATE_ATTEMPTS; attempt++) {
+            Order order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new NoSuchElementException(" Bestellung mit ID " + orderId + " nicht gefunden!"));
+            Order updated = change.apply(order);
+            if (updated == null) {
+                return null;
+            }
+            try {
+                return orderRepository.save(updated);
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt < MAX_UPDATE_ATTEMPTS) {
+                    versionConflicts.retried("order");
+                }
+            }
+        }
+        throw conflict(orderId);
+    }
+
+    private VersionConflictException conflict(String orderId) {
+        versionConflicts.rejected("order");
+        Order current = orderRepository.findById(orderId)
+                .orElseThrow(() -> new NoSuchElementException(" Bestellung mit ID " + orderId + " nicht gefunden!"));
+        return new VersionConflictException("order", orderId, mapToDTO(current));
+    }
+
 
     //  Suche nach Benutzer-E-Mail
     public List<Order> searchByEmail(String email) {
@@ -328,10 +391,14 @@ public class OrderService {
       Hilfsfunktion: Mapping von Order zu OrderDTO
      */
     private OrderDTO mapToDTO(Order order) {
+        List<OrderItem> items = order.items().stream()
+                .map(item -> new OrderItem(item.productId(), item.name(), imageService.toUrls(item.images()),
+                        item.quantity(), item.price()))
+                .toList();
         return new OrderDTO(
                 order.id().toString(),
                 order.userEmail(),
-                order.items(),
+                items,
                 order.totalPrice(),
                 order.shippingAddress(),
                 order.paymentStatus().name(),
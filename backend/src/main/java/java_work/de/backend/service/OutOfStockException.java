@@ -0,0 +1,27 @@
+package java_work.de.backend.service;
+
+//  Reservierung abgelehnt: nicht genug Bestand (oder Produkt existiert nicht mehr)
+public class OutOfStockException extends IllegalStateException {
+    private final String productId;
+    private final int requested;
+    private final int available;
+
+    public OutOfStockException(String productId, int requested, int available) {
+        super("Nicht genug Bestand für Produkt " + productId + ": " + requested + " angefragt, " + available + " verfügbar");
+        this.productId = productId;
+        this.requested = requested;
+        this.available = available;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+}
@@ -0,0 +1,173 @@
+package java_work.de.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java_work.de.backend.dto.PageDTO;
+import java_work.de.backend.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+ Prozess-lokaler Cache für den Produktkatalog (Caffeine, W-TinyLFU).
+ - `products`: einzelne Produkte nach ID, begrenzt nach geschätzter Größe in Bytes
+ - `listings`: fertige Listen/Seiten (Pagination, Suchen), begrenzt nach Anzahl enthaltener Produkte
+ - `missing`: IDs, zu denen es kein Produkt gibt (kurzer Negativ-Cache gegen 404-Fluten, z. B. Bots)
+ Jede Produktänderung (lokal oder per Change Stream von anderen Knoten) invalidiert alle drei Caches
+ und zählt danach die CatalogVersion hoch (ETags der Listen-Endpunkte). Reine Bestandsänderungen
+ (StockChangedEvent, bei jedem Checkout) ebenso: die Listen enthalten den Bestand, sonst bekäme ein
+ Conditional GET dauerhaft 304 mit altem Bestand. Im Ledger-Modus kommt höchstens ein Event pro Produkt
+ und Flush-Intervall, neu berechnet wird eine Liste erst beim nächsten Abruf (einmal pro Schlüssel).
+ Befüllt wird nur mit der `generation()` von vor dem Datenbank-Lesen: Kam währenddessen eine Invalidierung,
+ wird der gelesene (evtl. veraltete) Stand nicht abgelegt – sonst bliebe er bis zum TTL im Cache.
+ Hit/Miss/Eviction-Statistiken stehen als Metriken `cache.*{cache=products.by-id|products.listings}` bereit.
+ */
+@Component
+public class ProductCache {
+
+    private final Cache<String, Product> products;
+    private final Cache<String, Object> listings;
+    private final Cache<String, Boolean> missing;
+    private final CatalogVersion catalogVersion;
+    private final AtomicLong generation = new AtomicLong();
+
+    public ProductCache(MeterRegistry meterRegistry, CatalogVersion catalogVersion,
+                        @Value("${catalog.cache.max-bytes:67108864}") long maxBytes,
+                        @Value("${catalog.cache.listing-max-items:50000}") long listingMaxItems,
+                        @Value("${catalog.cache.ttl:10m}") Duration ttl,
+                        @Value("${catalog.cache.negative-ttl:30s}") Duration negativeTtl) {
+        this.catalogVersion = catalogVersion;
+        this.products = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String id, Product product) -> estimateSize(product))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.listings = Caffeine.newBuilder()
+                .maximumWeight(listingMaxItems)
+                .weigher((String key, Object listing) -> listingWeight(listing))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(100_000) // Zufällige IDs von Bots dürfen den Heap nicht füllen
+                .expireAfterWrite(negativeTtl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "products.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, listings, "products.listings");
+        CaffeineCacheMetrics.monitor(meterRegistry, missing, "products.missing");
+    }
+
+    public Product getProduct(String id) {
+        return products.getIfPresent(id);
+    }
+
+    //  Stand der Invalidierungen; vor dem Laden aus der Datenbank merken und an putProduct/markMissing übergeben
+    public long generation() {
+        return generation.get();
+    }
+
+    public void putProduct(Product product, long loadedAt) {
+        String id = product.id().toHexString();
+        if (generation.get() != loadedAt) {
+            return;
+        }
+        products.put(id, product);
+        if (generation.get() != loadedAt) {
+            products.invalidate(id); //  Invalidierung kam zwischen Prüfung und put
+        }
+    }
+
+    //  Vor kurzem erfolglos gesucht: ohne Datenbank direkt "nicht gefunden"
+    public boolean isKnownMissing(String id) {
+        return missing.getIfPresent(id) != null;
+    }
+
+    public void markMissing(String id, long loadedAt) {
+        if (generation.get() != loadedAt) {
+            return;
+        }
+        missing.put(id, Boolean.TRUE);
+        if (generation.get() != loadedAt) {
+            missing.invalidate(id);
+        }
+    }
+
+    //  Liste aus dem Cache holen oder einmalig berechnen (gleichzeitige Anfragen teilen sich die Berechnung)
+    @SuppressWarnings("unchecked")
+    public <T> T getListing(String key, Supplier<T> loader) {
+        long loadedAt = generation.get();
+        T listing = (T) listings.get(key, k -> loader.get());
+        if (generation.get() != loadedAt) {
+            //  Während der Berechnung geändert: Ergebnis ausliefern, aber nicht behalten
+            //  (invalidateAll sieht Einträge nicht, die gerade erst berechnet werden)
+            listings.invalidate(key);
+        }
+        return listing;
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.allProducts()) {
+            invalidateAll();
+        } else {
+            invalidateProduct(event.productId());
+        }
+    }
+
+    @EventListener
+    public void onStockChanged(StockChangedEvent event) {
+        invalidateProduct(event.productId());
+    }
+
+    //  Ein Produkt hat sich geändert: Eintrag und alle Listen verwerfen
+    public void invalidateProduct(String id) {
+        generation.incrementAndGet();
+        products.invalidate(id);
+        missing.invalidate(id); //  z. B. Import mit vorgegebener ID
+        listings.invalidateAll();
+        catalogVersion.advance();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        products.invalidateAll();
+        missing.invalidateAll();
+        listings.invalidateAll();
+        catalogVersion.advance();
+    }
+
+    //  Grobe Schätzung des Heap-Verbrauchs (Strings als UTF-16, Bild-Hashes ~64 Zeichen)
+    private static int estimateSize(Product product) {
+        int size = 200;
+        size += length(product.name()) * 2;
+        size += length(product.description()) * 2;
+        if (product.images() != null) {
+            size += product.images().stream().mapToInt(image -> 40 + length(image) * 2).sum();
+        }
+        return size;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static int listingWeight(Object listing) {
+        if (listing instanceof Collection<?> collection) {
+            return Math.max(1, collection.size());
+        }
+        if (listing instanceof PageDTO<?> page) {
+            return Math.max(1, page.items().size());
+        }
+        return 1;
+    }
+}
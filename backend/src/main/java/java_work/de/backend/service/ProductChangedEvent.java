@@ -0,0 +1,33 @@
+package java_work.de.backend.service;
+
+import java_work.de.backend.model.Product;
+
+/*
+ Wird veröffentlicht, wenn sich ein Produkt geändert hat – lokal durch den ProductService
+ oder auf einem anderen Knoten (über den Change Stream, `remote = true`).
+ - productId == null: der ganze Katalog ist betroffen (z. B. Collection gelöscht)
+ - product kann null sein, auch wenn nicht gelöscht (dann selbst nachladen)
+ */
+public record ProductChangedEvent(
+        String productId,
+        Product product,
+        boolean deleted,
+        boolean remote
+) {
+    public static ProductChangedEvent saved(Product product) {
+        return new ProductChangedEvent(product.id().toHexString(), product, false, false);
+    }
+
+    public static ProductChangedEvent deleted(String productId) {
+        return new ProductChangedEvent(productId, null, true, false);
+    }
+
+    //  Viele Produkte auf einmal geändert (z. B. Import): Abnehmer bauen einmal komplett neu auf
+    public static ProductChangedEvent all() {
+        return new ProductChangedEvent(null, null, false, false);
+    }
+
+    public boolean allProducts() {
+        return productId == null;
+    }
+}
@@ -0,0 +1,357 @@
+package java_work.de.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java_work.de.backend.dto.ImportErrorDTO;
+import java_work.de.backend.dto.ImportReportDTO;
+import java_work.de.backend.dto.ProductDTO;
+import java_work.de.backend.model.Product;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+ Bulk-Import von Produkten aus NDJSON (ein JSON-Objekt pro Zeile) oder CSV (mit Kopfzeile).
+ Die Datei wird Zeile für Zeile aus dem Request-Stream gelesen und jede Zeile einzeln validiert
+ (Kategorien gegen den gecachten CategoryResolver, ohne Datenbank-Roundtrip). Gültige Produkte
+ werden in Batches per `bulkWrite` (unordered insert) geschrieben – im Speicher liegt immer nur
+ ein Batch, egal wie groß die Datei ist.
+ Fehlerhafte Zeilen (Format, Validierung, unbekannte Kategorie, doppelte ID) landen mit
+ Zeilennummer im Bericht, der Rest der Datei wird trotzdem importiert.
+ */
+@Service
+public class ProductImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final CategoryResolver categoryResolver;
+    private final ImageService imageService;
+    private final ImageRenditionService renditionService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public ProductImportService(MongoTemplate mongoTemplate, CategoryResolver categoryResolver,
+                                ImageService imageService, ImageRenditionService renditionService,
+                                Validator validator, ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${products.import.batch-size:500}") int batchSize,
+                                @Value("${products.import.max-errors:1000}") int maxErrors) {
+        this.mongoTemplate = mongoTemplate;
+        this.categoryResolver = categoryResolver;
+        this.imageService = imageService;
+        this.renditionService = renditionService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxErrors = maxErrors;
+    }
+
+    //  Eine gelesene Zeile: entweder ein Produkt oder ein Formatfehler
+    private record SourceRow(long line, ProductDTO product, String error) {
+    }
+
+    private record PendingProduct(long line, Product product) {
+    }
+
+    private interface RowSource {
+        SourceRow next() throws IOException; // null am Dateiende
+    }
+
+    public ImportReportDTO importProducts(InputStream input, DataFormat format) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        RowSource rows = format == DataFormat.CSV ? csvRows(reader) : ndjsonRows(reader);
+        Report report = new Report(maxErrors);
+        List<PendingProduct> batch = new ArrayList<>(batchSize);
+
+        SourceRow row;
+        while ((row = rows.next()) != null) {
+            if (row.error() != null) {
+                report.error(row.line(), row.error());
+                continue;
+            }
+            PendingProduct pending = toProduct(row, report);
+            if (pending != null) {
+                batch.add(pending);
+                if (batch.size() >= batchSize) {
+                    flush(batch, report);
+                }
+            }
+        }
+        flush(batch, report);
+
+        if (report.imported > 0) {
+            eventPublisher.publishEvent(ProductChangedEvent.all()); //  Index, Vorschläge und Caches einmal neu aufbauen
+        }
+        logger.info(" Produkt-Import ({}): {} importiert, {} fehlerhaft", format, report.imported, report.failed);
+        return report.toDTO();
+    }
+
+    private PendingProduct toProduct(SourceRow row, Report report) {
+        ProductDTO dto = row.product();
+        List<String> messages = validator.validate(dto).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (dto.categoryId() != null && !dto.categoryId().isBlank() && !categoryResolver.exists(dto.categoryId())) {
+            messages.add("Kategorie existiert nicht: " + dto.categoryId());
+        }
+        if (dto.id() != null && !dto.id().isBlank() && !ObjectId.isValid(dto.id())) {
+            messages.add("Ungültige Produkt-ID: " + dto.id());
+        }
+        if (!messages.isEmpty()) {
+            report.error(row.line(), String.join("; ", messages));
+            return null;
+        }
+
+        List<String> images;
+        try {
+            images = imageService.ingest(dto.images());
+        } catch (IllegalArgumentException e) {
+            report.error(row.line(), "Ungültiges Bild: " + e.getMessage());
+            return null;
+        }
+        ObjectId id = dto.id() == null || dto.id().isBlank() ? new ObjectId() : new ObjectId(dto.id());
+        return new PendingProduct(row.line(), new Product(id, dto.name(), dto.description(), dto.price(),
+                dto.stock(), images, dto.categoryId(), 0L, Instant.now()));
+    }
+
+    //  Ein Batch als ungeordneter Bulk-Insert: einzelne Fehler (z. B. doppelte ID) stoppen den Rest nicht
+    private void flush(List<PendingProduct> batch, Report report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        bulk.insert(batch.stream().map(PendingProduct::product).toList());
+        Set<Integer> rejected = new HashSet<>();
+        try {
+            report.imported += bulk.execute().getInsertedCount();
+        } catch (BulkOperationException e) {
+            report.imported += e.getResult().getInsertedCount();
+            for (BulkWriteError error : e.getErrors()) {
+                String message = error.getCode() == DUPLICATE_KEY ? "Produkt-ID existiert bereits" : error.getMessage();
+                report.error(batch.get(error.getIndex()).line(), message);
+                rejected.add(error.getIndex());
+            }
+        }
+        //  Thumbnails nur für tatsächlich eingefügte Produkte
+        for (int index = 0; index < batch.size(); index++) {
+            if (!rejected.contains(index)) {
+                renditionService.requestRenditions(batch.get(index).product().images());
+            }
+        }
+        batch.clear();
+    }
+
+    private RowSource ndjsonRows(BufferedReader lines) {
+        long[] lineNumber = {0};
+        return () -> {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber[0]++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new SourceRow(lineNumber[0], objectMapper.readValue(line, ProductDTO.class), null);
+                } catch (JsonProcessingException e) {
+                    return new SourceRow(lineNumber[0], null, "Ungültiges JSON: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        };
+    }
+
+    /*
+     CSV mit Kopfzeile; Spalten: id (optional), name, description, price, stock, categoryId, images.
+     Mehrere Bilder in einer Zelle werden mit `|` getrennt. Trennzeichen `,` oder `;` (Excel) wird
+     an der Kopfzeile erkannt, Felder in Anführungszeichen dürfen Trennzeichen und Zeilenumbrüche enthalten.
+     */
+    private RowSource csvRows(Reader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.readHeader();
+        if (header == null) {
+            return () -> null;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("name", "price", "stock", "categoryid")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV-Kopfzeile ohne Spalte '" + required + "'");
+            }
+        }
+        return () -> {
+            List<String> fields;
+            while ((fields = csv.next()) != null) {
+                if (fields.stream().allMatch(String::isBlank)) {
+                    continue;
+                }
+                try {
+                    String images = column(fields, columns, "images");
+                    ProductDTO dto = new ProductDTO(
+                            column(fields, columns, "id"),
+                            column(fields, columns, "name"),
+                            column(fields, columns, "description"),
+                            parseNumber(column(fields, columns, "price"), "price", Double::valueOf),
+                            parseNumber(column(fields, columns, "stock"), "stock", Integer::valueOf),
+                            images == null ? List.of() : Arrays.stream(images.split("\\|"))
+                                    .map(String::trim)
+                                    .filter(image -> !image.isEmpty())
+                                    .toList(),
+                            column(fields, columns, "categoryid"));
+                    return new SourceRow(csv.recordLine(), dto, null);
+                } catch (IllegalArgumentException e) {
+                    return new SourceRow(csv.recordLine(), null, e.getMessage());
+                }
+            }
+            return null;
+        };
+    }
+
+    private static String column(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size() || fields.get(index).isBlank()) {
+            return null;
+        }
+        return fields.get(index).trim();
+    }
+
+    private static <T> T parseNumber(String value, String column, Function<String, T> parser) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return parser.apply(value.replace(',', '.')); //  "12,50" aus deutschen Tabellen akzeptieren
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ungültige Zahl in Spalte " + column + ": " + value);
+        }
+    }
+
+    //  Minimaler RFC-4180-Leser, liest zeichenweise und merkt sich die Startzeile jedes Datensatzes
+    private static final class CsvReader {
+        private final Reader reader;
+        private char delimiter = ',';
+        private long line = 1;
+        private long recordLine;
+
+        CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        List<String> readHeader() throws IOException {
+            List<String> header = next();
+            if (header != null && header.size() == 1 && header.get(0).contains(";")) {
+                delimiter = ';';
+                header = List.of(header.get(0).split(";", -1));
+            }
+            return header;
+        }
+
+        long recordLine() {
+            return recordLine;
+        }
+
+        List<String> next() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (c != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        int next = reader.read();
+                        if (next != '"') {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                        field.append('"');
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    line++;
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    //  Fehlerliste ist begrenzt, damit auch eine komplett kaputte Datei den Speicher nicht füllt
+    private static final class Report {
+        private final int maxErrors;
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+        private boolean truncated;
+
+        Report(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void error(long line, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportErrorDTO(line, message));
+            } else {
+                truncated = true;
+            }
+        }
+
+        ImportReportDTO toDTO() {
+            errors.sort(Comparator.comparingLong(ImportErrorDTO::line));
+            return new ImportReportDTO(imported, failed, errors, truncated);
+        }
+    }
+}
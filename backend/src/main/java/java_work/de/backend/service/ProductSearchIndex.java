@@ -0,0 +1,560 @@
+package java_work.de.backend.service;
+
+import java_work.de.backend.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/*
+ Volltextsuche über Name und Beschreibung aller Produkte, komplett im Speicher.
+ Ersetzt die `$regex`-Suche, die keinen Index nutzen kann und bei jedem Tastendruck die ganze Collection liest.
+ - Normalisierung für Deutsch: Kleinschreibung, ä→ae, ö→oe, ü→ue, ß→ss, übrige Akzente entfernt
+ - Postings-Listen als int-Arrays (Dokument-Slot + Häufigkeit), sortiert nach Slot
+ - Ranking mit BM25, Treffer im Namen zählen stärker als in der Beschreibung
+ - Alle Suchbegriffe müssen vorkommen; der letzte Begriff wird als Präfix behandelt (Suche beim Tippen)
+ - Facetten: pro Kategorie und Preisbereich ein BitSet über die Slots; Filter und
+   Facetten-Zählungen sind reine Schnittmengen (kein weiterer Roundtrip zu MongoDB)
+ - Wird über ProductChangedEvent inkrementell aktualisiert
+ */
+@Component
+public class ProductSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "der", "die", "das", "den", "dem", "des", "ein", "eine", "einen", "einem", "einer",
+            "und", "oder", "mit", "fuer", "von", "im", "in", "zu", "zum", "zur", "auf", "aus", "ist");
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_BOOST = 3;             // Ein Treffer im Namen zählt wie drei in der Beschreibung
+    private static final int MAX_PREFIX_EXPANSIONS = 50; // Begrenzt die Arbeit bei sehr kurzen Präfixen (häufigste Begriffe zuerst)
+
+    //  Untergrenzen der Preis-Facetten in Euro; der letzte Bereich ist nach oben offen
+    private static final double[] PRICE_BUCKETS = {0, 25, 50, 100, 250, 500, 1000};
+
+    /*
+     `truncated` ist gesetzt, wenn das Präfix zu mehr als MAX_PREFIX_EXPANSIONS Begriffen passt.
+     Dann zählen nur die häufigsten davon, `total` und die Facetten sind eine Untergrenze.
+     */
+    public record Hits(List<String> productIds, int total, boolean truncated) {
+    }
+
+    /*
+     Ergebnis einer Facettensuche. Jede Facette wird mit allen anderen Filtern gezählt, nur nicht
+     mit ihrem eigenen – so sieht man auch, wie viele Treffer eine weitere Kategorie bringen würde.
+     */
+    public record FacetedHits(List<String> productIds, int total,
+                              Map<String, Integer> categoryCounts, List<Integer> priceBucketCounts, boolean truncated) {
+    }
+
+    //  Slots, die zum Text passen, und ob die Präfix-Erweiterung gekappt wurde
+    private record TextMatch(BitSet slots, boolean truncated) {
+    }
+
+    private record PrefixMatches(Collection<Postings> lists, boolean truncated) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //  Alle folgenden Felder nur unter `lock` lesen/schreiben
+    private final TreeMap<String, Postings> postings = new TreeMap<>(); // sortiert, damit Präfixe per subMap gehen
+    private final Map<String, Integer> slotByProductId = new HashMap<>();
+    private final BitSet live = new BitSet();  // Slots gelöschter/überschriebener Produkte sind hier 0
+    private String[] productIds = new String[1024];
+    private int[] lengths = new int[1024];
+    private String[] categoryIds = new String[1024];
+    private double[] prices = new double[1024];
+    private final Map<String, BitSet> categoryBits = new HashMap<>();
+    private final BitSet[] priceBucketBits = new BitSet[PRICE_BUCKETS.length];
+    private int nextSlot;
+    private long totalLength;
+    private volatile boolean built;
+
+    public ProductSearchIndex(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        for (int bucket = 0; bucket < priceBucketBits.length; bucket++) {
+            priceBucketBits[bucket] = new BitSet();
+        }
+    }
+
+    //  Preisgrenzen der Facetten: Bereich i geht von PRICE_BUCKETS[i] bis (exklusiv) PRICE_BUCKETS[i + 1]
+    public static double[] priceBuckets() {
+        return PRICE_BUCKETS.clone();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!built) {
+            return; // Der erste Aufbau liest ohnehin den aktuellen Stand
+        }
+        if (event.allProducts()) {
+            rebuild();
+        } else if (event.deleted()) {
+            remove(event.productId());
+        } else if (event.product() != null) {
+            index(event.product());
+        } else {
+            Product product = mongoTemplate.findById(event.productId(), Product.class);
+            if (product != null) {
+                index(product);
+            } else {
+                remove(event.productId());
+            }
+        }
+    }
+
+    //  Index komplett aus der Datenbank neu aufbauen (nur die Felder für Suche und Facetten werden gelesen)
+    public void rebuild() {
+        Query query = new Query();
+        query.fields().include("name", "description", "categoryId", "price");
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            slotByProductId.clear();
+            live.clear();
+            categoryBits.clear();
+            for (BitSet bucket : priceBucketBits) {
+                bucket.clear();
+            }
+            nextSlot = 0;
+            totalLength = 0;
+            try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+                products.forEach(this::addLocked);
+            }
+            built = true;
+            logger.info(" Suchindex aufgebaut: {} Produkte, {} Begriffe", slotByProductId.size(), postings.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.id().toHexString());
+            addLocked(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     Sucht Produkte, in denen alle Begriffe der Anfrage vorkommen, sortiert nach BM25-Score.
+     Liefert die IDs der angeforderten Seite und die Gesamtzahl der Treffer.
+     */
+    public Hits search(String query, int offset, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return new Hits(List.of(), 0, false);
+        }
+        ensureBuilt();
+
+        lock.readLock().lock();
+        try {
+            double[] scores = new double[nextSlot];
+            TextMatch text = matchText(terms, scores);
+            List<Integer> hits = rank(text.slots(), scores);
+            return new Hits(page(hits, offset, limit), hits.size(), text.truncated());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     Kombinierte Suche: Text (optional), Kategorien (ODER) und Preisbereich (inklusive Grenzen).
+     Ohne Text wird nach Produkt-ID sortiert (entspricht dem Anlagedatum), sonst nach Relevanz.
+     */
+    public FacetedHits facetedSearch(String query, Collection<String> categoryFilter, Double minPrice, Double maxPrice,
+                                     int offset, int limit) {
+        ensureBuilt();
+        lock.readLock().lock();
+        try {
+            double[] scores = new double[nextSlot];
+            TextMatch match = matchText(tokenize(query), scores);
+            BitSet text = match.slots();
+            BitSet category = categoryFilter == null || categoryFilter.isEmpty() ? null : categoryMatches(categoryFilter);
+            BitSet price = minPrice == null && maxPrice == null ? null : priceMatches(minPrice, maxPrice);
+
+            BitSet forCategoryFacets = intersect(text, price);
+            Map<String, Integer> categoryCounts = new HashMap<>();
+            categoryBits.forEach((categoryId, bits) -> {
+                int count = intersectionSize(forCategoryFacets, bits);
+                if (count > 0) {
+                    categoryCounts.put(categoryId, count);
+                }
+            });
+
+            BitSet forPriceFacets = intersect(text, category);
+            List<Integer> priceCounts = new ArrayList<>();
+            for (BitSet bucket : priceBucketBits) {
+                priceCounts.add(intersectionSize(forPriceFacets, bucket));
+            }
+
+            List<Integer> hits = rank(intersect(forCategoryFacets, category), scores);
+            return new FacetedHits(page(hits, offset, limit), hits.size(), categoryCounts, priceCounts, match.truncated());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     Slots, die alle Begriffe enthalten (der letzte als Präfix), als BitSet; `scores` erhält die BM25-Summen.
+     Ohne Begriffe passt jedes lebende Produkt.
+     */
+    private TextMatch matchText(List<String> terms, double[] scores) {
+        BitSet result = (BitSet) live.clone();
+        int liveDocs = live.cardinality();
+        if (terms.isEmpty() || liveDocs == 0) {
+            return new TextMatch(result, false);
+        }
+        double averageLength = (double) totalLength / liveDocs;
+        double[] termScores = new double[nextSlot];
+        boolean truncated = false;
+
+        for (int i = 0; i < terms.size(); i++) {
+            boolean last = i == terms.size() - 1;
+            Collection<Postings> matches;
+            if (last) {
+                PrefixMatches prefix = prefixMatches(terms.get(i));
+                matches = prefix.lists();
+                truncated = prefix.truncated();
+            } else {
+                matches = exactMatch(terms.get(i));
+            }
+            Arrays.fill(termScores, 0);
+            BitSet termBits = new BitSet(nextSlot);
+            for (Postings list : matches) {
+                scoreInto(list, liveDocs, averageLength, termScores, termBits);
+            }
+            result.and(termBits);
+            if (result.isEmpty()) {
+                return new TextMatch(result, truncated); // Ein Begriff kommt nirgends vor -> kein Produkt enthält alle
+            }
+            for (int slot = termBits.nextSetBit(0); slot >= 0; slot = termBits.nextSetBit(slot + 1)) {
+                scores[slot] += termScores[slot];
+            }
+        }
+        return new TextMatch(result, truncated);
+    }
+
+    //  Nach Score absteigend, bei Gleichstand (auch ohne Text) nach Produkt-ID
+    private List<Integer> rank(BitSet matches, double[] scores) {
+        List<Integer> hits = new ArrayList<>(matches.cardinality());
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            hits.add(slot);
+        }
+        hits.sort(Comparator.<Integer>comparingDouble(slot -> -scores[slot]).thenComparing(slot -> productIds[slot]));
+        return hits;
+    }
+
+    private List<String> page(List<Integer> hits, int offset, int limit) {
+        int from = Math.min(Math.max(offset, 0), hits.size());
+        int to = (int) Math.min((long) from + Math.max(limit, 0), hits.size());
+        return hits.subList(from, to).stream().map(slot -> productIds[slot]).toList();
+    }
+
+    private BitSet categoryMatches(Collection<String> categoryFilter) {
+        BitSet result = new BitSet(nextSlot);
+        for (String categoryId : categoryFilter) {
+            BitSet bits = categoryBits.get(categoryId);
+            if (bits != null) {
+                result.or(bits);
+            }
+        }
+        return result;
+    }
+
+    //  Bereiche ganz innerhalb von [min, max] werden komplett übernommen, nur die Randbereiche einzeln geprüft
+    private BitSet priceMatches(Double minPrice, Double maxPrice) {
+        double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+        double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        BitSet result = new BitSet(nextSlot);
+        for (int bucket = 0; bucket < PRICE_BUCKETS.length; bucket++) {
+            double lower = bucket == 0 ? Double.NEGATIVE_INFINITY : PRICE_BUCKETS[bucket];
+            double upper = bucket + 1 < PRICE_BUCKETS.length ? PRICE_BUCKETS[bucket + 1] : Double.POSITIVE_INFINITY;
+            if (upper <= min || lower > max) {
+                continue;
+            }
+            BitSet bits = priceBucketBits[bucket];
+            if (lower >= min && upper <= max) {
+                result.or(bits);
+                continue;
+            }
+            for (int slot = bits.nextSetBit(0); slot >= 0; slot = bits.nextSetBit(slot + 1)) {
+                if (prices[slot] >= min && prices[slot] <= max) {
+                    result.set(slot);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static BitSet intersect(BitSet base, BitSet filter) {
+        if (filter == null) {
+            return base;
+        }
+        BitSet result = (BitSet) base.clone();
+        result.and(filter);
+        return result;
+    }
+
+    private static int intersectionSize(BitSet a, BitSet b) {
+        BitSet result = (BitSet) a.clone();
+        result.and(b);
+        return result.cardinality();
+    }
+
+    private static int priceBucket(double price) {
+        int bucket = 0;
+        while (bucket + 1 < PRICE_BUCKETS.length && price >= PRICE_BUCKETS[bucket + 1]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    //  BM25 eines Begriffs für alle lebenden Dokumente seiner Postings-Liste; bei Präfix-Treffern zählt der beste Begriff
+    private void scoreInto(Postings list, int liveDocs, double averageLength, double[] termScores, BitSet termBits) {
+        int documentFrequency = 0;
+        for (int i = 0; i < list.size; i++) {
+            if (live.get(list.docs[i])) {
+                documentFrequency++;
+            }
+        }
+        if (documentFrequency == 0) {
+            return;
+        }
+        double idf = Math.log(1 + (liveDocs - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        for (int i = 0; i < list.size; i++) {
+            int slot = list.docs[i];
+            if (!live.get(slot)) {
+                continue;
+            }
+            double frequency = list.freqs[i];
+            double norm = K1 * (1 - B + B * lengths[slot] / averageLength);
+            double score = idf * frequency * (K1 + 1) / (frequency + norm);
+            termScores[slot] = Math.max(termScores[slot], score);
+            termBits.set(slot);
+        }
+    }
+
+    private Collection<Postings> exactMatch(String term) {
+        Postings list = postings.get(term);
+        return list == null ? List.of() : List.of(list);
+    }
+
+    /*
+     Passt das Präfix zu mehr als MAX_PREFIX_EXPANSIONS Begriffen, werden die mit den längsten
+     Postings-Listen genommen (nicht die alphabetisch ersten) – so fehlen nur seltene Begriffe.
+     Das Durchlaufen der Begriffe ist billig, teuer ist erst das Bewerten ihrer Postings.
+     */
+    private PrefixMatches prefixMatches(String prefix) {
+        PriorityQueue<Postings> matches = new PriorityQueue<>(Comparator.comparingInt((Postings list) -> list.size));
+        boolean truncated = false;
+        for (Postings list : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            matches.add(list);
+            if (matches.size() > MAX_PREFIX_EXPANSIONS) {
+                matches.poll(); // seltensten Begriff verwerfen
+                truncated = true;
+            }
+        }
+        return new PrefixMatches(matches, truncated);
+    }
+
+    private void ensureBuilt() {
+        if (!built) {
+            rebuild();
+        }
+    }
+
+    private void addLocked(Product product) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String token : tokenize(product.name())) {
+            frequencies.merge(token, NAME_BOOST, Integer::sum);
+            length += NAME_BOOST;
+        }
+        for (String token : tokenize(product.description())) {
+            frequencies.merge(token, 1, Integer::sum);
+            length++;
+        }
+
+        int slot = nextSlot++;
+        if (slot == productIds.length) {
+            productIds = Arrays.copyOf(productIds, slot * 2);
+            lengths = Arrays.copyOf(lengths, slot * 2);
+            categoryIds = Arrays.copyOf(categoryIds, slot * 2);
+            prices = Arrays.copyOf(prices, slot * 2);
+        }
+        String productId = product.id().toHexString();
+        productIds[slot] = productId;
+        lengths[slot] = length;
+        live.set(slot);
+        setFacets(slot, product.categoryId(), product.price() == null ? Double.NaN : product.price());
+        slotByProductId.put(productId, slot);
+        totalLength += length;
+
+        //  Neue Slots sind immer die größten, die Postings bleiben dadurch sortiert
+        frequencies.forEach((token, frequency) -> postings.computeIfAbsent(token, t -> new Postings()).add(slot, frequency));
+    }
+
+    private void removeLocked(String productId) {
+        Integer slot = slotByProductId.remove(productId);
+        if (slot == null) {
+            return;
+        }
+        live.clear(slot);
+        totalLength -= lengths[slot];
+        productIds[slot] = null;
+        if (categoryIds[slot] != null) {
+            BitSet bits = categoryBits.get(categoryIds[slot]);
+            bits.clear(slot);
+            if (bits.isEmpty()) {
+                categoryBits.remove(categoryIds[slot]);
+            }
+        }
+        if (!Double.isNaN(prices[slot])) {
+            priceBucketBits[priceBucket(prices[slot])].clear(slot);
+        }
+
+        //  Gelöschte Slots werden nur markiert; sind es zu viele, werden die Postings verdichtet
+        int dead = nextSlot - slotByProductId.size();
+        if (dead > 1024 && dead > slotByProductId.size()) {
+            compactLocked();
+        }
+    }
+
+    private void compactLocked() {
+        int[] newSlots = new int[nextSlot];
+        int count = 0;
+        for (int slot = 0; slot < nextSlot; slot++) {
+            newSlots[slot] = live.get(slot) ? count++ : -1;
+        }
+        String[] compactIds = new String[Math.max(1024, count * 2)];
+        int[] compactLengths = new int[compactIds.length];
+        String[] oldCategoryIds = categoryIds;
+        double[] oldPrices = prices;
+        categoryIds = new String[compactIds.length];
+        prices = new double[compactIds.length];
+        categoryBits.clear();
+        for (BitSet bucket : priceBucketBits) {
+            bucket.clear();
+        }
+        for (int slot = 0; slot < nextSlot; slot++) {
+            if (newSlots[slot] >= 0) {
+                compactIds[newSlots[slot]] = productIds[slot];
+                compactLengths[newSlots[slot]] = lengths[slot];
+                slotByProductId.put(productIds[slot], newSlots[slot]);
+                setFacets(newSlots[slot], oldCategoryIds[slot], oldPrices[slot]);
+            }
+        }
+        postings.values().removeIf(list -> list.remap(newSlots) == 0);
+        productIds = compactIds;
+        lengths = compactLengths;
+        live.clear();
+        live.set(0, count);
+        nextSlot = count;
+    }
+
+    private void setFacets(int slot, String categoryId, double price) {
+        categoryIds[slot] = categoryId;
+        prices[slot] = price;
+        if (categoryId != null) {
+            categoryBits.computeIfAbsent(categoryId, id -> new BitSet()).set(slot);
+        }
+        if (!Double.isNaN(price)) {
+            priceBucketBits[priceBucket(price)].set(slot);
+        }
+    }
+
+    //  Text in normalisierte Suchbegriffe zerlegen (für Index und Anfrage identisch)
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(normalize(text))) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    static String normalize(String text) {
+        //  Erst NFC, damit auch zerlegte Umlaute (a + ¨) als ä erkannt werden
+        String lower = Normalizer.normalize(text, Normalizer.Form.NFC).toLowerCase(Locale.GERMAN)
+                .replace("ä", "ae")
+                .replace("ö", "oe")
+                .replace("ü", "ue")
+                .replace("ß", "ss");
+        return DIACRITICS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+
+        //  Slots nach dem Verdichten umschreiben, tote Einträge fallen weg; liefert die neue Länge
+        int remap(int[] newSlots) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int slot = newSlots[docs[i]];
+                if (slot >= 0) {
+                    docs[kept] = slot;
+                    freqs[kept] = freqs[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return kept;
+        }
+    }
+}
@@ -1,38 +1,256 @@
 package java_work.de.backend.service;
 
+import java_work.de.backend.dto.CategoryFacetDTO;
+import java_work.de.backend.dto.PageDTO;
+import java_work.de.backend.dto.ProductBatchDTO;
+import java_work.de.backend.dto.PriceFacetDTO;
 import java_work.de.backend.dto.ProductDTO;
+import java_work.de.backend.dto.ProductQueryResultDTO;
+import java_work.de.backend.dto.ProductSummaryDTO;
 import java_work.de.backend.model.Product;
 import java_work.de.backend.repo.CategoryRepository;
 import java_work.de.backend.repo.ProductRepository;
 import org.bson.types.ObjectId;
-import org.springframework.data.mongodb.repository.support.SimpleMongoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 private final ProductRepository productRepo;
 private final CategoryRepository categoryRepo;
+private final MongoTemplate mongoTemplate;
+private final ImageService imageService;
+private final ImageRenditionService renditionService;
+private final ProductCache productCache;
+private final ProductSearchIndex searchIndex;
+private final CategoryResolver categoryResolver;
+private final CategoryTree categoryTree;
+private final ApplicationEventPublisher eventPublisher;
+private final InventoryLedger inventoryLedger;
+private final VersionConflicts versionConflicts;
+private final SingleFlight<String, Product> productLoads = new SingleFlight<>();
+private final int defaultPageSize;
+private final int maxPageSize;
+private final int maxBatchSize;
 
-    public ProductService(ProductRepository productRepo, CategoryRepository categoryRepo) {
+    public ProductService(ProductRepository productRepo, CategoryRepository categoryRepo, MongoTemplate mongoTemplate,
+                          ImageService imageService,
+                          ImageRenditionService renditionService,
+                          ProductCache productCache,
+                          ProductSearchIndex searchIndex,
+                          CategoryResolver categoryResolver,
+                          CategoryTree categoryTree,
+                          ApplicationEventPublisher eventPublisher,
+                          Optional<InventoryLedger> inventoryLedger,
+                          VersionConflicts versionConflicts,
+                          @Value("${products.page.default-size:20}") int defaultPageSize,
+                          @Value("${products.page.max-size:100}") int maxPageSize,
+                          @Value("${products.batch.max-ids:200}") int maxBatchSize) {
         this.productRepo = productRepo;
         this.categoryRepo = categoryRepo;
+        this.mongoTemplate = mongoTemplate;
+        this.imageService = imageService;
+        this.renditionService = renditionService;
+        this.productCache = productCache;
+        this.searchIndex = searchIndex;
+        this.categoryResolver = categoryResolver;
+        this.categoryTree = categoryTree;
+        this.eventPublisher = eventPublisher;
+        this.inventoryLedger = inventoryLedger.orElse(null);
+        this.versionConflicts = versionConflicts;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxBatchSize = maxBatchSize;
     }
 
+    /*
+     Produkte seitenweise laden (Keyset-Pagination über `_id`).
+     Der Cursor ist die letzte `_id` der vorherigen Seite, dadurch bleibt jede Seite
+     ein Index-Scan ab dieser Position – egal wie weit hinten im Katalog man ist.
+     */
+    public PageDTO<ProductDTO> findProductPage(String cursor, Integer size) {
+        return productCache.getListing("page:" + cursor + ":" + resolvePageSize(size),
+                () -> findPage(cursor, size, new Query(), this::mapToListDTO));
+    }
+
+    //  Gleiche Seite, aber nur mit den Feldern für die Produktkacheln
+    public PageDTO<ProductSummaryDTO> findProductSummaryPage(String cursor, Integer size) {
+        return productCache.getListing("summary-page:" + cursor + ":" + resolvePageSize(size),
+                () -> findPage(cursor, size, summaryQuery(new Criteria()), this::mapToSummaryDTO));
+    }
+
+    private <T> PageDTO<T> findPage(String cursor, Integer size, Query query, Function<Product, T> mapper) {
+        int limit = resolvePageSize(size);
+        query.with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(limit + 1); // Ein Element mehr laden, um zu wissen, ob es eine nächste Seite gibt
+
+        if (cursor != null && !cursor.isBlank()) {
+            if (!ObjectId.isValid(cursor)) {
+                throw new IllegalArgumentException("Ungültiger Cursor: " + cursor);
+            }
+            query.addCriteria(Criteria.where("_id").gt(new ObjectId(cursor)));
+        }
+
+        List<Product> products = mongoTemplate.find(query, Product.class);
+        boolean hasNext = products.size() > limit;
+        List<Product> page = hasNext ? products.subList(0, limit) : products;
+        String next = hasNext ? page.get(page.size() - 1).id().toHexString() : null;
+
+        return new PageDTO<>(page.stream().map(mapper).toList(), next);
+    }
+
+    //  Seitengröße auf den konfigurierten Bereich begrenzen
+    private int resolvePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    //  Kompletter Katalog ohne Pagination (nur noch explizit über `?unpaged=true`)
     public List<ProductDTO> findAllProducts() {
-        return productRepo.findAll().stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return productCache.getListing("all", () -> productRepo.findAll().stream()
+                .map(this::mapToListDTO)
+                .collect(Collectors.toList()));
+    }
+
+    public List<ProductSummaryDTO> findAllProductSummaries() {
+        return productCache.getListing("summary-all", () -> findSummaries(new Criteria()));
     }
 
     public ProductDTO findProductById(String id) {
-        return productRepo.findById(id)
-                .map(this::mapToDTO)
-                .orElseThrow(()
-        -> new NoSuchElementException("Kein Produkt mit ID " + id + " gefunden!"));
+        return findVersionedProductById(id).body();
+    }
+
+    //  Einzelnes Produkt mit ETag aus Produktversion und angezeigtem Bestand (für Conditional GET)
+    public Versioned<ProductDTO> findVersionedProductById(String id) {
+        Product product = productCache.getProduct(id);
+        if (product == null) {
+            product = productLoads.load(id, () -> loadProduct(id));
+        }
+        ProductDTO dto = mapToDTO(product);
+        return new Versioned<>(dto, etag(product, dto.stock()), product.updatedAt());
+    }
+
+    /*
+     Bestandsänderungen (Checkout, Ledger-Flush) zählen die Version nicht hoch, damit sie Admin-Änderungen
+     mit If-Match nicht ständig in Konflikte laufen lassen. Der Bestand steht deshalb zusätzlich im ETag,
+     sonst bekäme ein Conditional GET nach einem Verkauf 304 mit altem Bestand.
+     Starker ETag: If-Match verlangt laut RFC 9110 den starken Vergleich, schwache Tags passen dort nie.
+     */
+    private static String etag(Product product, Integer stock) {
+        return "\"" + versionTag(product) + "-" + (stock == null ? 0 : stock) + "\"";
+    }
+
+    private static String versionTag(Product product) {
+        long version = product.version() == null ? 0 : product.version();
+        return product.id().toHexString() + "-" + version;
+    }
+
+    /*
+     If-Match mit starkem Vergleich (RFC 9110): schwache Tags (W/…) und ungequotete Werte passen nie.
+     Verglichen werden nur ID und Version; der Bestand im ETag darf sich seit dem GET geändert haben.
+     Liefert den passenden Tag ohne Anführungszeichen, sonst null.
+     */
+    private static String matchingTag(String ifMatch, Product product) {
+        String versionTag = versionTag(product);
+        for (String tag : ifMatch.split(",")) {
+            String entity = tag.trim();
+            if (entity.length() < 2 || !entity.startsWith("\"") || !entity.endsWith("\"")) {
+                continue;
+            }
+            String opaque = entity.substring(1, entity.length() - 1);
+            if (opaque.equals(versionTag) || opaque.startsWith(versionTag + "-")) {
+                return opaque;
+            }
+        }
+        return null;
+    }
+
+    //  Bestand, den das Formular beim GET gesehen hat ("id-version-bestand"); null, wenn der Tag keinen hat
+    private static Integer stockSeen(String tag, Product product) {
+        String prefix = versionTag(product) + "-";
+        if (tag == null || !tag.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(tag.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /*
+     Cache-Miss: gleichzeitige Anfragen für dieselbe ID teilen sich diesen einen Ladevorgang (SingleFlight).
+     Unbekannte IDs merkt sich der ProductCache kurz, damit wiederholte 404 die Datenbank nicht erreichen.
+     */
+    private Product loadProduct(String id) {
+        Product cached = productCache.getProduct(id); //  Ein eben beendeter Ladevorgang hat es schon abgelegt
+        if (cached != null) {
+            return cached;
+        }
+        if (productCache.isKnownMissing(id)) {
+            throw new NoSuchElementException("Kein Produkt mit ID " + id + " gefunden!");
+        }
+        long loadedAt = productCache.generation();
+        Product product = productRepo.findById(id).orElse(null);
+        if (product == null) {
+            productCache.markMissing(id, loadedAt);
+            throw new NoSuchElementException("Kein Produkt mit ID " + id + " gefunden!");
+        }
+        productCache.putProduct(product, loadedAt);
+        return product;
+    }
+
+    /*
+     Viele Produkte auf einmal (Warenkorb, Bestellungen): statt N einzelner findById-Aufrufe
+     kommen warme Produkte aus dem Cache und der Rest mit einer `$in`-Abfrage.
+     Doppelte IDs werden nur einmal geliefert.
+     */
+    public ProductBatchDTO findProductBatch(List<String> ids) {
+        List<String> requested = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (requested.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Höchstens " + maxBatchSize + " Produkt-IDs pro Anfrage erlaubt");
+        }
+        List<ProductDTO> items = findProductsByIds(requested).stream().map(this::mapToDTO).toList();
+        Set<String> found = items.stream().map(ProductDTO::id).collect(Collectors.toSet());
+        List<String> missing = requested.stream().filter(id -> !found.contains(id)).toList();
+        return new ProductBatchDTO(items, missing);
+    }
+
+    /*
+     Für Warenkorb und Bestellung: Produkte (Entity, Bilder als Hash) nach ID, gleiche Cache-/`$in`-Strategie
+     wie findProductBatch. Fehlende IDs sind nicht in der Map.
+     */
+    public Map<String, Product> findProductMap(Collection<String> ids) {
+        Map<String, Product> products = new HashMap<>();
+        for (Product product : findProductsByIds(List.copyOf(new LinkedHashSet<>(ids)))) {
+            products.put(product.id().toHexString(), product);
+        }
+        return products;
     }
 
     public ProductDTO saveProduct(ProductDTO productDTO) {
@@ -46,19 +264,47 @@ private final CategoryRepository categoryRepo;
                 productDTO.description(),
                 productDTO.price(),
                 productDTO.stock(),
-                productDTO.images(), //Hier wird das Base64-Bild gespeichert
-                productDTO.categoryId()
+                imageService.ingest(productDTO.images()), // Base64-Bilder landen im ImageStore, hier nur der Hash
+                productDTO.categoryId(),
+                null, //  Neu: Spring Data setzt die Version beim Einfügen auf 0
+                Instant.now()
         );
 
         Product savedProduct = productRepo.save(newProduct);
+        categoryTree.productSaved(null, savedProduct); //  Kategorie-Zähler direkt nachziehen
+        eventPublisher.publishEvent(ProductChangedEvent.saved(savedProduct)); //  Caches etc. aktualisieren
+        renditionService.requestRenditions(savedProduct.images()); //  Thumbnails im Hintergrund erzeugen
         return mapToDTO(savedProduct); //  Richtiges Produkt zurückgeben
     }
 
 
     // Produkt aktualisieren
     public ProductDTO updateProduct(String id, ProductDTO productDTO) {
+        return updateProduct(id, productDTO, null);
+    }
+
+    /*
+     Das Formular ersetzt das ganze Produkt – zusammenführen geht hier nicht. Geschrieben wird daher nur,
+     wenn die Version noch die gelesene ist (und, falls mitgeschickt, die aus `If-Match`); sonst 409 mit dem
+     aktuellen Produkt, damit der Admin seine Änderung auf dem neuen Stand wiederholen kann.
+     Der Bestand ist davon ausgenommen: Verkäufe zählen die Version nicht hoch, das Formular kann also einen
+     veralteten Bestand enthalten. Gebucht wird nur die Änderung gegenüber dem Bestand aus dem ETag des GET
+     (ohne If-Match: gegenüber dem aktuellen Bestand), seitdem reservierte Stück bleiben abgezogen.
+     */
+    public ProductDTO updateProduct(String id, ProductDTO productDTO, String ifMatch) {
         Product existingProduct = productRepo.findById(id)
                 .orElseThrow(() -> new NoSuchElementException("Produkt mit ID " + id + " nicht gefunden!"));
+        String matchedTag = null;
+        if (ifMatch != null && !"*".equals(ifMatch.trim())) {
+            matchedTag = matchingTag(ifMatch, existingProduct);
+            if (matchedTag == null) {
+                throw conflict(existingProduct);
+            }
+        }
+        Integer seen = stockSeen(matchedTag, existingProduct);
+        Integer current = stockOf(existingProduct);
+        int baseline = seen != null ? seen : (current == null ? 0 : current);
+        int stockDelta = productDTO.stock() == null ? 0 : productDTO.stock() - baseline;
 
         Product updatedProduct = new Product(
 
@@ -67,38 +313,259 @@ private final CategoryRepository categoryRepo;
                 productDTO.description(),
                 productDTO.price(),
                 productDTO.stock(),
-                productDTO.images(),
-                productDTO.categoryId()
+                imageService.ingest(productDTO.images()),
+                productDTO.categoryId(),
+                existingProduct.version(), //  Bedingung für das Update, wird dort hochgezählt
+                Instant.now()
         );
 
-         Product saveProduct = productRepo.save(updatedProduct);
+        Product saveProduct;
+        try {
+            saveProduct = updateWithoutStock(updatedProduct, stockDelta);
+        } catch (OptimisticLockingFailureException e) {
+            throw conflict(productRepo.findById(id)
+                    .orElseThrow(() -> new NoSuchElementException("Produkt mit ID " + id + " nicht gefunden!")));
+        }
+        categoryTree.productSaved(existingProduct, saveProduct);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(saveProduct));
+        renditionService.requestRenditions(saveProduct.images()); //  Bereits vorhandene Varianten werden übersprungen
         return mapToDTO(saveProduct);
     }
 
+    private VersionConflictException conflict(Product current) {
+        versionConflicts.rejected("product");
+        return new VersionConflictException("product", current.id().toHexString(), mapToDTO(current));
+    }
+
+    /*
+     Das Dokument wird nicht ersetzt (save() würde auch `stock` überschreiben), sondern nur die übrigen
+     Felder gesetzt – unter derselben Versionsbedingung wie save(). Die Bestandsänderung kommt als Differenz
+     dazu: ohne Ledger per $inc im selben Update (eine Verringerung nur, solange der Bestand reicht, sonst 409),
+     im Ledger-Modus gehört `stock` dem InventoryLedger (Write-Behind) und die Differenz geht danach durch ihn.
+     */
+    private Product updateWithoutStock(Product product, int stockDelta) {
+        Update update = new Update()
+                .set("name", product.name())
+                .set("description", product.description())
+                .set("price", product.price())
+                .set("images", product.images())
+                .set("categoryId", product.categoryId())
+                .inc("version", 1)
+                .set("updatedAt", product.updatedAt());
+        if (inventoryLedger != null && stockDelta != 0 && !inventoryLedger.isOwner()) {
+            //  Vor dem Schreiben prüfen, sonst wären die übrigen Felder gespeichert und nur der Bestand nicht
+            throw new InventoryUnavailableException("Bestand kann nur auf dem Knoten mit dem Inventar-Ledger geändert werden");
+        }
+        Criteria criteria = Criteria.where("_id").is(product.id()).and("version").is(product.version());
+        if (inventoryLedger == null && stockDelta != 0) {
+            update.inc("stock", stockDelta);
+            if (stockDelta < 0) {
+                criteria.and("stock").gte(-stockDelta);
+            }
+        }
+        Product saved = mongoTemplate.findAndModify(new Query(criteria), update, FindAndModifyOptions.options().returnNew(true), Product.class);
+        if (saved == null) {
+            throw new OptimisticLockingFailureException("Produkt " + product.id() + " wurde gleichzeitig geändert");
+        }
+        if (inventoryLedger != null && stockDelta != 0) {
+            inventoryLedger.adjustBy(product.id().toHexString(), stockDelta);
+        }
+        return saved;
+    }
+
     // Produkt löschen
     public void deleteProduct(String id) {
+        Product existingProduct = productRepo.findById(id).orElse(null); //  Alter Stand für die Kategorie-Zähler
         productRepo.deleteById(id);
+        if (existingProduct != null) {
+            categoryTree.productDeleted(existingProduct);
+        }
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
     }
 
-    //  Suche nach Name
-    public List<Product> searchByName(String name) {
-        return productRepo.findByNameRegexIgnoreCase(name);
+    /*
+     Volltextsuche über Name und Beschreibung (In-Memory-Index, BM25-Ranking).
+     Der Cursor ist hier der Offset in der Trefferliste, da die Reihenfolge nach Relevanz geht.
+     */
+    public PageDTO<ProductDTO> search(String q, String cursor, Integer size) {
+        return searchPage(q, cursor, size, this::mapToListDTO);
     }
 
-    //  Suche nach Beschreibung (Kategorie)
-    public List<Product> searchByCategory(String category) {
-        System.out.println("Gesuchte Kategorie: " + category); // Debugging
-        List<Product> products = productRepo.findByCategoryContainingIgnoreCase(category);
-        System.out.println("Gefundene Produkte: " + products); // Debugging
-        return products;
+    public PageDTO<ProductSummaryDTO> searchSummaries(String q, String cursor, Integer size) {
+        return searchPage(q, cursor, size, this::mapToSummaryDTO);
+    }
+
+    private <T> PageDTO<T> searchPage(String q, String cursor, Integer size, Function<Product, T> mapper) {
+        int limit = resolvePageSize(size);
+        int offset = parseOffset(cursor);
+        ProductSearchIndex.Hits hits = searchIndex.search(q, offset, limit);
+        List<T> items = findProductsByIds(hits.productIds()).stream().map(mapper).toList();
+        return new PageDTO<>(items, nextOffset(offset, limit, hits.total()));
+    }
+
+    /*
+     Eine Abfrage für Text, Kategorien und Preisbereich zusammen, inklusive Facetten-Zählungen.
+     Filter und Zählungen laufen komplett über die BitSets im Suchindex; MongoDB wird nur
+     für die Produkte der angezeigten Seite gefragt (meist aus dem Cache).
+     */
+    public ProductQueryResultDTO query(String q, List<String> categoryIds, Double minPrice, Double maxPrice,
+                                       String cursor, Integer size) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("minPrice darf nicht größer als maxPrice sein");
+        }
+        int limit = resolvePageSize(size);
+        int offset = parseOffset(cursor);
+        ProductSearchIndex.FacetedHits hits = searchIndex.facetedSearch(q, categoryIds, minPrice, maxPrice, offset, limit);
+
+        List<ProductDTO> items = findProductsByIds(hits.productIds()).stream().map(this::mapToListDTO).toList();
+
+        //  Namen aus dem CategoryResolver (einmal geladen, bei Kategorieänderungen neu) statt findAll() pro Abfrage
+        List<CategoryFacetDTO> categories = hits.categoryCounts().entrySet().stream()
+                .map(entry -> new CategoryFacetDTO(entry.getKey(), categoryResolver.name(entry.getKey()), entry.getValue()))
+                .sorted(Comparator.comparingInt(CategoryFacetDTO::count).reversed()
+                        .thenComparing(CategoryFacetDTO::categoryId))
+                .toList();
+
+        double[] bounds = ProductSearchIndex.priceBuckets();
+        List<PriceFacetDTO> prices = new ArrayList<>();
+        for (int bucket = 0; bucket < bounds.length; bucket++) {
+            Double upper = bucket + 1 < bounds.length ? bounds[bucket + 1] : null;
+            prices.add(new PriceFacetDTO(bounds[bucket], upper, hits.priceBucketCounts().get(bucket)));
+        }
+
+        return new ProductQueryResultDTO(items, nextOffset(offset, limit, hits.total()), hits.total(), categories, prices,
+                hits.truncated());
+    }
+
+    //  Bei Ergebnissen nach Relevanz ist der Cursor einfach der Offset in der Trefferliste
+    private static int parseOffset(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(cursor);
+            if (offset >= 0) {
+                return offset;
+            }
+        } catch (NumberFormatException e) {
+            // unten als ungültig gemeldet
+        }
+        throw new IllegalArgumentException("Ungültiger Cursor: " + cursor);
+    }
+
+    private static String nextOffset(int offset, int limit, int total) {
+        return offset + limit < total ? String.valueOf(offset + limit) : null;
+    }
+
+    //  Suche nach Name (alter Endpunkt, jetzt ebenfalls über den Suchindex)
+    public List<ProductDTO> searchByName(String name) {
+        return findProductsByIds(searchIndex.search(name, 0, Integer.MAX_VALUE).productIds()).stream()
+                .map(this::mapToListDTO)
+                .toList();
+    }
+
+    /*
+     Suche nach Kategoriename: Name -> IDs über den gecachten CategoryResolver,
+     danach eine Index-Abfrage auf `categoryId` (Index categoryId + _id, Keyset-Pagination).
+     */
+    public PageDTO<ProductDTO> searchByCategory(String category, String cursor, Integer size) {
+        List<String> categoryIds = categoryResolver.resolve(category);
+        if (categoryIds.isEmpty()) {
+            return new PageDTO<>(List.of(), null);
+        }
+        return productCache.getListing("category:" + categoryIds + ":" + cursor + ":" + resolvePageSize(size),
+                () -> findPage(cursor, size, new Query(categoryCriteria(categoryIds)), this::mapToListDTO));
     }
 
     //  Suche nach Preisbereich
-    public List<Product> searchByPriceRange(double minPrice, double maxPrice) {
-        return productRepo.findByPriceBetween(minPrice, maxPrice);
+    public List<ProductDTO> searchByPriceRange(double minPrice, double maxPrice) {
+        return productCache.getListing("price:" + minPrice + ":" + maxPrice, () -> productRepo.findByPriceBetween(minPrice, maxPrice).stream()
+                .map(this::mapToListDTO)
+                .toList());
+    }
+
+    //  Dieselben Suchen als schlanke Zusammenfassung (`?view=summary`)
+    public List<ProductSummaryDTO> searchSummariesByName(String name) {
+        return findProductsByIds(searchIndex.search(name, 0, Integer.MAX_VALUE).productIds()).stream()
+                .map(this::mapToSummaryDTO)
+                .toList();
+    }
+
+    public PageDTO<ProductSummaryDTO> searchSummariesByCategory(String category, String cursor, Integer size) {
+        List<String> categoryIds = categoryResolver.resolve(category);
+        if (categoryIds.isEmpty()) {
+            return new PageDTO<>(List.of(), null);
+        }
+        return productCache.getListing("summary-category:" + categoryIds + ":" + cursor + ":" + resolvePageSize(size),
+                () -> findPage(cursor, size, summaryQuery(categoryCriteria(categoryIds)), this::mapToSummaryDTO));
+    }
+
+    private static Criteria categoryCriteria(List<String> categoryIds) {
+        return categoryIds.size() == 1
+                ? Criteria.where("categoryId").is(categoryIds.get(0))
+                : Criteria.where("categoryId").in(categoryIds);
+    }
+
+    public List<ProductSummaryDTO> searchSummariesByPriceRange(double minPrice, double maxPrice) {
+        return productCache.getListing("summary-price:" + minPrice + ":" + maxPrice,
+                () -> findSummaries(Criteria.where("price").gte(minPrice).lte(maxPrice)));
+    }
+
+    /*
+     Produkte zu einer ID-Liste laden, Reihenfolge bleibt erhalten.
+     Was im Cache liegt, kommt von dort; der Rest mit einer einzigen `$in`-Abfrage.
+     Nicht (mehr) existierende IDs werden ausgelassen.
+     */
+    private List<Product> findProductsByIds(List<String> ids) {
+        Map<String, Product> found = new HashMap<>();
+        List<ObjectId> missing = new ArrayList<>();
+        for (String id : ids) {
+            Product cached = productCache.getProduct(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else if (ObjectId.isValid(id) && !productCache.isKnownMissing(id)) {
+                missing.add(new ObjectId(id));
+            }
+        }
+        if (!missing.isEmpty()) {
+            long loadedAt = productCache.generation();
+            for (Product product : mongoTemplate.find(new Query(Criteria.where("_id").in(missing)), Product.class)) {
+                productCache.putProduct(product, loadedAt);
+                found.put(product.id().toHexString(), product);
+            }
+            missing.stream()
+                    .map(ObjectId::toHexString)
+                    .filter(id -> !found.containsKey(id))
+                    .forEach(id -> productCache.markMissing(id, loadedAt));
+        }
+        return ids.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    private List<ProductSummaryDTO> findSummaries(Criteria criteria) {
+        return mongoTemplate.find(summaryQuery(criteria), Product.class).stream()
+                .map(this::mapToSummaryDTO)
+                .toList();
+    }
+
+    /*
+     Projektion für Zusammenfassungen: `description` wird gar nicht erst gelesen und von
+     `images` nur das erste Element ($slice) – der Treiber dekodiert die schweren Felder nie.
+     */
+    private Query summaryQuery(Criteria criteria) {
+        Query query = new Query(criteria);
+        query.fields()
+                .include("name", "price", "stock", "categoryId")
+                .slice("images", 1);
+        return query;
     }
 
 
+    //  Im Ledger-Modus den Live-Bestand zeigen; MongoDB hinkt höchstens ein Flush-Intervall hinterher
+    private Integer stockOf(Product product) {
+        Integer live = inventoryLedger == null ? null : inventoryLedger.available(product.id().toHexString());
+        return live != null ? live : product.stock();
+    }
+
     // Mapping Methoden
     private ProductDTO mapToDTO(Product product) {
         return new ProductDTO(
@@ -106,8 +573,36 @@ private final CategoryRepository categoryRepo;
                 product.name(),
                 product.description(),
                 product.price(),
-                product.stock(),
-                product.images(), //  Sende das Bild zurück ans Frontend
+                stockOf(product),
+                imageService.toUrls(product.images()), //  Bild-URLs statt Base64 ans Frontend
+                product.categoryId()
+        );
+    }
+
+    //  Für Listen: Bilder verweisen auf die kleine Listing-Variante
+    private ProductDTO mapToListDTO(Product product) {
+        return new ProductDTO(
+                product.id().toString(),
+                product.name(),
+                product.description(),
+                product.price(),
+                stockOf(product),
+                renditionService.toUrls(product.images(), ImageRenditionService.Variant.LISTING),
+                product.categoryId()
+        );
+    }
+
+    private ProductSummaryDTO mapToSummaryDTO(Product product) {
+        List<String> images = product.images();
+        String image = images == null || images.isEmpty()
+                ? null
+                : renditionService.toUrls(images.subList(0, 1), ImageRenditionService.Variant.LISTING).get(0);
+        return new ProductSummaryDTO(
+                product.id().toString(),
+                product.name(),
+                product.price(),
+                stockOf(product),
+                image,
                 product.categoryId()
         );
     }
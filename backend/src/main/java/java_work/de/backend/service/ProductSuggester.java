@@ -0,0 +1,380 @@
+package java_work.de.backend.service;
+
+import java_work.de.backend.dto.SuggestionDTO;
+import java_work.de.backend.model.Category;
+import java_work.de.backend.model.Order;
+import java_work.de.backend.model.Product;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/*
+ Autovervollständigung für die Suchleiste aus Produkt- und Kategorienamen.
+ - Sortierte Map (ConcurrentSkipListMap): ein Präfix ist immer ein zusammenhängender Bereich
+ - Jeder Name wird ab jedem Wort eingetragen ("Gaming Laptop" findet man auch über "lap")
+ - Sortiert nach Beliebtheit: Produkte nach verkauften Stück, Kategorien nach Anzahl Produkte
+ - Für Präfixe mit 1–2 Zeichen (die größten Bereiche) sind die Top-N vorberechnet
+ - Produkt-/Kategorieänderungen ändern nur ihre eigenen Einträge und die Top-N der Kurz-Präfixe,
+   in die diese fallen (kein Neuaufbau)
+ */
+@Component
+public class ProductSuggester {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggester.class);
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int SHORT_PREFIX_LENGTH = 2;
+    private static final int MAX_WORDS_PER_NAME = 8;
+    private static final String PRODUCT = "product";
+    private static final String CATEGORY = "category";
+
+    private record Suggestion(String type, String id, String text, long popularity) {
+        String owner() {
+            return type + ":" + id;
+        }
+    }
+
+    private static final Comparator<Suggestion> RANKING = Comparator.comparingLong(Suggestion::popularity).reversed()
+            .thenComparing(Suggestion::text)
+            .thenComparing(Suggestion::id);
+
+    /*
+     Aktueller Stand. `entries` ist nach "<Schlüssel>\0<Owner>" sortiert, damit ein Präfix ein
+     zusammenhängender Bereich bleibt und derselbe Schlüssel mehrere Vorschläge haben kann.
+     Lesen ohne Lock; geändert wird nur unter `synchronized (this)`, ein Neuaufbau ersetzt den ganzen Stand.
+     */
+    private record Index(ConcurrentSkipListMap<String, Suggestion> entries, Map<String, Suggestion> byOwner,
+                         Map<String, Suggestion[]> shortPrefixTop) {
+        static Index empty() {
+            return new Index(new ConcurrentSkipListMap<>(), new HashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    private record ProductSource(String name, String categoryId) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final int maxResults;
+    private final Duration popularityRefresh;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    //  Quelldaten für die inkrementellen Updates, nur unter `synchronized (this)` ändern
+    private final Map<String, ProductSource> products = new HashMap<>();
+    private final Map<String, String> categoryNames = new HashMap<>();
+    private final Map<String, Integer> productsPerCategory = new HashMap<>();
+    private Map<String, Long> unitsSold = Map.of();
+
+    private volatile Index index = Index.empty();
+    private volatile boolean built;
+    private volatile long builtAt;
+
+    public ProductSuggester(MongoTemplate mongoTemplate,
+                            @Value("${catalog.suggest.max-results:20}") int maxResults,
+                            @Value("${catalog.suggest.popularity-refresh:15m}") Duration popularityRefresh) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxResults = maxResults;
+        this.popularityRefresh = popularityRefresh;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String key = normalizePrefix(prefix);
+        int n = Math.min(Math.max(limit, 1), maxResults);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        if (!built) {
+            rebuild();
+        }
+        refreshPopularityIfStale();
+
+        Index current = index;
+        Suggestion[] top;
+        if (key.length() <= SHORT_PREFIX_LENGTH) {
+            top = current.shortPrefixTop().getOrDefault(key, new Suggestion[0]);
+        } else {
+            top = topN(range(current, key), n);
+        }
+        return Arrays.stream(top)
+                .limit(n)
+                .map(s -> new SuggestionDTO(s.type(), s.id(), s.text()))
+                .toList();
+    }
+
+    //  Alles neu aus der Datenbank laden, inklusive der Verkaufszahlen
+    public void rebuild() {
+        Map<String, Long> sold = loadUnitsSold();
+        Query query = new Query();
+        query.fields().include("name", "categoryId");
+
+        synchronized (this) {
+            products.clear();
+            categoryNames.clear();
+            productsPerCategory.clear();
+            try (Stream<Product> stream = mongoTemplate.stream(query, Product.class)) {
+                stream.forEach(product -> putProduct(product.id().toHexString(),
+                        new ProductSource(product.name(), product.categoryId())));
+            }
+            for (Category category : mongoTemplate.findAll(Category.class)) {
+                categoryNames.put(category.id(), category.name());
+            }
+            unitsSold = sold;
+
+            List<Suggestion> all = new ArrayList<>();
+            products.keySet().forEach(id -> all.add(productSuggestion(id)));
+            categoryNames.keySet().forEach(id -> all.add(categorySuggestion(id)));
+            Index fresh = Index.empty();
+            update(fresh, Set.of(), all);
+            index = fresh;
+            built = true;
+            builtAt = System.currentTimeMillis();
+            logger.info(" Vorschlagsindex aufgebaut: {} Einträge", fresh.entries().size());
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!built) {
+            return;
+        }
+        if (event.allProducts()) {
+            rebuild();
+            return;
+        }
+        Product product = event.deleted() ? null
+                : event.product() != null ? event.product()
+                : mongoTemplate.findById(event.productId(), Product.class);
+
+        synchronized (this) {
+            String id = event.productId();
+            ProductSource old = removeProduct(id);
+            if (product != null) {
+                putProduct(id, new ProductSource(product.name(), product.categoryId()));
+            }
+
+            //  Die Produktanzahl der betroffenen Kategorien ändert deren Rang mit
+            Set<String> owners = new HashSet<>();
+            List<Suggestion> replacements = new ArrayList<>();
+            owners.add(PRODUCT + ":" + id);
+            if (product != null) {
+                replacements.add(productSuggestion(id));
+            }
+            Set<String> categories = new HashSet<>();
+            if (old != null && old.categoryId() != null) {
+                categories.add(old.categoryId());
+            }
+            if (product != null && product.categoryId() != null) {
+                categories.add(product.categoryId());
+            }
+            for (String categoryId : categories) {
+                owners.add(CATEGORY + ":" + categoryId);
+                if (categoryNames.containsKey(categoryId)) {
+                    replacements.add(categorySuggestion(categoryId));
+                }
+            }
+            update(index, owners, replacements);
+        }
+    }
+
+    @EventListener
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (!built) {
+            return;
+        }
+        if (event.categoryId() == null) {
+            rebuild();
+            return;
+        }
+        Category category = mongoTemplate.findById(event.categoryId(), Category.class);
+        synchronized (this) {
+            List<Suggestion> replacements = new ArrayList<>();
+            if (category != null) {
+                categoryNames.put(category.id(), category.name());
+                replacements.add(categorySuggestion(category.id()));
+            } else {
+                categoryNames.remove(event.categoryId());
+            }
+            update(index, Set.of(CATEGORY + ":" + event.categoryId()), replacements);
+        }
+    }
+
+    //  Verkaufszahlen ändern sich mit jeder Bestellung; sie werden periodisch im Hintergrund neu geladen
+    private void refreshPopularityIfStale() {
+        if (System.currentTimeMillis() - builtAt < popularityRefresh.toMillis() || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                logger.warn(" Vorschlagsindex konnte nicht aktualisiert werden: {}", e.getMessage());
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    private Map<String, Long> loadUnitsSold() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.unwind("items"),
+                Aggregation.group("items.productId").sum("items.quantity").as("units"));
+        Map<String, Long> sold = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Order.class, Document.class).getMappedResults()) {
+            Object id = row.get("_id");
+            Object units = row.get("units");
+            if (id != null && units instanceof Number number) {
+                sold.put(id.toString(), number.longValue());
+            }
+        }
+        return sold;
+    }
+
+    private void putProduct(String id, ProductSource source) {
+        products.put(id, source);
+        if (source.categoryId() != null) {
+            productsPerCategory.merge(source.categoryId(), 1, Integer::sum);
+        }
+    }
+
+    private ProductSource removeProduct(String id) {
+        ProductSource old = products.remove(id);
+        if (old != null && old.categoryId() != null) {
+            productsPerCategory.computeIfPresent(old.categoryId(), (key, count) -> count > 1 ? count - 1 : null);
+        }
+        return old;
+    }
+
+    private Suggestion productSuggestion(String id) {
+        return new Suggestion(PRODUCT, id, Objects.toString(products.get(id).name(), ""), unitsSold.getOrDefault(id, 0L));
+    }
+
+    private Suggestion categorySuggestion(String id) {
+        return new Suggestion(CATEGORY, id, Objects.toString(categoryNames.get(id), ""), productsPerCategory.getOrDefault(id, 0));
+    }
+
+    /*
+     Einträge der `removedOwners` entfernen und die neuen Vorschläge eintragen. Kosten: O(log N) je
+     Schlüssel plus die Top-N der Kurz-Präfixe, deren Bereich sich dabei geändert hat.
+     */
+    private void update(Index target, Set<String> removedOwners, List<Suggestion> added) {
+        Set<String> touched = new HashSet<>();
+        for (String owner : removedOwners) {
+            Suggestion old = target.byOwner().remove(owner);
+            if (old == null) {
+                continue;
+            }
+            for (String key : keysFor(old.text())) {
+                target.entries().remove(entryKey(key, old));
+                addShortPrefixes(key, touched);
+            }
+        }
+        for (Suggestion suggestion : added) {
+            target.byOwner().put(suggestion.owner(), suggestion);
+            for (String key : keysFor(suggestion.text())) {
+                target.entries().put(entryKey(key, suggestion), suggestion);
+                addShortPrefixes(key, touched);
+            }
+        }
+        for (String prefix : touched) {
+            Suggestion[] top = topN(range(target, prefix), maxResults);
+            if (top.length == 0) {
+                target.shortPrefixTop().remove(prefix);
+            } else {
+                target.shortPrefixTop().put(prefix, top);
+            }
+        }
+    }
+
+    private static void addShortPrefixes(String key, Set<String> prefixes) {
+        for (int length = 1; length <= Math.min(SHORT_PREFIX_LENGTH, key.length()); length++) {
+            prefixes.add(key.substring(0, length));
+        }
+    }
+
+    private static String entryKey(String key, Suggestion suggestion) {
+        return key + '\0' + suggestion.owner();
+    }
+
+    private static Collection<Suggestion> range(Index index, String prefix) {
+        return index.entries().subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+    }
+
+    //  Die N beliebtesten Vorschläge im Bereich, jeder Vorschlag nur einmal
+    private static Suggestion[] topN(Collection<Suggestion> candidates, int n) {
+        PriorityQueue<Suggestion> heap = new PriorityQueue<>(RANKING.reversed());
+        Set<Suggestion> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Suggestion candidate : candidates) {
+            if (!seen.add(candidate)) {
+                continue;
+            }
+            if (heap.size() < n) {
+                heap.add(candidate);
+            } else if (RANKING.compare(candidate, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        Suggestion[] result = heap.toArray(new Suggestion[0]);
+        Arrays.sort(result, RANKING);
+        return result;
+    }
+
+    //  "Gaming Laptop Pro" -> "gaming laptop pro", "laptop pro", "pro"
+    private static List<String> keysFor(String text) {
+        List<String> words = words(text);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < Math.min(words.size(), MAX_WORDS_PER_NAME); i++) {
+            keys.add(String.join(" ", words.subList(i, words.size())));
+        }
+        return keys;
+    }
+
+    //  Gleiche Normalisierung wie die Volltextsuche; ein Leerzeichen am Ende bleibt erhalten ("gaming " ≠ "gamingx")
+    private static String normalizePrefix(String prefix) {
+        if (prefix == null) {
+            return "";
+        }
+        String key = String.join(" ", words(prefix));
+        boolean wordFinished = !key.isEmpty() && WORD_SEPARATOR.matcher(prefix.substring(prefix.length() - 1)).matches();
+        return wordFinished ? key + " " : key;
+    }
+
+    private static List<String> words(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(WORD_SEPARATOR.split(ProductSearchIndex.normalize(text)))
+                .filter(word -> !word.isEmpty())
+                .toList();
+    }
+}
@@ -0,0 +1,198 @@
+package java_work.de.backend.service;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ Meldet Abfragen, die MongoDB per COLLSCAN (ohne Index) ausführt.
+ Lauscht als CommandListener auf alle find/count/aggregate/findAndModify-Befehle, bildet daraus eine
+ "Form" (Collection + Filterfelder ohne Werte + Sortierung) und lässt jede neue Form einmal per
+ `explain` im Hintergrund prüfen. Treffer landen im Log und in der Metrik `mongo.queries.collscan`.
+ Abfragen ohne Filter (findAll) sind bewusst Vollscans und werden ignoriert.
+ */
+@Component
+public class QueryPlanMonitor implements CommandListener, MongoClientSettingsBuilderCustomizer {
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanMonitor.class);
+    private static final Set<String> IGNORED_COLLECTIONS = Set.of("change_stream_state");
+
+    private final ObjectProvider<MongoTemplate> mongoTemplate; // lazy, da der MongoClient diesen Listener braucht
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final boolean strict;
+    private final Map<String, Boolean> checkedShapes = new ConcurrentHashMap<>(); // Form -> COLLSCAN?
+    private final ThreadPoolExecutor executor;
+
+    public QueryPlanMonitor(ObjectProvider<MongoTemplate> mongoTemplate, MeterRegistry meterRegistry,
+                            @Value("${mongo.indexes.collscan-report.enabled:true}") boolean enabled,
+                            @Value("${mongo.indexes.strict:false}") boolean strict) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.strict = strict;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100), runnable -> {
+            Thread thread = new Thread(runnable, "query-plan-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //  Beschreibung einer Abfrage für explain
+    public record QueryShape(String collection, Document filter, Document sort) {
+        public String describe() {
+            return collection + " " + shapeOf(filter).toJson() + (sort == null || sort.isEmpty() ? "" : " sort " + sort.toJson());
+        }
+    }
+
+    @Override
+    public void customize(MongoClientSettings.Builder builder) {
+        if (enabled) {
+            builder.addCommandListener(this);
+        }
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String commandName = event.getCommandName();
+        if (!List.of("find", "count", "aggregate", "findAndModify").contains(commandName)
+                || !event.getCommand().isString(commandName)) {
+            return;
+        }
+        //  Das Kommando ist nur während dieses Callbacks gültig, daher sofort kopieren
+        BsonDocument command = event.getCommand();
+        String collection = command.getString(commandName).getValue();
+        BsonDocument filter = filterOf(commandName, command);
+        if (filter == null || filter.isEmpty() || IGNORED_COLLECTIONS.contains(collection)) {
+            return;
+        }
+        BsonDocument sort = command.isDocument("sort") ? command.getDocument("sort") : new BsonDocument();
+        QueryShape shape = new QueryShape(collection, toDocument(filter), toDocument(sort));
+        String key = shape.describe();
+        if (checkedShapes.putIfAbsent(key, Boolean.FALSE) != null) {
+            return;
+        }
+        String database = event.getDatabaseName();
+        try {
+            executor.execute(() -> check(database, key, shape));
+        } catch (RejectedExecutionException e) {
+            checkedShapes.remove(key); // Beim nächsten Auftreten erneut versuchen
+        }
+    }
+
+    private void check(String database, String key, QueryShape shape) {
+        try {
+            if (usesCollectionScan(database, shape)) {
+                checkedShapes.put(key, Boolean.TRUE);
+                meterRegistry.counter("mongo.queries.collscan", "collection", shape.collection()).increment();
+                if (strict) {
+                    logger.error(" COLLSCAN (strict): {}", key);
+                } else {
+                    logger.warn(" COLLSCAN: {} – passender Index fehlt", key);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.debug(" explain für {} fehlgeschlagen: {}", key, e.getMessage());
+        }
+    }
+
+    //  Alle bisher erkannten Formen, die per COLLSCAN liefen
+    public List<String> collectionScans() {
+        return checkedShapes.entrySet().stream()
+                .filter(Map.Entry::getValue)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+
+    //  explain (queryPlanner) ausführen und den Gewinnerplan nach einer COLLSCAN-Stufe durchsuchen
+    public boolean usesCollectionScan(String database, QueryShape shape) {
+        MongoTemplate template = mongoTemplate.getObject();
+        Document find = new Document("find", shape.collection()).append("filter", shape.filter());
+        if (shape.sort() != null && !shape.sort().isEmpty()) {
+            find.append("sort", shape.sort());
+        }
+        MongoDatabase db = database == null ? template.getDb() : template.getMongoDatabaseFactory().getMongoDatabase(database);
+        Document explain = db.runCommand(new Document("explain", find).append("verbosity", "queryPlanner"));
+        Object planner = explain.get("queryPlanner");
+        return planner instanceof Document queryPlanner && containsStage(queryPlanner.get("winningPlan"), "COLLSCAN");
+    }
+
+    private static boolean containsStage(Object plan, String stage) {
+        if (plan instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (plan instanceof List<?> list) {
+            return list.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+
+    private static BsonDocument filterOf(String commandName, BsonDocument command) {
+        switch (commandName) {
+            case "find":
+                return command.isDocument("filter") ? command.getDocument("filter") : null;
+            case "count":
+            case "findAndModify":
+                return command.isDocument("query") ? command.getDocument("query") : null;
+            default:
+                //  aggregate: nur ein $match als erste Stufe kann einen Index nutzen
+                BsonArray pipeline = command.isArray("pipeline") ? command.getArray("pipeline") : new BsonArray();
+                if (!pipeline.isEmpty() && pipeline.get(0).isDocument() && pipeline.get(0).asDocument().isDocument("$match")) {
+                    return pipeline.get(0).asDocument().getDocument("$match");
+                }
+                return null;
+        }
+    }
+
+    //  Werte durch "?" ersetzen, damit gleiche Abfragen mit anderen Parametern dieselbe Form haben
+    private static Document shapeOf(Document filter) {
+        Document shape = new Document();
+        filter.forEach((key, value) -> shape.append(key, shapeOfValue(value)));
+        return shape;
+    }
+
+    private static Object shapeOfValue(Object value) {
+        if (value instanceof Document document) {
+            return shapeOf(document);
+        }
+        if (value instanceof List<?> list) {
+            return list.isEmpty() ? List.of() : List.of(shapeOfValue(list.get(0)));
+        }
+        return "?";
+    }
+
+    private static Document toDocument(BsonValue value) {
+        return Document.parse(value.asDocument().toJson());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
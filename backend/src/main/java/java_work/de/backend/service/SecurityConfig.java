@@ -1,5 +1,6 @@
 package java_work.de.backend.service;
 
+import jakarta.servlet.DispatcherType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
@@ -45,7 +46,17 @@ public class SecurityConfig {
                 }))
                 .csrf(AbstractHttpConfigurer::disable) // CSRF-Schutz deaktivieren
                 .authorizeHttpRequests(auth -> {
+                    //  Zweiter Durchlauf nach StreamingResponseBody (Exporte): der Request wurde schon geprüft
+                    auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
                     auth.requestMatchers(HttpMethod.GET, "/api/products/**").permitAll();
+                    auth.requestMatchers(HttpMethod.POST, "/api/products/batch").permitAll(); // Multi-Get, nur lesend
+                    auth.requestMatchers(HttpMethod.GET, "/api/images/**").permitAll();
+                    auth.requestMatchers(HttpMethod.GET, "/api/categories/tree").permitAll();
+                    //  Kategorien verschieben, Baum neu aufbauen: nur Admin (@PreAuthorize ist ohne @EnableMethodSecurity wirkungslos)
+                    auth.requestMatchers(HttpMethod.PUT, "/api/categories/**").hasAuthority(ROLE_ADMIN);
+                    auth.requestMatchers(HttpMethod.POST, "/api/categories/**").hasAuthority(ROLE_ADMIN);
+                    auth.requestMatchers("/actuator/health").permitAll();
+                    auth.requestMatchers("/actuator/**").hasAuthority(ROLE_ADMIN);
                     auth.requestMatchers("/api/auth/register", "/api/auth/login").permitAll();
 
                     //  Admin-Rechte
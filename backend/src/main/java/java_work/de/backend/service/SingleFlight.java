@@ -0,0 +1,55 @@
+package java_work.de.backend.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+ Request Coalescing ("single flight"): Verpassen viele Threads gleichzeitig den Cache für denselben
+ Schlüssel, lädt nur der erste, alle anderen warten auf genau dieses Ergebnis (oder dieselbe Exception).
+ Es wird nichts gespeichert – sobald der Ladevorgang fertig ist, startet der nächste Aufruf neu.
+ Das Cachen des Ergebnisses bleibt Sache des Aufrufers (z. B. ProductCache).
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            V value = loader.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    //  Anzahl gerade laufender Ladevorgänge (für Tests und Metriken)
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    //  Wartende bekommen die Original-Exception des Ladenden (z. B. NoSuchElementException -> 404)
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
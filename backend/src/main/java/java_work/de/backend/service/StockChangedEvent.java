@@ -0,0 +1,13 @@
+package java_work.de.backend.service;
+
+/*
+ Nur der Bestand eines Produkts hat sich geändert (Checkout, Storno, Ledger-Flush) – lokal oder
+ auf einem anderen Knoten (`remote = true`). Name, Preis und Kategorie sind gleich geblieben,
+ deshalb reagieren Suchindex, Vorschläge und Kategoriebaum bewusst nicht darauf. Der ProductCache
+ verwirft das Produkt und die Listen (sie zeigen den Bestand) und zählt die CatalogVersion hoch.
+ */
+public record StockChangedEvent(
+        String productId,
+        boolean remote
+) {
+}
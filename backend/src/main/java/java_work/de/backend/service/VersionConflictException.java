@@ -0,0 +1,29 @@
+package java_work.de.backend.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+//  Änderung abgelehnt, weil das Dokument inzwischen eine neuere Version hat; `current` ist der aktuelle Stand (DTO)
+public class VersionConflictException extends OptimisticLockingFailureException {
+    private final String entity;
+    private final String id;
+    private final Object current;
+
+    public VersionConflictException(String entity, String id, Object current) {
+        super("Konflikt: " + entity + " " + id + " wurde gleichzeitig geändert");
+        this.entity = entity;
+        this.id = id;
+        this.current = current;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Object getCurrent() {
+        return current;
+    }
+}
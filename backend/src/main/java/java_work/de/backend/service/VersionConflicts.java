@@ -0,0 +1,27 @@
+package java_work.de.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/*
+ Zählt Versionskonflikte (Optimistic Locking) als `version.conflicts{entity, outcome}`:
+ - outcome=retried:  Änderung wurde auf dem neuen Stand erneut angewendet
+ - outcome=rejected: Client bekommt 409 mit dem aktuellen Stand
+ Die Rate im Verhältnis zu den Schreibzugriffen zeigt, wo es Gedränge gibt.
+ */
+@Component
+public class VersionConflicts {
+    private final MeterRegistry meterRegistry;
+
+    public VersionConflicts(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void retried(String entity) {
+        meterRegistry.counter("version.conflicts", "entity", entity, "outcome", "retried").increment();
+    }
+
+    public void rejected(String entity) {
+        meterRegistry.counter("version.conflicts", "entity", entity, "outcome", "rejected").increment();
+    }
+}
@@ -0,0 +1,48 @@
+package java_work.de.backend.service;
+
+import java_work.de.backend.model.Cart;
+import java_work.de.backend.model.Order;
+import java_work.de.backend.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/*
+ Altdaten ohne `version` bekommen `version: 0`. Nötig für @Version: Ein Dokument ohne Version hält
+ Spring Data für neu, save() würde es einfügen statt ersetzen (DuplicateKeyException auf _id).
+ Läuft bei jedem Start, bevor der Webserver Requests annimmt; nach dem ersten Mal findet es nichts mehr.
+ */
+@Component
+public class VersionMigration implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(VersionMigration.class);
+    private static final List<Class<?>> ENTITIES = List.of(Product.class, Order.class, Cart.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public VersionMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (Class<?> entity : ENTITIES) {
+            try {
+                long migrated = mongoTemplate.updateMulti(new Query(Criteria.where("version").exists(false)),
+                        new Update().set("version", 0L), entity).getModifiedCount();
+                if (migrated > 0) {
+                    logger.info(" {} Dokumente in {} mit version 0 versehen", migrated, mongoTemplate.getCollectionName(entity));
+                }
+            } catch (DataAccessException e) {
+                logger.error(" Versionsfeld für {} konnte nicht nachgetragen werden", entity.getSimpleName(), e);
+            }
+        }
+    }
+}
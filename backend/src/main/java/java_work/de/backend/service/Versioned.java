@@ -0,0 +1,11 @@
+package java_work.de.backend.service;
+
+import java.time.Instant;
+
+//  Antwort plus Versionsstand für ETag / Last-Modified (lastModified kann null sein)
+public record Versioned<T>(
+        T body,
+        String etag,
+        Instant lastModified
+) {
+}
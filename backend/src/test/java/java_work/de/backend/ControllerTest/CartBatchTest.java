@@ -0,0 +1,155 @@
+package java_work.de.backend.ControllerTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.contoller.CartController;
+import java_work.de.backend.contoller.GlobalExceptionHandler;
+import java_work.de.backend.model.Cart;
+import java_work.de.backend.model.CartItem;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.repo.CartRepository;
+import java_work.de.backend.service.CartService;
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ProductService;
+import java_work.de.backend.service.VersionConflicts;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class CartBatchTest {
+
+    private static final String USER_EMAIL = "test@example.com";
+
+    private MongoTemplate mongoTemplate;
+    private CartRepository cartRepository;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        cartRepository = mock(CartRepository.class);
+        ProductService productService = mock(ProductService.class);
+        when(productService.findProductMap(any())).thenAnswer(invocation -> {
+            Map<String, Product> found = new HashMap<>();
+            for (String id : invocation.<Collection<String>>getArgument(0)) {
+                if (id.startsWith("prod-")) {
+                    found.put(id, new Product(new ObjectId(), "Produkt " + id, null, 10.0, 5, List.of(), "cat-1", 0L, null));
+                }
+            }
+            return found;
+        });
+        CartService cartService = new CartService(cartRepository, mongoTemplate, productService,
+                mock(ImageRenditionService.class), Optional.empty(), new VersionConflicts(new SimpleMeterRegistry()), 12);
+        mockMvc = MockMvcBuilders.standaloneSetup(new CartController(cartService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void quickAddOfTenItems_isOneReadAndOneConditionalWrite() throws Exception {
+        when(cartRepository.findByUserEmail(USER_EMAIL)).thenReturn(Optional.of(
+                new Cart(new ObjectId(), USER_EMAIL, List.of(new CartItem("prod-alt", 1, 3.0)), 7L)));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenAnswer(invocation -> new Cart(new ObjectId(), USER_EMAIL,
+                        writtenItems(invocation.getArgument(1)), 8L));
+        StringBuilder operations = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            operations.append("{\"type\":\"ADD\",\"productId\":\"prod-").append(i % 5).append("\",\"quantity\":1},");
+        }
+        operations.append("{\"type\":\"UPDATE\",\"productId\":\"prod-0\",\"quantity\":5},");
+        operations.append("{\"type\":\"REMOVE\",\"productId\":\"prod-alt\"}");
+
+        mockMvc.perform(post("/api/cart/{userEmail}/batch", USER_EMAIL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[" + operations + "]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(5))
+                .andExpect(jsonPath("$.items[0].productId").value("prod-0"))
+                .andExpect(jsonPath("$.items[0].quantity").value(5))
+                .andExpect(jsonPath("$.items[1].quantity").value(2));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(1)).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Cart.class));
+        assertTrue(query.getValue().getQueryObject().toJson().contains("\"version\": 7"));
+        verify(cartRepository, times(1)).findByUserEmail(USER_EMAIL);
+    }
+
+    @Test
+    void concurrentChange_isRetriedOnFreshState() throws Exception {
+        when(cartRepository.findByUserEmail(USER_EMAIL))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new Cart(new ObjectId(), USER_EMAIL, List.of(new CartItem("prod-1", 2, 10.0)), 1L)));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error: userEmail"))
+                .thenAnswer(invocation -> new Cart(new ObjectId(), USER_EMAIL, writtenItems(invocation.getArgument(1)), 2L));
+
+        mockMvc.perform(post("/api/cart/{userEmail}/batch", USER_EMAIL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[{\"type\":\"ADD\",\"productId\":\"prod-1\",\"quantity\":1}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].quantity").value(3)); //  Der andere Tab hat schon 2 hinzugefügt
+    }
+
+    @Test
+    void persistentConflict_returns409WithCurrentCart() throws Exception {
+        when(cartRepository.findByUserEmail(USER_EMAIL)).thenReturn(Optional.of(
+                new Cart(new ObjectId(), USER_EMAIL, List.of(new CartItem("prod-1", 4, 10.0)), 9L)));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error: userEmail"));
+
+        mockMvc.perform(post("/api/cart/{userEmail}/batch", USER_EMAIL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[{\"type\":\"ADD\",\"productId\":\"prod-1\",\"quantity\":1}]}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.entity").value("cart"))
+                .andExpect(jsonPath("$.current.items[0].quantity").value(4));
+    }
+
+    @Test
+    void invalidBatches_changeNothing() throws Exception {
+        mockMvc.perform(post("/api/cart/{userEmail}/batch", USER_EMAIL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[{\"type\":\"ADD\",\"productId\":\"prod-1\",\"quantity\":1},"
+                                + "{\"type\":\"ADD\",\"productId\":\"unbekannt\",\"quantity\":1}]}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/cart/{userEmail}/batch", USER_EMAIL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[]}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/cart/{userEmail}/batch", USER_EMAIL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operations\":[" + "{\"type\":\"REMOVE\",\"productId\":\"prod-1\"},".repeat(12)
+                                + "{\"type\":\"REMOVE\",\"productId\":\"prod-1\"}]}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<CartItem> writtenItems(Update update) {
+        return (List<CartItem>) update.getUpdateObject().get("$set", Document.class).get("items");
+    }
+}
@@ -0,0 +1,84 @@
+package java_work.de.backend.ControllerTest;
+
+import java_work.de.backend.contoller.CategoryController;
+import java_work.de.backend.service.CatalogVersion;
+import java_work.de.backend.service.CategoryServic;
+import java_work.de.backend.service.JwtUtil;
+import java_work.de.backend.service.SecurityConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//  Prüft die URL-Regeln aus SecurityConfig: @PreAuthorize am Controller ist ohne @EnableMethodSecurity wirkungslos
+@WebMvcTest(CategoryController.class)
+@Import(SecurityConfig.class)
+class CategoryControllerSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private JwtUtil jwtUtil;
+
+    @MockitoBean
+    private UserDetailsService userDetailsService;
+
+    @MockitoBean
+    private CategoryServic categoryService;
+
+    @MockitoBean
+    private CatalogVersion catalogVersion;
+
+    @BeforeEach
+    void setUp() {
+        when(jwtUtil.validateToken("user-token")).thenReturn("kunde@example.com");
+        when(jwtUtil.getRoleFromToken("user-token")).thenReturn("ROLE_USER");
+        when(jwtUtil.validateToken("admin-token")).thenReturn("admin@example.com");
+        when(jwtUtil.getRoleFromToken("admin-token")).thenReturn("ROLE_ADMIN");
+    }
+
+    @Test
+    void moveCategory_asUser_isForbidden() throws Exception {
+        mockMvc.perform(put("/api/categories/c1/parent")
+                        .header("Authorization", "Bearer user-token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"parentId\":\"c2\"}"))
+                .andExpect(status().isForbidden());
+
+        verify(categoryService, never()).moveCategory(any(), any());
+    }
+
+    @Test
+    void rebuildCategoryTree_asUser_isForbidden() throws Exception {
+        mockMvc.perform(post("/api/categories/tree/rebuild")
+                        .header("Authorization", "Bearer user-token"))
+                .andExpect(status().isForbidden());
+
+        verify(categoryService, never()).rebuildCategoryTree();
+    }
+
+    @Test
+    void rebuildCategoryTree_asAdmin_isAllowed() throws Exception {
+        when(categoryService.rebuildCategoryTree()).thenReturn(List.of());
+
+        mockMvc.perform(post("/api/categories/tree/rebuild")
+                        .header("Authorization", "Bearer admin-token"))
+                .andExpect(status().isOk());
+
+        verify(categoryService).rebuildCategoryTree();
+    }
+}
@@ -0,0 +1,110 @@
+package java_work.de.backend.ControllerTest;
+
+import java_work.de.backend.contoller.GlobalExceptionHandler;
+import java_work.de.backend.contoller.ImageController;
+import java_work.de.backend.service.FileSystemImageStore;
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ImageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ImageControllerTest {
+
+    //  PNG-Signatur + 8 Bytes Inhalt = 16 Bytes
+    private static final byte[] PNG = "\u0089PNG\r\n\u001a\n01234567".getBytes(StandardCharsets.ISO_8859_1);
+
+    @TempDir
+    Path baseDir;
+
+    private ImageRenditionService renditionService;
+    private MockMvc mockMvc;
+    private String hash;
+
+    @BeforeEach
+    void setUp() {
+        FileSystemImageStore imageStore = new FileSystemImageStore(baseDir.toString());
+        hash = imageStore.store(PNG);
+        renditionService = mock(ImageRenditionService.class);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new ImageController(imageStore, new ImageService(imageStore), renditionService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void fullImage_isImmutable_withHashAsStrongETag() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/images/{hash}", hash))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + hash + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().bytes(PNG));
+    }
+
+    @Test
+    void matchingIfNoneMatch_returns304WithoutBody() throws Exception {
+        mockMvc.perform(get("/api/images/{hash}", hash).header(HttpHeaders.IF_NONE_MATCH, "\"andere\", W/\"" + hash + "\""))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void singleRange_returns206WithContentRange() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/images/{hash}", hash).header(HttpHeaders.RANGE, "bytes=8-11"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 8-11/16"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(content().string("0123"));
+    }
+
+    @Test
+    void unsatisfiableRange_returns416WithSize() throws Exception {
+        mockMvc.perform(get("/api/images/{hash}", hash).header(HttpHeaders.RANGE, "bytes=100-200"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */16"));
+    }
+
+    @Test
+    void missingRendition_fallsBackToOriginal_withShortCaching() throws Exception {
+        when(renditionService.resolve(eq(hash), any())).thenReturn(Optional.empty());
+
+        MvcResult result = mockMvc.perform(get("/api/images/{hash}", hash).param("variant", "thumbnail"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"))
+                .andExpect(content().bytes(PNG));
+        mockMvc.perform(get("/api/images/{hash}", "f".repeat(64)))
+                .andExpect(status().isNotFound());
+    }
+}
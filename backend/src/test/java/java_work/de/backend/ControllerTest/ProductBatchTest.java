@@ -0,0 +1,118 @@
+package java_work.de.backend.ControllerTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.contoller.GlobalExceptionHandler;
+import java_work.de.backend.contoller.ProductController;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.repo.CategoryRepository;
+import java_work.de.backend.repo.ProductRepository;
+import java_work.de.backend.service.CatalogVersion;
+import java_work.de.backend.service.CategoryResolver;
+import java_work.de.backend.service.CategoryTree;
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ImageService;
+import java_work.de.backend.service.ImageStore;
+import java_work.de.backend.service.ProductCache;
+import java_work.de.backend.service.ProductSearchIndex;
+import java_work.de.backend.service.ProductService;
+import java_work.de.backend.service.ProductSuggester;
+import java_work.de.backend.service.VersionConflicts;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ProductBatchTest {
+
+    private final Product lampe = product("Lampe");
+    private final Product tisch = product("Tisch");
+    private final Product stuhl = product("Stuhl");
+
+    private MongoTemplate mongoTemplate;
+    private ProductRepository productRepository;
+    private ProductCache productCache;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        productRepository = mock(ProductRepository.class);
+        CatalogVersion catalogVersion = new CatalogVersion();
+        productCache = new ProductCache(new SimpleMeterRegistry(), catalogVersion, 1_000_000, 1_000, Duration.ofMinutes(1),
+                Duration.ofSeconds(30));
+        ProductService productService = new ProductService(productRepository, mock(CategoryRepository.class), mongoTemplate,
+                new ImageService(mock(ImageStore.class)), mock(ImageRenditionService.class), productCache,
+                mock(ProductSearchIndex.class), mock(CategoryResolver.class), mock(CategoryTree.class), mock(ApplicationEventPublisher.class),
+                Optional.empty(), new VersionConflicts(new SimpleMeterRegistry()), 20, 100, 4);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new ProductController(productService, mock(ProductSuggester.class), catalogVersion))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void batch_keepsRequestOrder_listsMissingIds_andUsesOneInQuery() throws Exception {
+        productCache.putProduct(tisch, productCache.generation()); //  warm: kommt aus dem Cache
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of(lampe, stuhl));
+        String unknown = new ObjectId().toHexString();
+
+        mockMvc.perform(post("/api/products/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"ids":["%s","%s","kaputt","%s"]}
+                                """.formatted(stuhl.id(), tisch.id(), lampe.id())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].name").value(contains("Stuhl", "Tisch", "Lampe")))
+                .andExpect(jsonPath("$.missing").value(contains("kaputt")));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(1)).find(query.capture(), eq(Product.class));
+        List<?> ids = query.getValue().getQueryObject().get("_id", Document.class).getList("$in", Object.class);
+        assertEquals(List.of(stuhl.id(), lampe.id()), ids); //  tisch war im Cache, "kaputt" ist keine ObjectId
+        verifyNoInteractions(productRepository);
+
+        mockMvc.perform(get("/api/products").param("ids", tisch.id().toHexString() + "," + unknown))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Tisch"))
+                .andExpect(jsonPath("$.missing[0]").value(unknown));
+    }
+
+    @Test
+    void batch_tooManyIds_isRejected_butDuplicatesCountOnce() throws Exception {
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of(lampe));
+        String id = lampe.id().toHexString();
+
+        mockMvc.perform(get("/api/products").param("ids", String.join(",", id, id, id, id)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1));
+
+        mockMvc.perform(get("/api/products").param("ids", String.join(",", "a", "b", "c", "d", "e")))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/products/batch").contentType(MediaType.APPLICATION_JSON).content("{\"ids\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static Product product(String name) {
+        return new Product(new ObjectId(), name, null, 10.0, 1, List.of(), "cat-1", 0L, null);
+    }
+}
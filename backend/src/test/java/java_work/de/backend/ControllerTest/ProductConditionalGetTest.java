@@ -0,0 +1,118 @@
+package java_work.de.backend.ControllerTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.contoller.ProductController;
+import java_work.de.backend.dto.PageDTO;
+import java_work.de.backend.dto.ProductDTO;
+import java_work.de.backend.service.CatalogVersion;
+import java_work.de.backend.service.ProductCache;
+import java_work.de.backend.service.ProductChangedEvent;
+import java_work.de.backend.service.ProductService;
+import java_work.de.backend.service.ProductSuggester;
+import java_work.de.backend.service.StockChangedEvent;
+import java_work.de.backend.service.Versioned;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ProductConditionalGetTest {
+
+    private ProductService productService;
+    private CatalogVersion catalogVersion;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        productService = mock(ProductService.class);
+        catalogVersion = new CatalogVersion();
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new ProductController(productService, mock(ProductSuggester.class), catalogVersion))
+                .build();
+        when(productService.findProductPage(null, null)).thenReturn(new PageDTO<>(List.of(), null));
+    }
+
+    @Test
+    void productList_unchangedCatalog_answers304WithoutLoading() throws Exception {
+        String etag = mockMvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(productService, times(1)).findProductPage(null, null);
+
+        catalogVersion.advance();
+        mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        verify(productService, times(2)).findProductPage(null, null);
+    }
+
+    @Test
+    void productList_afterReservation_answers200WithNewStock() throws Exception {
+        ProductCache cache = new ProductCache(new SimpleMeterRegistry(), catalogVersion, 1_000_000, 1_000, Duration.ofMinutes(1),
+                Duration.ofSeconds(30));
+        ProductDTO lampe = new ProductDTO("p1", "Lampe", null, 19.9, 3, List.of(), "cat-1");
+        when(productService.findProductPage(null, null)).thenReturn(new PageDTO<>(List.of(lampe), null));
+        String etag = mockMvc.perform(get("/api/products"))
+                .andExpect(jsonPath("$.items[0].stock").value(3))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        //  Checkout reserviert 1 Stück: InventoryService meldet nur eine Bestandsänderung
+        ProductDTO reserved = new ProductDTO("p1", "Lampe", null, 19.9, 2, List.of(), "cat-1");
+        when(productService.findProductPage(null, null)).thenReturn(new PageDTO<>(List.of(reserved), null));
+        cache.onStockChanged(new StockChangedEvent("p1", false));
+
+        mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].stock").value(2));
+    }
+
+    @Test
+    void singleProduct_usesProductVersionAndUpdatedAt() throws Exception {
+        Instant updatedAt = Instant.parse("2026-03-01T10:15:30Z");
+        ProductDTO dto = new ProductDTO("p1", "Lampe", null, 19.9, 3, List.of(), "cat-1");
+        when(productService.findVersionedProductById("p1")).thenReturn(new Versioned<>(dto, "\"p1-4-3\"", updatedAt));
+
+        mockMvc.perform(get("/api/products/p1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"p1-4-3\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED));
+
+        mockMvc.perform(get("/api/products/p1").header(HttpHeaders.IF_NONE_MATCH, "\"p1-4-3\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/products/p1").header(HttpHeaders.IF_NONE_MATCH, "\"p1-3-3\""))
+                .andExpect(status().isOk());
+
+        String since = DateTimeFormatter.RFC_1123_DATE_TIME.format(updatedAt.atOffset(ZoneOffset.UTC));
+        mockMvc.perform(get("/api/products/p1").header(HttpHeaders.IF_MODIFIED_SINCE, since))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void productChange_advancesCatalogVersion_afterCacheInvalidation() {
+        ProductCache cache = new ProductCache(new SimpleMeterRegistry(), catalogVersion, 1_000_000, 1_000, Duration.ofMinutes(1),
+                Duration.ofSeconds(30));
+        String before = catalogVersion.etag();
+
+        cache.onProductChanged(ProductChangedEvent.deleted("p1"));
+
+        assertEquals(1, catalogVersion.generation());
+        assertNotEquals(before, catalogVersion.etag());
+    }
+}
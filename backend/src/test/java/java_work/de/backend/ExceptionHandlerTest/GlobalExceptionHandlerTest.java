@@ -81,6 +81,16 @@ class GlobalExceptionHandlerTest {
         assertEquals("Fehler: Ungültige JSON-Daten!", response.getBody());
     }
 
+    @Test
+    void handleIllegalArgument_shouldReturnBadRequest() {
+        IllegalArgumentException ex = new IllegalArgumentException("Ungültiger Cursor: abc");
+
+        var response = exceptionHandler.handleIllegalArgument(ex);
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals("Fehler: Ungültiger Cursor: abc", response.getBody());
+    }
+
     @Test
     void handleAllExceptions_shouldReturnInternalServerError() {
         Exception ex = new Exception("Testfehler");
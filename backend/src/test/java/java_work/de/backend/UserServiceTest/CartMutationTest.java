@@ -0,0 +1,214 @@
+package java_work.de.backend.UserServiceTest;
+
+import com.mongodb.client.result.DeleteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.dto.CartDTO;
+import java_work.de.backend.dto.CartItemRequestDTO;
+import java_work.de.backend.model.Cart;
+import java_work.de.backend.model.CartItem;
+import java_work.de.backend.model.OrderItem;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.repo.CartRepository;
+import java_work.de.backend.service.CartService;
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ProductService;
+import java_work.de.backend.service.VersionConflicts;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CartMutationTest {
+
+    private static final String USER_EMAIL = "test@example.com";
+
+    private MongoTemplate mongoTemplate;
+    private CartRepository cartRepository;
+    private ProductService productService;
+    private CartService cartService;
+    private final Map<String, Product> catalog = new HashMap<>();
+
+    private final CartItemRequestDTO lampe = new CartItemRequestDTO("prod-1", 2);
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        cartRepository = mock(CartRepository.class);
+        productService = mock(ProductService.class);
+        catalog.put("prod-1", product("Lampe", 19.99, "a".repeat(64)));
+        catalog.put("prod-2", product("Tisch", 120.0, "b".repeat(64)));
+        when(productService.findProductMap(any())).thenAnswer(invocation -> {
+            Map<String, Product> found = new HashMap<>();
+            for (String id : invocation.<Collection<String>>getArgument(0)) {
+                if (catalog.containsKey(id)) {
+                    found.put(id, catalog.get(id));
+                }
+            }
+            return found;
+        });
+        ImageRenditionService renditionService = mock(ImageRenditionService.class);
+        when(renditionService.toUrls(anyList(), any())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0).stream()
+                .map(hash -> "/api/images/" + hash + "?variant=thumbnail").toList());
+        cartService = new CartService(cartRepository, mongoTemplate, productService, renditionService, Optional.empty(),
+                new VersionConflicts(new SimpleMeterRegistry()), 100);
+    }
+
+    @Test
+    void addToCart_existingLine_isOneInPlaceIncrement() {
+        Cart updated = cart(new CartItem("prod-1", 5, 19.99));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(updated);
+
+        CartDTO result = cartService.addToCart(USER_EMAIL, lampe);
+
+        assertEquals(5, result.items().get(0).quantity());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(Cart.class));
+        assertEquals("prod-1", query.getValue().getQueryObject().get("items.productId"));
+        assertEquals(2, update.getValue().getUpdateObject().get("$inc", Document.class).get("items.$.quantity"));
+        verifyNoInteractions(cartRepository); //  Kein Laden und kein save() des ganzen Dokuments
+    }
+
+    @Test
+    void addToCart_newLine_isPushedWithUpsert() {
+        Cart created = cart(new CartItem("prod-1", 2, 19.99));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(null, created);
+
+        cartService.addToCart(USER_EMAIL, lampe);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate, times(2)).findAndModify(query.capture(), update.capture(), options.capture(), eq(Cart.class));
+        Document filter = query.getAllValues().get(1).getQueryObject();
+        assertEquals(new Document("$ne", "prod-1"), filter.get("items.productId"));
+        assertTrue(update.getAllValues().get(1).getUpdateObject().containsKey("$push"));
+        assertTrue(options.getAllValues().get(1).isUpsert());
+    }
+
+    @Test
+    void addToCart_racingTab_pushedTheSameProductFirst_fallsBackToIncrement() {
+        //  1. $inc trifft nichts, 2. anderer Tab pusht das Produkt, unser Upsert kollidiert, 3. $inc greift
+        Cart afterBothTabs = cart(new CartItem("prod-1", 4, 19.99));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(null)
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error: userEmail"))
+                .thenReturn(afterBothTabs);
+
+        CartDTO result = cartService.addToCart(USER_EMAIL, lampe);
+
+        assertEquals(4, result.items().get(0).quantity()); //  Beide Hinzufügungen sind erhalten
+        verify(mongoTemplate, times(3)).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(Cart.class));
+    }
+
+    @Test
+    void updateQuantity_zeroPullsTheLine_andRemoveOfUnknownCartFails() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(cart(), (Cart) null);
+
+        CartDTO result = cartService.updateCartQuantity(USER_EMAIL, "prod-1", 0);
+
+        assertTrue(result.items().isEmpty());
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(Cart.class));
+        assertEquals(new Document("items", new Document("productId", "prod-1")),
+                update.getValue().getUpdateObject().get("$pull", Document.class));
+
+        assertThrows(RuntimeException.class, () -> cartService.removeItem("niemand@example.com", "prod-1"));
+    }
+
+    @Test
+    void cartLines_storeOnlyReferences_andAreHydratedInOneBatch() {
+        catalog.put("prod-1", product("Stehlampe", 24.99, "a".repeat(64))); //  Produkt wurde inzwischen umbenannt/teurer
+        when(cartRepository.findByUserEmail(USER_EMAIL)).thenReturn(Optional.of(cart(
+                new CartItem("prod-1", 2, 19.99), new CartItem("prod-2", 1, 120.0), new CartItem("weg", 1, 5.0))));
+
+        CartDTO result = cartService.getCart(USER_EMAIL);
+
+        verify(productService, times(1)).findProductMap(List.of("prod-1", "prod-2", "weg"));
+        OrderItem first = result.items().get(0);
+        assertEquals("Stehlampe", first.name());
+        assertEquals(19.99, first.price()); //  Preis beim Hinzufügen bleibt
+        assertEquals(List.of("/api/images/" + "a".repeat(64) + "?variant=thumbnail"), first.images());
+        assertEquals("Nicht mehr verfügbar", result.items().get(2).name());
+
+        Cart stored = cart(new CartItem("prod-1", 2, 19.99));
+        List<OrderItem> orderItems = cartService.toOrderItems(stored);
+        assertEquals(List.of("a".repeat(64)), orderItems.get(0).images()); //  Bestellung referenziert das Bild per Hash
+        assertThrows(IllegalArgumentException.class, () -> cartService.toOrderItems(cart(new CartItem("weg", 1, 5.0))));
+    }
+
+    @Test
+    void addToCart_takesPriceFromProduct_andPushesOnlyTheReference() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Cart.class)))
+                .thenReturn(null, cart(new CartItem("prod-2", 1, 120.0)));
+
+        cartService.addToCart(USER_EMAIL, new CartItemRequestDTO("prod-2", 1));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(Cart.class));
+        assertEquals(new CartItem("prod-2", 1, 120.0),
+                update.getAllValues().get(1).getUpdateObject().get("$push", Document.class).get("items"));
+        assertThrows(NoSuchElementException.class,
+                () -> cartService.addToCart(USER_EMAIL, new CartItemRequestDTO("unbekannt", 1)));
+    }
+
+    private static Product product(String name, double price, String imageHash) {
+        return new Product(new ObjectId(), name, null, price, 5, List.of(imageHash), "cat-1", 0L, null);
+    }
+
+    @Test
+    void removeOrdered_unchangedCart_isDeletedConditionallyOnVersion() {
+        Cart ordered = cart(new CartItem("prod-1", 2, 19.99));
+        when(mongoTemplate.remove(any(Query.class), eq(Cart.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        cartService.removeOrdered(ordered);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(query.capture(), eq(Cart.class));
+        assertEquals(1L, query.getValue().getQueryObject().get("version"));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(Cart.class));
+    }
+
+    @Test
+    void removeOrdered_changedCart_keepsLinesAddedInTheMeantime() {
+        Cart ordered = cart(new CartItem("prod-1", 2, 19.99));
+        //  Im zweiten Tab wurde inzwischen prod-2 hinzugefügt: Version passt nicht mehr
+        when(mongoTemplate.remove(any(Query.class), eq(Cart.class))).thenReturn(DeleteResult.acknowledged(0));
+
+        cartService.removeOrdered(ordered);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Cart.class));
+        Document pull = update.getValue().getUpdateObject().get("$pull", Document.class);
+        assertEquals(new Document("$or", List.of(new Document("productId", "prod-1").append("quantity", 2))), pull.get("items"));
+    }
+
+    private static Cart cart(CartItem... items) {
+        return new Cart(new ObjectId(), USER_EMAIL, List.of(items), 1L);
+    }
+}
@@ -0,0 +1,218 @@
+package java_work.de.backend.UserServiceTest;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import java_work.de.backend.model.Category;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.service.CatalogChangeStreamListener;
+import java_work.de.backend.service.CategoryChangedEvent;
+import java_work.de.backend.service.ProductChangedEvent;
+import java_work.de.backend.service.StockChangedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CatalogChangeStreamListenerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoConverter converter;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private MongoCollection<Document> productCollection;
+
+    @Mock
+    private MongoCollection<Document> categoryCollection;
+
+    @Mock
+    private MongoCollection<Document> stateCollection;
+
+    @Mock
+    private FindIterable<Document> noStoredToken;
+
+    @Mock
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> productCursor;
+
+    @Mock
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> categoryCursor;
+
+    private ChangeStreamIterable<Document> productStream;
+    private CatalogChangeStreamListener listener;
+    private AutoCloseable closeable;
+
+    @BeforeEach
+    void setUp() {
+        closeable = MockitoAnnotations.openMocks(this);
+
+        when(mongoTemplate.getCollectionName(Product.class)).thenReturn("product");
+        when(mongoTemplate.getCollectionName(Category.class)).thenReturn("category");
+        when(mongoTemplate.getCollection("product")).thenReturn(productCollection);
+        when(mongoTemplate.getCollection("category")).thenReturn(categoryCollection);
+        when(mongoTemplate.getCollection("change_stream_state")).thenReturn(stateCollection);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+
+        //  Noch kein Resume-Token gespeichert
+        when(stateCollection.find(any(Bson.class))).thenReturn(noStoredToken);
+        when(noStoredToken.first()).thenReturn(null);
+
+        productStream = mockStream(productCollection, productCursor);
+        mockStream(categoryCollection, categoryCursor);
+
+        listener = new CatalogChangeStreamListener(mongoTemplate, eventPublisher, "test-node");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        listener.stop();
+        closeable.close();
+    }
+
+    @Test
+    void productInsert_isPublishedAsRemoteEvent_andResumeTokenIsStored() {
+        ObjectId id = new ObjectId();
+        Document fullDocument = new Document("_id", id).append("name", "Laptop");
+        Product product = new Product(id, "Laptop", "Desc", 999.99, 5, List.of(), "cat-1", 0L, null);
+        when(converter.read(Product.class, fullDocument)).thenReturn(product);
+
+        ChangeStreamDocument<Document> change = change(OperationType.INSERT, new BsonObjectId(id), fullDocument);
+        when(productCursor.tryNext()).thenReturn(change).thenAnswer(invocation -> idle());
+
+        listener.start();
+
+        verify(eventPublisher, timeout(2000)).publishEvent(new ProductChangedEvent(id.toHexString(), product, false, true));
+        verify(stateCollection, timeout(2000)).replaceOne(any(Bson.class),
+                argThat((Document state) -> "test-node:product".equals(state.get("_id"))),
+                any(ReplaceOptions.class));
+    }
+
+    @Test
+    void stockOnlyUpdate_isPublishedAsStockChangedEvent() {
+        ObjectId id = new ObjectId();
+        ChangeStreamDocument<Document> change = change(OperationType.UPDATE, new BsonObjectId(id), new Document("_id", id));
+        when(change.getUpdateDescription()).thenReturn(new UpdateDescription(List.of(),
+                new BsonDocument("stock", new BsonInt32(4)).append("updatedAt", new BsonString("2026-10-18"))));
+        when(productCursor.tryNext()).thenReturn(change).thenAnswer(invocation -> idle());
+
+        listener.start();
+
+        verify(eventPublisher, timeout(2000)).publishEvent(new StockChangedEvent(id.toHexString(), true));
+        verify(eventPublisher, never()).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void categoryDelete_isPublishedAsRemoteEvent() {
+        ChangeStreamDocument<Document> change = change(OperationType.DELETE, new BsonString("cat-42"), null);
+        when(categoryCursor.tryNext()).thenReturn(change).thenAnswer(invocation -> idle());
+
+        listener.start();
+
+        verify(eventPublisher, timeout(2000)).publishEvent(new CategoryChangedEvent("cat-42", true));
+    }
+
+    @Test
+    void lostHistory_dropsResumeToken_andInvalidatesEverything() {
+        BsonDocument error = new BsonDocument("ok", new BsonInt32(0))
+                .append("code", new BsonInt32(286))
+                .append("errmsg", new BsonString("resume point may no longer be in the oplog"));
+        when(productCursor.tryNext())
+                .thenThrow(new MongoCommandException(error, new ServerAddress()))
+                .thenAnswer(invocation -> idle());
+
+        listener.start();
+
+        verify(stateCollection, timeout(2000)).deleteOne(any(Bson.class));
+        verify(eventPublisher, timeout(2000)).publishEvent(new ProductChangedEvent(null, null, false, true));
+    }
+
+    @Test
+    void invalidate_storesTokenForStartAfter_andReopensStream() {
+        ChangeStreamDocument<Document> change = change(OperationType.INVALIDATE, new BsonString("ignored"), null);
+        when(productCursor.tryNext()).thenReturn(change).thenAnswer(invocation -> idle());
+
+        listener.start();
+
+        verify(eventPublisher, timeout(2000)).publishEvent(new ProductChangedEvent(null, null, false, true));
+        verify(stateCollection, timeout(2000)).replaceOne(any(Bson.class),
+                argThat((Document state) -> Boolean.TRUE.equals(state.getBoolean("invalidated"))),
+                any(ReplaceOptions.class));
+        verify(productCursor, timeout(2000)).close();
+        verify(productCollection, timeout(2000).times(2)).watch();
+    }
+
+    @Test
+    void storedInvalidateToken_isUsedWithStartAfter() {
+        when(noStoredToken.first()).thenReturn(new Document("_id", "test-node:product")
+                .append("token", "{\"_data\": \"token-1\"}")
+                .append("invalidated", true));
+
+        listener.start();
+
+        verify(productStream, timeout(2000)).startAfter(any(BsonDocument.class));
+        verify(productStream, never()).resumeAfter(any(BsonDocument.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamIterable<Document> mockStream(MongoCollection<Document> collection,
+                                   MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor) {
+        ChangeStreamIterable<Document> stream = mock(ChangeStreamIterable.class);
+        when(collection.watch()).thenReturn(stream);
+        when(stream.fullDocument(any(FullDocument.class))).thenReturn(stream);
+        when(stream.maxAwaitTime(anyLong(), eq(TimeUnit.SECONDS))).thenReturn(stream);
+        when(stream.resumeAfter(any(BsonDocument.class))).thenReturn(stream);
+        when(stream.startAfter(any(BsonDocument.class))).thenReturn(stream);
+        when(stream.cursor()).thenReturn(cursor);
+        when(cursor.tryNext()).thenAnswer(invocation -> idle());
+        return stream;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamDocument<Document> change(OperationType operation, org.bson.BsonValue id, Document fullDocument) {
+        ChangeStreamDocument<Document> change = mock(ChangeStreamDocument.class);
+        when(change.getOperationType()).thenReturn(operation);
+        when(change.getDocumentKey()).thenReturn(new BsonDocument("_id", id));
+        when(change.getFullDocument()).thenReturn(fullDocument);
+        when(change.getResumeToken()).thenReturn(new BsonDocument("_data", new BsonString("token-1")));
+        return change;
+    }
+
+    //  Verhält sich wie ein leerer Cursor, der maxAwaitTime abwartet
+    private static ChangeStreamDocument<Document> idle() throws InterruptedException {
+        Thread.sleep(20);
+        return null;
+    }
+}
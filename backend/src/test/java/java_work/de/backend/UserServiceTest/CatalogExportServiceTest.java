@@ -0,0 +1,104 @@
+package java_work.de.backend.UserServiceTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java_work.de.backend.model.Address;
+import java_work.de.backend.model.Order;
+import java_work.de.backend.model.OrderItem;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.service.CatalogExportService;
+import java_work.de.backend.service.DataFormat;
+import java_work.de.backend.service.ImageService;
+import java_work.de.backend.service.ImageStore;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CatalogExportServiceTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    private final Product lampe = new Product(new ObjectId(), "Lampe, LED", "Sagt \"hell\"\nund warm", 19.9, 3,
+            List.of(HASH, "https://cdn/b.png"), "cat-1", 0L, null);
+    private final Product tisch = new Product(new ObjectId(), "Tisch", null, 120.0, 1, List.of(), "cat-2", 0L, null);
+
+    private MongoTemplate mongoTemplate;
+    private CatalogExportService exportService;
+    private final AtomicBoolean cursorClosed = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getCollectionName(any(Class.class))).thenReturn("test");
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class)))
+                .thenAnswer(invocation -> Stream.of(lampe, tisch).onClose(() -> cursorClosed.set(true)));
+        exportService = new CatalogExportService(mongoTemplate, new ImageService(mock(ImageStore.class)), new ObjectMapper());
+    }
+
+    @Test
+    void products_areStreamedFromASortedCursor_asNdjson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportProducts(out, DataFormat.NDJSON);
+
+        assertEquals(2, count);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertEquals(lampe.id().toHexString(), first.get("id").asText());
+        assertEquals("/api/images/" + HASH, first.get("images").get(0).asText());
+        assertTrue(cursorClosed.get());
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(Product.class));
+        assertEquals(new Document("_id", 1), query.getValue().getSortObject());
+        assertEquals(500, query.getValue().getMeta().getCursorBatchSize());
+        verify(mongoTemplate, never()).findAll(any());
+    }
+
+    @Test
+    void products_asCsv_useImportColumns_andQuoteSpecialCharacters() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportProducts(out, DataFormat.CSV);
+
+        assertEquals("id,name,description,price,stock,categoryId,images\r\n"
+                        + lampe.id().toHexString() + ",\"Lampe, LED\",\"Sagt \"\"hell\"\"\nund warm\",19.9,3,cat-1,"
+                        + "/api/images/" + HASH + "|https://cdn/b.png\r\n"
+                        + tisch.id().toHexString() + ",Tisch,,120.0,1,cat-2,\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void orders_asCsv_flattenItemsAndAddress() throws IOException {
+        Order order = new Order(new ObjectId(), "kunde@example.de",
+                List.of(new OrderItem("p1", "Lampe", List.of(), 2, 19.9), new OrderItem("p2", "Tisch", List.of(), 1, 120.0)),
+                159.8,
+                new Address(new ObjectId(), "Hauptstraße", "5", "Berlin", "10115", "DE", "0301234", true),
+                Order.PaymentStatus.PAID, Order.OrderStatus.SHIPPED, Order.PaymentMethod.SEPA, null, false, 0L);
+        when(mongoTemplate.stream(any(Query.class), eq(Order.class))).thenAnswer(invocation -> Stream.of(order));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportOrders(out, DataFormat.CSV);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(order.id().toHexString() + ",kunde@example.de,159.8,PAID,SHIPPED,SEPA,false,p1 x 2|p2 x 1,"
+                + "\"Hauptstraße 5, 10115 Berlin, DE\"", lines[1]);
+    }
+}
@@ -0,0 +1,61 @@
+package java_work.de.backend.UserServiceTest;
+
+import java_work.de.backend.model.Category;
+import java_work.de.backend.repo.CategoryRepository;
+import java_work.de.backend.service.CategoryChangedEvent;
+import java_work.de.backend.service.CategoryResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CategoryResolverTest {
+
+    private CategoryRepository categoryRepository;
+    private CategoryResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAll()).thenReturn(List.of(
+                new Category("c1", "Elektronik", null),
+                new Category("c2", "Küche", null),
+                new Category("c3", "Küchenzubehör", null)));
+        resolver = new CategoryResolver(categoryRepository);
+    }
+
+    @Test
+    void exactNameWins_ignoringCaseAndUmlautSpelling() {
+        assertEquals(List.of("c2"), resolver.resolve("KUECHE"));
+        assertEquals(List.of("c2"), resolver.resolve(" küche "));
+    }
+
+    @Test
+    void partialName_matchesAllContainingCategories() {
+        assertEquals(List.of("c1"), resolver.resolve("elektro"));
+        assertTrue(resolver.resolve("zubeh").contains("c3"));
+        assertTrue(resolver.resolve("unbekannt").isEmpty());
+    }
+
+    @Test
+    void name_isServedFromTheSameSnapshot() {
+        assertEquals("Küche", resolver.name("c2"));
+        assertNull(resolver.name("c9"));
+        assertNull(resolver.name(null));
+        verify(categoryRepository, times(1)).findAll();
+    }
+
+    @Test
+    void mapping_isCached_untilCategoryChanges() {
+        resolver.resolve("Elektronik");
+        resolver.resolve("Küche");
+        verify(categoryRepository, times(1)).findAll();
+
+        resolver.onCategoryChanged(new CategoryChangedEvent("c4", false));
+        resolver.resolve("Küche");
+        verify(categoryRepository, times(2)).findAll();
+    }
+}
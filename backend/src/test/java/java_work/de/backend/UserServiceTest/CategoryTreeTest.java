@@ -0,0 +1,164 @@
+package java_work.de.backend.UserServiceTest;
+
+import java_work.de.backend.dto.CategoryNodeDTO;
+import java_work.de.backend.model.Category;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.repo.CategoryRepository;
+import java_work.de.backend.service.CategoryServic;
+import java_work.de.backend.service.CategoryTree;
+import java_work.de.backend.service.ProductChangedEvent;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CategoryTreeTest {
+
+    private MongoTemplate mongoTemplate;
+    private CategoryRepository categoryRepository;
+    private CategoryTree categoryTree;
+    private final List<Document> matches = new ArrayList<>();
+    private List<Document> groupRows;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAll()).thenReturn(List.of(
+                new Category("haushalt", "Haushalt", null),
+                new Category("kueche", "Küche", "haushalt"),
+                new Category("toepfe", "Töpfe", "kueche"),
+                new Category("elektronik", "Elektronik", null)));
+        groupRows = List.of(
+                row("haushalt", 2, 5.0, 30.0),
+                row("kueche", 3, 12.0, 40.0),
+                row("toepfe", 1, 25.0, 25.0));
+        //  Jede Aggregation: $match-Stufe merken, vorbereitete $group-Ergebnisse liefern
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Product.class), eq(Document.class))).thenAnswer(invocation -> {
+            Aggregation aggregation = invocation.getArgument(0);
+            Document match = aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+            matches.add(match);
+            List<Document> rows = groupRows;
+            Document categoryFilter = match.get("categoryId", Document.class);
+            if (categoryFilter.containsKey("$in")) {
+                Collection<?> ids = categoryFilter.get("$in", Collection.class);
+                rows = rows.stream().filter(row -> ids.contains(row.getString("_id"))).toList();
+            }
+            return new AggregationResults<>(rows, new Document());
+        });
+        categoryTree = new CategoryTree(mongoTemplate, categoryRepository);
+    }
+
+    @Test
+    void tree_rollsUpCountsAndPriceRange_overSubcategories() {
+        List<CategoryNodeDTO> roots = categoryTree.getTree();
+
+        assertEquals(List.of("Elektronik", "Haushalt"), roots.stream().map(CategoryNodeDTO::name).toList());
+        CategoryNodeDTO haushalt = roots.get(1);
+        assertEquals(2, haushalt.productCount());
+        assertEquals(6, haushalt.totalProductCount());
+        assertEquals(5.0, haushalt.minPrice());
+        assertEquals(40.0, haushalt.maxPrice());
+        CategoryNodeDTO kueche = haushalt.children().get(0);
+        assertEquals(4, kueche.totalProductCount());
+        assertEquals("toepfe", kueche.children().get(0).id());
+        assertEquals(0, roots.get(0).totalProductCount());
+        assertNull(roots.get(0).minPrice());
+
+        categoryTree.getTree();
+        assertEquals(1, matches.size()); //  Zweiter Aufruf kommt komplett aus dem Speicher
+    }
+
+    @Test
+    void productChanges_updateCountersWithoutTouchingTheDatabase() {
+        categoryTree.getTree();
+        Product pfanne = product("kueche", 20.0);
+
+        categoryTree.productSaved(null, pfanne);
+        categoryTree.productSaved(pfanne, withPrice(pfanne, 21.0)); //  20 ist weder Min (12) noch Max (40)
+        Product umgezogen = new Product(pfanne.id(), "Pfanne", null, 99.0, 1, List.of(), "elektronik", 1L, null);
+        categoryTree.productSaved(withPrice(pfanne, 21.0), umgezogen);
+
+        List<CategoryNodeDTO> roots = categoryTree.getTree();
+        assertEquals(1, matches.size());
+        assertEquals(1, roots.get(0).productCount());
+        assertEquals(99.0, roots.get(0).maxPrice());
+        assertEquals(3, node(roots, "kueche").productCount());
+        assertEquals(12.0, node(roots, "kueche").minPrice());
+    }
+
+    @Test
+    void removingTheCheapestProduct_reaggregatesOnlyThatCategory() {
+        categoryTree.getTree();
+
+        categoryTree.productDeleted(product("kueche", 12.0));
+        groupRows = List.of(row("kueche", 2, 18.0, 40.0));
+        List<CategoryNodeDTO> roots = categoryTree.getTree();
+
+        assertEquals(2, matches.size());
+        assertEquals(List.of("kueche"), List.copyOf(matches.get(1).get("categoryId", Document.class).get("$in", Collection.class)));
+        assertEquals(18.0, node(roots, "kueche").minPrice());
+        assertEquals(2, node(roots, "haushalt").productCount()); //  Andere Kategorien bleiben unverändert
+    }
+
+    @Test
+    void importOrRemoteChange_triggersFullAggregationOnNextRead() {
+        categoryTree.getTree();
+
+        categoryTree.onProductChanged(ProductChangedEvent.all());
+        categoryTree.getTree();
+
+        assertEquals(2, matches.size());
+        assertTrue(matches.get(1).get("categoryId", Document.class).containsKey("$ne"));
+    }
+
+    @Test
+    void moveCategory_rejectsCycles() {
+        when(categoryRepository.findById("haushalt")).thenReturn(Optional.of(new Category("haushalt", "Haushalt", null)));
+        when(categoryRepository.findById("toepfe")).thenReturn(Optional.of(new Category("toepfe", "Töpfe", "kueche")));
+        when(categoryRepository.findById("kueche")).thenReturn(Optional.of(new Category("kueche", "Küche", "haushalt")));
+        CategoryServic categoryService = new CategoryServic(categoryRepository, categoryTree, mock(ApplicationEventPublisher.class));
+
+        assertThrows(IllegalArgumentException.class, () -> categoryService.moveCategory("haushalt", "toepfe"));
+        verify(categoryRepository, never()).save(any());
+    }
+
+    private static CategoryNodeDTO node(List<CategoryNodeDTO> nodes, String id) {
+        for (CategoryNodeDTO node : nodes) {
+            if (node.id().equals(id)) {
+                return node;
+            }
+            CategoryNodeDTO found = node(node.children(), id);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private static Document row(String categoryId, int count, double min, double max) {
+        return new Document("_id", categoryId).append("count", count).append("minPrice", min).append("maxPrice", max);
+    }
+
+    private static Product product(String categoryId, double price) {
+        return new Product(new ObjectId(), "Pfanne", null, price, 1, List.of(), categoryId, 0L, null);
+    }
+
+    private static Product withPrice(Product product, double price) {
+        return new Product(product.id(), product.name(), null, price, 1, List.of(), product.categoryId(), 1L, null);
+    }
+}
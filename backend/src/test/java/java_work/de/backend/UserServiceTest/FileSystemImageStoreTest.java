@@ -0,0 +1,93 @@
+package java_work.de.backend.UserServiceTest;
+
+import java_work.de.backend.service.FileSystemImageStore;
+import java_work.de.backend.service.ImageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemImageStoreTest {
+
+    private static final byte[] PNG = "\u0089PNG\r\n\u001a\nbildinhalt".getBytes(StandardCharsets.ISO_8859_1);
+
+    @TempDir
+    Path baseDir;
+
+    private FileSystemImageStore imageStore;
+
+    @BeforeEach
+    void setUp() {
+        imageStore = new FileSystemImageStore(baseDir.toString());
+    }
+
+    @Test
+    void store_roundTripsBytes_underTheirSha256() throws IOException {
+        String hash = imageStore.store(PNG);
+
+        assertTrue(ImageService.isHash(hash));
+        assertTrue(imageStore.exists(hash));
+        assertEquals(PNG.length, imageStore.size(hash));
+        try (InputStream in = imageStore.open(hash)) {
+            assertArrayEquals(PNG, in.readAllBytes());
+        }
+        assertEquals("image/png", new ImageService(imageStore).contentType(hash));
+    }
+
+    @Test
+    void sameContent_isStoredOnce_differentContentGetsItsOwnHash() throws IOException {
+        String first = imageStore.store(PNG);
+        String second = imageStore.store(PNG.clone());
+        String other = imageStore.store("anderes Bild".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+        try (Stream<Path> files = Files.walk(baseDir)) {
+            assertEquals(2, files.filter(Files::isRegularFile).count()); //  Keine Duplikate, keine .tmp-Reste
+        }
+    }
+
+    @Test
+    void ingest_replacesDataUrlsByHash_andDeduplicatesRepeatedUploads() {
+        ImageService imageService = new ImageService(imageStore);
+        String dataUrl = "data:image/png;base64," + Base64.getEncoder().encodeToString(PNG);
+
+        List<String> refs = imageService.ingest(List.of(dataUrl, dataUrl, ImageService.IMAGE_URL_PREFIX + imageStore.store(PNG)));
+
+        assertEquals(1, refs.stream().distinct().count());
+        assertEquals(ImageService.IMAGE_URL_PREFIX + refs.get(0), imageService.toUrl(refs.get(0)));
+    }
+
+    @Test
+    void transferTo_writesOnlyTheRequestedRange() throws IOException {
+        String hash = imageStore.store(PNG);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        imageStore.transferTo(hash, 8, 4, Channels.newChannel(out));
+
+        assertEquals("bild", out.toString(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void unknownOrInvalidHashes_areNotFound() {
+        String unknown = "0".repeat(64);
+
+        assertFalse(imageStore.exists(unknown));
+        assertEquals(-1, imageStore.size(unknown));
+        assertFalse(imageStore.exists("../../etc/passwd")); //  Nur echte Hashes werden zu Pfaden
+        assertThrows(NoSuchElementException.class, () -> imageStore.open(unknown));
+    }
+}
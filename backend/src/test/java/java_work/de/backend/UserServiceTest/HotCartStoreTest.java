@@ -0,0 +1,169 @@
+package java_work.de.backend.UserServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.dto.CartDTO;
+import java_work.de.backend.dto.CartItemRequestDTO;
+import java_work.de.backend.model.Cart;
+import java_work.de.backend.model.OrderItem;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.repo.CartRepository;
+import java_work.de.backend.service.CartService;
+import java_work.de.backend.service.HotCartStore;
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ProductService;
+import java_work.de.backend.service.VersionConflicts;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class HotCartStoreTest {
+
+    private static final String USER_EMAIL = "test@example.com";
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulk;
+    private CartRepository cartRepository;
+    private HotCartStore hotCarts;
+    private CartService cartService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Cart.class))).thenReturn(bulk);
+        cartRepository = mock(CartRepository.class);
+        when(cartRepository.findByUserEmail(anyString())).thenReturn(Optional.empty());
+        //  Flush-Intervall sehr lang: die Tests lösen das Schreiben selbst aus
+        hotCarts = new HotCartStore(mongoTemplate, cartRepository, new SimpleMeterRegistry(), 3,
+                Duration.ofHours(1), Duration.ZERO);
+        hotCarts.start();
+        ProductService productService = mock(ProductService.class);
+        when(productService.findProductMap(any())).thenAnswer(invocation -> invocation.<Collection<String>>getArgument(0).stream()
+                .distinct()
+                .collect(Collectors.toMap(id -> id,
+                        id -> new Product(new ObjectId(), "Produkt " + id, null, 9.99, 5, List.of(), "cat-1", 0L, null))));
+        cartService = new CartService(cartRepository, mongoTemplate, productService, mock(ImageRenditionService.class),
+                Optional.of(hotCarts), new VersionConflicts(new SimpleMeterRegistry()), 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (hotCarts.isRunning()) {
+            hotCarts.stop();
+        }
+    }
+
+    @Test
+    void burstOfChanges_isCoalescedIntoOneUpsert() {
+        for (int i = 0; i < 10; i++) {
+            cartService.addToCart(USER_EMAIL, item("prod-1", 1));
+        }
+        cartService.addToCart(USER_EMAIL, item("prod-2", 1));
+        cartService.removeItem(USER_EMAIL, "prod-2");
+        CartDTO cart = cartService.updateCartQuantity(USER_EMAIL, "prod-1", 7);
+
+        assertEquals(7, cart.items().get(0).quantity());
+        verifyNoInteractions(mongoTemplate); //  Bis hierhin nur Speicher
+
+        hotCarts.flushAll();
+        hotCarts.flushAll(); //  Nichts mehr geändert: kein zweiter Schreibvorgang
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(1)).upsert(any(Query.class), update.capture());
+        verify(bulk, times(1)).execute();
+        List<?> written = (List<?>) update.getValue().getUpdateObject().get("$set", Document.class).get("items");
+        assertEquals(1, written.size());
+        verify(cartRepository, times(1)).findByUserEmail(USER_EMAIL); //  Einmal geladen, danach aus dem Speicher
+    }
+
+    @Test
+    void concurrentAddsOfOneUser_areSerialized_andNoneIsLost() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 400; i++) {
+            String productId = "prod-" + (i % 4);
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                cartService.addToCart(USER_EMAIL, item(productId, 1));
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        List<OrderItem> items = cartService.getCart(USER_EMAIL).items();
+        assertEquals(4, items.size());
+        assertEquals(400, items.stream().mapToInt(OrderItem::quantity).sum());
+    }
+
+    @Test
+    void flushBeforeOrder_writesSynchronously_andOnlyCleanCartsAreEvicted() {
+        cartService.addToCart(USER_EMAIL, item("prod-1", 2));
+        cartService.addToCart("andere@example.com", item("prod-1", 1));
+
+        hotCarts.evictIdle(); //  idle-timeout 0, aber noch nicht geschrieben: bleibt im Speicher
+        assertEquals(2, hotCarts.size());
+
+        hotCarts.flush(USER_EMAIL);
+        verify(bulk, times(1)).upsert(any(Query.class), any(Update.class));
+        assertEquals(1, hotCarts.dirtyCarts());
+
+        hotCarts.evictIdle();
+        assertEquals(1, hotCarts.size()); //  Nur der geschriebene Warenkorb wurde verdrängt
+    }
+
+    @Test
+    void fullStore_evictsLeastRecentlyUsedCarts_afterWritingThem() {
+        for (int i = 0; i < 4; i++) {
+            cartService.addToCart("kunde" + i + "@example.com", item("prod-1", 1));
+        }
+
+        assertTrue(hotCarts.size() <= 3);
+        verify(bulk, atLeastOnce()).execute(); //  Vor dem Verdrängen geschrieben
+        assertEquals(1, cartService.getCart("kunde3@example.com").items().size());
+    }
+
+    @Test
+    void gracefulShutdown_writesPendingCarts() {
+        cartService.addToCart(USER_EMAIL, item("prod-1", 2));
+        cartService.clearCart("leer@example.com");
+        doThrow(new IllegalStateException("Verbindung weg")).doReturn(null).when(bulk).execute();
+
+        hotCarts.stop(); //  Erster Versuch scheitert, zweiter schreibt
+
+        verify(bulk, times(2)).execute();
+        assertEquals(0, hotCarts.dirtyCarts());
+        assertThrows(IllegalStateException.class, () -> hotCarts.get(USER_EMAIL));
+    }
+
+    private static CartItemRequestDTO item(String productId, int quantity) {
+        return new CartItemRequestDTO(productId, quantity);
+    }
+}
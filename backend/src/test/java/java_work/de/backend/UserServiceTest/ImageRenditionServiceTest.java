@@ -0,0 +1,117 @@
+package java_work.de.backend.UserServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.service.FileSystemImageStore;
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ImageStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ImageRenditionServiceTest {
+
+    @TempDir
+    Path baseDir;
+
+    private ImageRenditionService renditionService;
+
+    @AfterEach
+    void tearDown() {
+        if (renditionService != null) {
+            renditionService.shutdown();
+        }
+    }
+
+    @Test
+    void renditions_areScaledDown_andSmallImagesAreNeverUpscaled() throws Exception {
+        FileSystemImageStore imageStore = new FileSystemImageStore(baseDir.toString());
+        renditionService = new ImageRenditionService(imageStore, new SimpleMeterRegistry(), 1, 10);
+        String large = imageStore.store(png(2000, 1000));
+        String small = imageStore.store(png(100, 50));
+
+        renditionService.requestRenditions(List.of(large, small));
+        awaitTrue(() -> imageStore.findRendition(large, "detail").isPresent()
+                && imageStore.findRendition(small, "detail").isPresent());
+
+        assertEquals(160, longestEdge(imageStore, imageStore.findRendition(large, "thumbnail").orElseThrow()));
+        assertEquals(480, longestEdge(imageStore, imageStore.findRendition(large, "listing").orElseThrow()));
+        assertEquals(1200, longestEdge(imageStore, imageStore.findRendition(large, "detail").orElseThrow()));
+        assertEquals(Optional.of(small), imageStore.findRendition(small, "thumbnail")); //  Verweist aufs Original
+        assertEquals(Optional.of(small), renditionService.resolve(small, ImageRenditionService.Variant.LISTING));
+    }
+
+    @Test
+    void fullQueue_rejectsWithoutBlocking_andTheImageCanBeRequestedAgainLater() throws Exception {
+        String running = "a".repeat(64);
+        String queued = "b".repeat(64);
+        String rejected = "c".repeat(64);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ImageStore imageStore = mock(ImageStore.class);
+        when(imageStore.findRendition(anyString(), anyString())).thenReturn(Optional.empty());
+        when(imageStore.open(anyString())).thenAnswer(invocation -> {
+            if (running.equals(invocation.getArgument(0))) {
+                started.countDown();
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+            }
+            return new ByteArrayInputStream(new byte[]{1, 2, 3}); //  Kein Bild: Varianten zeigen aufs Original
+        });
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        renditionService = new ImageRenditionService(imageStore, meterRegistry, 1, 1);
+
+        renditionService.requestRenditions(running);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        renditionService.requestRenditions(queued);
+        long before = System.nanoTime();
+        renditionService.requestRenditions(rejected); //  Ein Thread belegt, Queue (1) voll
+        assertTrue(System.nanoTime() - before < TimeUnit.SECONDS.toNanos(1)); //  Aufrufer blockiert nicht
+        assertEquals(1.0, meterRegistry.get("images.renditions.queue.depth").gauge().value());
+
+        release.countDown();
+        awaitTrue(() -> mockingDetails(imageStore).getInvocations().stream()
+                .anyMatch(invocation -> invocation.getMethod().getName().equals("linkRendition")
+                        && queued.equals(invocation.getArgument(0))));
+        verify(imageStore, never()).open(rejected);
+
+        renditionService.requestRenditions(rejected); //  Nicht in `inFlight` hängen geblieben
+        verify(imageStore, timeout(5000)).open(rejected);
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static int longestEdge(ImageStore imageStore, String hash) throws IOException {
+        try (InputStream in = imageStore.open(hash)) {
+            BufferedImage image = ImageIO.read(in);
+            return Math.max(image.getWidth(), image.getHeight());
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Bedingung nicht rechtzeitig erfüllt");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package java_work.de.backend.UserServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.service.InventoryLedger;
+import java_work.de.backend.service.InventoryUnavailableException;
+import java_work.de.backend.service.OutOfStockException;
+import java_work.de.backend.service.ProductChangedEvent;
+import java_work.de.backend.service.StockChangedEvent;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class InventoryLedgerTest {
+
+    private final ObjectId hotSku = new ObjectId();
+    private final ObjectId otherSku = new ObjectId();
+
+    @TempDir
+    Path logDir;
+
+    private MongoTemplate mongoTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private final List<Document> writes = new ArrayList<>();
+    private final AtomicBoolean failWrites = new AtomicBoolean();
+    private InventoryLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        when(mongoTemplate.getCollectionName(Product.class)).thenReturn("product");
+        when(mongoTemplate.findById(any(), eq(Product.class))).thenAnswer(invocation -> {
+            ObjectId id = invocation.getArgument(0);
+            int stock = id.equals(hotSku) ? 300 : 10;
+            return new Product(id, "Produkt", null, 10.0, stock, List.of(), "cat-1", 0L, null);
+        });
+        //  Jede updateOne-Operation als {filter, update} mitschreiben
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class)).thenAnswer(invocation -> {
+            BulkOperations bulk = mock(BulkOperations.class);
+            List<Document> batch = new ArrayList<>();
+            when(bulk.updateOne(any(Query.class), any(Update.class))).thenAnswer(update -> {
+                batch.add(new Document("filter", update.<Query>getArgument(0).getQueryObject())
+                        .append("update", update.<Update>getArgument(1).getUpdateObject()));
+                return bulk;
+            });
+            when(bulk.execute()).thenAnswer(execute -> {
+                if (failWrites.get()) {
+                    throw new IllegalStateException("Mongo nicht erreichbar");
+                }
+                writes.addAll(batch);
+                return null;
+            });
+            return bulk;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (ledger != null && ledger.isRunning()) {
+            ledger.stop();
+        }
+    }
+
+    @Test
+    void concurrentReservations_acrossStripes_neverOversell() throws InterruptedException {
+        ledger = startLedger();
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        for (int i = 0; i < 1_000; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    ledger.reserve(Map.of(hotSku.toHexString(), 1));
+                    succeeded.incrementAndGet();
+                } catch (OutOfStockException ignored) {
+                    //  ausverkauft
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(300, succeeded.get());
+        assertEquals(0, ledger.available(hotSku.toHexString()));
+    }
+
+    @Test
+    void flush_writesOneSummedDeltaPerProduct_andDeletesTheSegment() throws IOException {
+        ledger = startLedger();
+        ledger.reserve(Map.of(hotSku.toHexString(), 2, otherSku.toHexString(), 1));
+        ledger.reserve(Map.of(hotSku.toHexString(), 3));
+        ledger.release(Map.of(otherSku.toHexString(), 1));
+
+        ledger.flush();
+
+        assertEquals(2, writes.size());
+        Document hot = writeFor(hotSku);
+        assertEquals(-5, hot.get("update", Document.class).get("$inc", Document.class).getInteger("stock"));
+        assertNull(hot.get("update", Document.class).get("$inc", Document.class).get("version")); //  kein If-Match-Konflikt
+        assertEquals(3L, hot.get("update", Document.class).get("$set", Document.class).getLong("ledgerSeq"));
+        assertEquals(0, writeFor(otherSku).get("update", Document.class).get("$inc", Document.class).getInteger("stock"));
+        assertEquals(1, segments().size()); //  nur noch das neue, leere Segment
+        verify(eventPublisher, times(2)).publishEvent(any(StockChangedEvent.class));
+        verify(eventPublisher, never()).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void failedFlush_keepsSegment_andRetriesWithTheSameSeq() throws IOException {
+        ledger = startLedger();
+        ledger.reserve(Map.of(hotSku.toHexString(), 4));
+        failWrites.set(true);
+
+        ledger.flush();
+        assertTrue(writes.isEmpty());
+        assertEquals(2, segments().size());
+
+        ledger.reserve(Map.of(hotSku.toHexString(), 1));
+        failWrites.set(false);
+        ledger.flush();
+
+        //  Erst der alte Batch (seq 1), dann der neue (seq 2) – nichts doppelt, nichts verloren
+        assertEquals(List.of(1L, 2L), writes.stream()
+                .map(write -> write.get("update", Document.class).get("$set", Document.class).getLong("ledgerSeq")).toList());
+        assertEquals(List.of(-4, -1), writes.stream()
+                .map(write -> write.get("update", Document.class).get("$inc", Document.class).getInteger("stock")).toList());
+        assertEquals(1, segments().size());
+    }
+
+    @Test
+    void startup_replaysOnlyEntriesNewerThanLedgerSeq_andSkipsTornRecord() throws IOException {
+        //  Absturz: seq 1–2 für hotSku sind schon in MongoDB (ledgerSeq 2), der Rest nicht; letzte Zeile halb geschrieben
+        Files.writeString(logDir.resolve("reservations-00000000000000000001.log"),
+                "1 " + hotSku.toHexString() + " -2\n"
+                        + "2 " + hotSku.toHexString() + " -3\n"
+                        + "3 " + otherSku.toHexString() + " -1\n"
+                        + "4 " + hotSku.toHexString() + " -1\n"
+                        + "5 " + otherSku.toHexString());
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("product"))).thenReturn(List.of(
+                new Document("_id", hotSku).append("ledgerSeq", 2L),
+                new Document("_id", otherSku)));
+
+        ledger = startLedger();
+
+        assertEquals(-1, writeFor(hotSku).get("update", Document.class).get("$inc", Document.class).getInteger("stock"));
+        assertEquals(-1, writeFor(otherSku).get("update", Document.class).get("$inc", Document.class).getInteger("stock"));
+        assertEquals(4L, writeFor(hotSku).get("update", Document.class).get("$set", Document.class).getLong("ledgerSeq"));
+        //  Altes Segment ist weg, das neue setzt die Sequenz fort
+        assertEquals(List.of("reservations-00000000000000000005.log"),
+                segments().stream().map(path -> path.getFileName().toString()).toList());
+    }
+
+    @Test
+    void adjustBy_keepsReservationsMadeSinceTheAdminLoadedTheForm() {
+        ledger = startLedger();
+        String id = otherSku.toHexString();
+        ledger.reserve(Map.of(id, 4));
+
+        ledger.adjustBy(id, 0); //  Formular mit unverändertem Bestand gespeichert
+        assertEquals(6, ledger.available(id));
+        ledger.adjustBy(id, 2);
+        assertEquals(8, ledger.available(id));
+        ledger.adjustBy(id, -20); //  Nie unter 0
+        assertEquals(0, ledger.available(id));
+    }
+
+    @Test
+    void nodeWithoutLease_startsAsStandby_rejectsReservations_andTakesOverLater() throws InterruptedException {
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq("inventory_ledger_lease")))
+                .thenThrow(new DuplicateKeyException("Lease gehört node-a"));
+
+        ledger = startLedger(Duration.ofMillis(20), Duration.ofMillis(60));
+
+        assertTrue(ledger.isRunning());
+        assertFalse(ledger.isOwner());
+        assertThrows(InventoryUnavailableException.class, () -> ledger.reserve(Map.of(otherSku.toHexString(), 1)));
+        assertNull(ledger.available(otherSku.toHexString())); //  Anzeige fällt auf MongoDB zurück
+
+        //  Besitzer hat die Lease freigegeben
+        doReturn(null).when(mongoTemplate).upsert(any(Query.class), any(Update.class), eq("inventory_ledger_lease"));
+        awaitOwner(true);
+        ledger.reserve(Map.of(otherSku.toHexString(), 1));
+        assertEquals(9, ledger.available(otherSku.toHexString()));
+    }
+
+    @Test
+    void failedLeaseRenewal_clearsOwnership() throws InterruptedException {
+        ledger = startLedger(Duration.ofMillis(20), Duration.ofMillis(60));
+        assertTrue(ledger.isOwner());
+
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq("inventory_ledger_lease")))
+                .thenThrow(new DataAccessResourceFailureException("Mongo nicht erreichbar"));
+        awaitOwner(false);
+
+        assertThrows(InventoryUnavailableException.class, () -> ledger.reserve(Map.of(otherSku.toHexString(), 1)));
+    }
+
+    private InventoryLedger startLedger() {
+        return startLedger(Duration.ofHours(1), Duration.ofSeconds(30));
+    }
+
+    private InventoryLedger startLedger(Duration flushInterval, Duration lease) {
+        InventoryLedger ledger = new InventoryLedger(mongoTemplate, eventPublisher, new SimpleMeterRegistry(), 8,
+                logDir.toString(), flushInterval, lease, false, "node-a");
+        ledger.start();
+        return ledger;
+    }
+
+    private void awaitOwner(boolean expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (ledger.isOwner() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, ledger.isOwner());
+    }
+
+    private Document writeFor(ObjectId productId) {
+        return writes.stream()
+                .filter(write -> productId.equals(write.get("filter", Document.class).get("_id")))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(logDir)) {
+            return files.sorted().toList();
+        }
+    }
+}
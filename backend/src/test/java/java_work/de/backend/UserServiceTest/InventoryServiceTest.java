@@ -0,0 +1,162 @@
+package java_work.de.backend.UserServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.model.OrderItem;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.service.InventoryService;
+import java_work.de.backend.service.OutOfStockException;
+import java_work.de.backend.service.ProductChangedEvent;
+import java_work.de.backend.service.StockChangedEvent;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class InventoryServiceTest {
+
+    private final ObjectId hotSku = new ObjectId();
+    private final ObjectId otherSku = new ObjectId();
+    private final Map<ObjectId, AtomicInteger> stock = new ConcurrentHashMap<>();
+    private final AtomicInteger minimumSeen = new AtomicInteger(Integer.MAX_VALUE);
+
+    private ApplicationEventPublisher eventPublisher;
+    private InventoryService inventoryService;
+
+    /*
+     MongoTemplate-Attrappe mit derselben Semantik wie MongoDB für ein einzelnes Dokument:
+     Filter (`stock >= n`) und `$inc` werden zusammen atomar angewendet (CAS-Schleife).
+     */
+    @BeforeEach
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+                eq(Product.class))).thenAnswer(invocation -> {
+            Document filter = invocation.<Query>getArgument(0).getQueryObject();
+            Document inc = invocation.<UpdateDefinition>getArgument(1).getUpdateObject().get("$inc", Document.class);
+            ObjectId id = filter.getObjectId("_id");
+            Document guard = filter.get("stock", Document.class);
+            int delta = inc.getInteger("stock");
+            AtomicInteger counter = stock.get(id);
+            if (counter == null) {
+                return null;
+            }
+            while (true) {
+                int current = counter.get();
+                if (guard != null && current < guard.getInteger("$gte")) {
+                    return null;
+                }
+                if (counter.compareAndSet(current, current + delta)) {
+                    minimumSeen.accumulateAndGet(current + delta, Math::min);
+                    return new Product(id, "Produkt", null, 10.0, current + delta, List.of(), "cat-1", 1L, null);
+                }
+            }
+        });
+        when(mongoTemplate.findById(any(), eq(Product.class))).thenAnswer(invocation -> {
+            ObjectId id = invocation.getArgument(0);
+            AtomicInteger counter = stock.get(id);
+            return counter == null ? null : new Product(id, "Produkt", null, 10.0, counter.get(), List.of(), "cat-1", 1L, null);
+        });
+
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        inventoryService = new InventoryService(mongoTemplate, eventPublisher, new SimpleMeterRegistry(), Optional.empty());
+    }
+
+    @Test
+    void reserve_decrementsEveryLine_andMergesDuplicateProducts() {
+        stock.put(hotSku, new AtomicInteger(5));
+        stock.put(otherSku, new AtomicInteger(2));
+
+        inventoryService.reserve(List.of(item(hotSku, 2), item(otherSku, 2), item(hotSku, 1)));
+
+        assertEquals(2, stock.get(hotSku).get());
+        assertEquals(0, stock.get(otherSku).get());
+        //  Nur Bestand geändert: kein ProductChangedEvent (Suchindex, Vorschläge, Listen bleiben unberührt)
+        verify(eventPublisher, times(2)).publishEvent(any(StockChangedEvent.class));
+        verify(eventPublisher, never()).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void failingLine_rollsBackEarlierReservations() {
+        stock.put(hotSku, new AtomicInteger(5));
+        stock.put(otherSku, new AtomicInteger(1));
+
+        OutOfStockException error = assertThrows(OutOfStockException.class,
+                () -> inventoryService.reserve(List.of(item(hotSku, 3), item(otherSku, 2))));
+
+        assertEquals(otherSku.toHexString(), error.getProductId());
+        assertEquals(1, error.getAvailable());
+        assertEquals(5, stock.get(hotSku).get());
+        assertEquals(1, stock.get(otherSku).get());
+    }
+
+    @Test
+    void release_givesStockBack() {
+        stock.put(hotSku, new AtomicInteger(0));
+
+        inventoryService.release(List.of(item(hotSku, 4)));
+
+        assertEquals(4, stock.get(hotSku).get());
+    }
+
+    //  Lasttest: 400 gleichzeitige Checkouts auf 150 Stück desselben Artikels
+    @Test
+    void concurrentCheckouts_ofHotSku_neverOversell() throws InterruptedException {
+        int initialStock = 150;
+        int checkouts = 400;
+        stock.put(hotSku, new AtomicInteger(initialStock));
+        stock.put(otherSku, new AtomicInteger(1_000));
+
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        for (int i = 0; i < checkouts; i++) {
+            int quantity = 1 + i % 2; //  Mengen 1 und 2 gemischt
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    inventoryService.reserve(List.of(item(otherSku, 1), item(hotSku, quantity)));
+                    succeeded.addAndGet(quantity);
+                } catch (OutOfStockException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertTrue(minimumSeen.get() >= 0, "Bestand war zwischendurch negativ");
+        assertEquals(initialStock - succeeded.get(), stock.get(hotSku).get());
+        assertTrue(stock.get(hotSku).get() <= 1, "Bestand bleibt liegen, obwohl Nachfrage da war");
+        assertTrue(rejected.get() > 0);
+        //  Abgelehnte Checkouts haben ihre Reservierung auf otherSku zurückgegeben
+        assertEquals(1_000 - (checkouts - rejected.get()), stock.get(otherSku).get());
+    }
+
+    private static OrderItem item(ObjectId productId, int quantity) {
+        return new OrderItem(productId.toHexString(), "Produkt", List.of(), quantity, 10.0);
+    }
+}
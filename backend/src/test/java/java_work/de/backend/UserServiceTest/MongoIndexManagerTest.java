@@ -0,0 +1,117 @@
+package java_work.de.backend.UserServiceTest;
+
+import java_work.de.backend.model.Cart;
+import java_work.de.backend.model.Order;
+import java_work.de.backend.model.User;
+import java_work.de.backend.service.MongoIndexManager;
+import java_work.de.backend.service.QueryPlanMonitor;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class MongoIndexManagerTest {
+
+    private MongoTemplate mongoTemplate;
+    private IndexOperations userIndexes;
+    private IndexOperations otherIndexes;
+    private IndexOperations cartIndexes;
+    private QueryPlanMonitor queryPlanMonitor;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        MongoConverter converter = mock(MongoConverter.class);
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        doReturn(mappingContext).when(converter).getMappingContext();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.getCollectionName(any(Class.class)))
+                .thenAnswer(invocation -> ((Class<?>) invocation.getArgument(0)).getSimpleName().toLowerCase(Locale.ROOT));
+
+        userIndexes = mock(IndexOperations.class);
+        otherIndexes = mock(IndexOperations.class);
+        when(mongoTemplate.indexOps(any(Class.class))).thenReturn(otherIndexes);
+        when(mongoTemplate.indexOps(User.class)).thenReturn(userIndexes);
+        cartIndexes = mock(IndexOperations.class);
+        when(mongoTemplate.indexOps(Cart.class)).thenReturn(cartIndexes);
+        when(cartIndexes.getIndexInfo()).thenReturn(List.of(
+                new IndexInfo(List.of(IndexField.create("userEmail", Sort.Direction.ASC)), "userEmail", true, false, "")));
+
+        queryPlanMonitor = mock(QueryPlanMonitor.class);
+    }
+
+    @Test
+    void declaredIndexes_areCreatedAtStartup() {
+        new MongoIndexManager(mongoTemplate, queryPlanMonitor, true).run(null);
+
+        ArgumentCaptor<IndexDefinition> userIndex = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(userIndexes).ensureIndex(userIndex.capture());
+        assertEquals(new Document("email", 1), userIndex.getValue().getIndexKeys());
+        assertEquals(Boolean.TRUE, userIndex.getValue().getIndexOptions().get("unique"));
+
+        verify(otherIndexes).ensureIndex(argThat(index ->
+                index.getIndexKeys().equals(new Document("userEmail", 1).append("_id", -1))));
+        verify(cartIndexes).ensureIndex(argThat(index -> index.getIndexKeys().equals(new Document("userEmail", 1))));
+    }
+
+    @Test
+    void strictMode_failsOnCollectionScan() {
+        when(queryPlanMonitor.usesCollectionScan(isNull(), argThat(shape -> shape.collection().equals("order"))))
+                .thenReturn(true);
+
+        MongoIndexManager manager = new MongoIndexManager(mongoTemplate, queryPlanMonitor, true);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> manager.run(null));
+        assertTrue(error.getMessage().contains("COLLSCAN: order"));
+    }
+
+    @Test
+    void lenientMode_onlyReportsProblems() {
+        when(queryPlanMonitor.usesCollectionScan(isNull(), any())).thenReturn(true);
+        doThrow(new DuplicateKeyException("E11000 duplicate key")).when(userIndexes).ensureIndex(any());
+
+        assertDoesNotThrow(() -> new MongoIndexManager(mongoTemplate, queryPlanMonitor, false).run(null));
+    }
+
+    @Test
+    void strictMode_failsWhenUniqueIndexCannotBeCreated() {
+        doThrow(new DuplicateKeyException("E11000 duplicate key")).when(userIndexes).ensureIndex(any());
+
+        MongoIndexManager manager = new MongoIndexManager(mongoTemplate, queryPlanMonitor, true);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> manager.run(null));
+        assertTrue(error.getMessage().contains("'user'"));
+        verify(mongoTemplate, atLeastOnce()).indexOps(Order.class);
+    }
+
+    @Test
+    void missingCartUniqueIndex_failsStartupEvenInLenientMode() {
+        doThrow(new DuplicateKeyException("E11000 duplicate key")).when(cartIndexes).ensureIndex(any());
+        when(cartIndexes.getIndexInfo()).thenReturn(List.of());
+
+        MongoIndexManager manager = new MongoIndexManager(mongoTemplate, queryPlanMonitor, false);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> manager.run(null));
+        assertTrue(error.getMessage().contains("'cart.userEmail'"));
+    }
+}
@@ -0,0 +1,253 @@
+package java_work.de.backend.UserServiceTest;
+
+import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.RefundCreateParams;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.dto.OrderDTO;
+import java_work.de.backend.dto.ProductDTO;
+import java_work.de.backend.model.Order;
+import java_work.de.backend.model.OrderItem;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.repo.CartRepository;
+import java_work.de.backend.repo.CategoryRepository;
+import java_work.de.backend.repo.OrderRepository;
+import java_work.de.backend.repo.ProductRepository;
+import java_work.de.backend.service.CartService;
+import java_work.de.backend.service.CatalogVersion;
+import java_work.de.backend.service.CategoryResolver;
+import java_work.de.backend.service.CategoryTree;
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ImageService;
+import java_work.de.backend.service.ImageStore;
+import java_work.de.backend.service.InventoryService;
+import java_work.de.backend.service.OrderService;
+import java_work.de.backend.service.ProductCache;
+import java_work.de.backend.service.ProductSearchIndex;
+import java_work.de.backend.service.ProductService;
+import java_work.de.backend.service.VersionConflictException;
+import java_work.de.backend.service.VersionConflicts;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OptimisticLockingTest {
+
+    private static final String ORDER_ID = new ObjectId().toHexString();
+    private static final String USER_EMAIL = "kunde@example.com";
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrderRepository orderRepository;
+    private InventoryService inventoryService;
+    private OrderService orderService;
+    private ProductRepository productRepository;
+    private MongoTemplate mongoTemplate;
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        VersionConflicts versionConflicts = new VersionConflicts(meterRegistry);
+        orderRepository = mock(OrderRepository.class);
+        inventoryService = mock(InventoryService.class);
+        orderService = new OrderService(orderRepository, mock(CartRepository.class), mock(CartService.class),
+                new ImageService(mock(ImageStore.class)), inventoryService, Optional.empty(), versionConflicts, "sk_test");
+
+        productRepository = mock(ProductRepository.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        ProductCache productCache = new ProductCache(meterRegistry, new CatalogVersion(), 1_000_000, 1_000,
+                Duration.ofMinutes(1), Duration.ofSeconds(30));
+        productService = new ProductService(productRepository, mock(CategoryRepository.class), mongoTemplate,
+                new ImageService(mock(ImageStore.class)), mock(ImageRenditionService.class), productCache,
+                mock(ProductSearchIndex.class), mock(CategoryResolver.class), mock(CategoryTree.class),
+                mock(ApplicationEventPublisher.class), Optional.empty(), versionConflicts, 20, 100, 200);
+    }
+
+    @Test
+    void statusChange_isRetriedOnFreshOrder_andCounted() {
+        //  Zwischen Lesen und Speichern hat jemand die Zahlung bestätigt (Version 3 -> 4)
+        when(orderRepository.findById(ORDER_ID))
+                .thenReturn(Optional.of(order(Order.OrderStatus.PROCESSING, Order.PaymentStatus.PENDING, 3L)))
+                .thenReturn(Optional.of(order(Order.OrderStatus.PROCESSING, Order.PaymentStatus.PAID, 4L)));
+        when(orderRepository.save(any(Order.class)))
+                .thenThrow(new OptimisticLockingFailureException("Version 3 veraltet"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        OrderDTO updated = orderService.updateOrderStatus(ORDER_ID, "shipped");
+
+        assertEquals("SHIPPED", updated.orderStatus());
+        assertEquals("PAID", updated.paymentStatus()); //  Die parallele Änderung bleibt erhalten
+        assertEquals(1.0, conflicts("order", "retried"));
+    }
+
+    @Test
+    void concurrentCancel_releasesStockOnlyOnce() {
+        //  Zweites Storno: beim Speichern war das erste schneller, der neue Stand ist schon CANCELLED
+        when(orderRepository.findById(ORDER_ID))
+                .thenReturn(Optional.of(order(Order.OrderStatus.PROCESSING, Order.PaymentStatus.PAID, 1L)))
+                .thenReturn(Optional.of(order(Order.OrderStatus.CANCELLED, Order.PaymentStatus.PAID, 2L)));
+        when(orderRepository.save(any(Order.class))).thenThrow(new OptimisticLockingFailureException("Version 1 veraltet"));
+
+        assertThrows(IllegalStateException.class, () -> orderService.cancelOrder(ORDER_ID, USER_EMAIL));
+        verify(inventoryService, never()).release(anyList());
+    }
+
+    @Test
+    void cancel_isRejectedOnceTheOrderHasLeftProcessing_andKeepsStock() {
+        for (Order.OrderStatus status : List.of(Order.OrderStatus.SHIPPED, Order.OrderStatus.DELIVERED,
+                Order.OrderStatus.RETURN_REQUESTED, Order.OrderStatus.RETURNED)) {
+            when(orderRepository.findById(ORDER_ID)).thenReturn(Optional.of(order(status, Order.PaymentStatus.PAID, 1L)));
+
+            assertFalse(orderService.cancelOrder(ORDER_ID, USER_EMAIL), status.name());
+        }
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(inventoryService, never()).release(anyList());
+    }
+
+    @Test
+    void approveReturn_refundFails_leavesOrderUntouched() {
+        when(orderRepository.findById(ORDER_ID))
+                .thenReturn(Optional.of(order(Order.OrderStatus.RETURN_REQUESTED, Order.PaymentStatus.PAID, 2L)));
+        try (MockedStatic<Refund> refunds = mockStatic(Refund.class)) {
+            refunds.when(() -> Refund.create(any(RefundCreateParams.class), any(RequestOptions.class)))
+                    .thenThrow(new IllegalStateException("Stripe nicht erreichbar"));
+
+            IllegalStateException error = assertThrows(IllegalStateException.class, () -> orderService.approveReturn(ORDER_ID));
+
+            assertEquals("Stripe nicht erreichbar", error.getMessage()); //  Ursprünglicher Fehler bleibt erhalten
+        }
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void approveReturn_refundsOnceWithIdempotencyKey_thenSavesOnFreshOrder() throws Exception {
+        //  Beim Speichern hat ein paralleler Klick die Bestellung schon auf RETURNED gesetzt
+        when(orderRepository.findById(ORDER_ID))
+                .thenReturn(Optional.of(order(Order.OrderStatus.RETURN_REQUESTED, Order.PaymentStatus.PAID, 2L)))
+                .thenReturn(Optional.of(order(Order.OrderStatus.RETURN_REQUESTED, Order.PaymentStatus.PAID, 2L)))
+                .thenReturn(Optional.of(order(Order.OrderStatus.RETURNED, Order.PaymentStatus.REFUNDED, 3L)));
+        when(orderRepository.save(any(Order.class))).thenThrow(new OptimisticLockingFailureException("Version 2 veraltet"));
+        try (MockedStatic<Refund> refunds = mockStatic(Refund.class)) {
+            assertTrue(orderService.approveReturn(ORDER_ID));
+
+            refunds.verify(() -> Refund.create(any(RefundCreateParams.class),
+                    argThat((RequestOptions options) -> ("refund-" + ORDER_ID).equals(options.getIdempotencyKey()))));
+        }
+        verify(orderRepository, times(1)).save(argThat(order -> order.orderStatus() == Order.OrderStatus.RETURNED
+                && order.paymentStatus() == Order.PaymentStatus.REFUNDED));
+    }
+
+    @Test
+    void persistentConflict_returnsCurrentOrder() {
+        when(orderRepository.findById(ORDER_ID))
+                .thenReturn(Optional.of(order(Order.OrderStatus.PROCESSING, Order.PaymentStatus.PAID, 7L)));
+        when(orderRepository.save(any(Order.class))).thenThrow(new OptimisticLockingFailureException("veraltet"));
+
+        VersionConflictException conflict = assertThrows(VersionConflictException.class,
+                () -> orderService.updatePaymentStatus(ORDER_ID, "refunded"));
+
+        assertEquals(ORDER_ID, ((OrderDTO) conflict.getCurrent()).id());
+        verify(orderRepository, times(3)).save(any(Order.class));
+        assertEquals(2.0, conflicts("order", "retried"));
+        assertEquals(1.0, conflicts("order", "rejected"));
+    }
+
+    @Test
+    void productEdit_isNotMerged_butRejectedWithCurrentProduct() {
+        ObjectId id = new ObjectId();
+        Product current = new Product(id, "Lampe", "neu", 24.9, 3, List.of(), "cat-1", 5L, null);
+        when(productRepository.findById(id.toHexString())).thenReturn(Optional.of(current));
+        ProductDTO edit = new ProductDTO(id.toHexString(), "Lampe", "alt", 19.9, 3, List.of("hash"), "cat-1");
+
+        //  Formular wurde mit Version 4 geladen
+        VersionConflictException stale = assertThrows(VersionConflictException.class,
+                () -> productService.updateProduct(id.toHexString(), edit, "\"" + id.toHexString() + "-4-3\""));
+        assertEquals(24.9, ((ProductDTO) stale.getCurrent()).price());
+        verifyNoInteractions(mongoTemplate);
+
+        //  Ohne If-Match: Konflikt erst beim Speichern (Versionsbedingung trifft kein Dokument)
+        assertThrows(VersionConflictException.class, () -> productService.updateProduct(id.toHexString(), edit));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class));
+        assertEquals(5L, query.getValue().getQueryObject().get("version")); //  Bedingung: gelesene Version
+        verify(productRepository, never()).save(any(Product.class));
+        assertEquals(2.0, conflicts("product", "rejected"));
+    }
+
+    @Test
+    void productEdit_withETagFromGet_isNotBlockedByStockChanges() {
+        ObjectId id = new ObjectId();
+        //  Seit dem GET (Bestand 7) wurde verkauft; die Version ist dieselbe geblieben
+        Product current = new Product(id, "Lampe", "alt", 19.9, 3, List.of(), "cat-1", 5L, null);
+        when(productRepository.findById(id.toHexString())).thenReturn(Optional.of(current));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class)))
+                .thenReturn(new Product(id, "Lampe", "neu", 19.9, 3, List.of("hash"), "cat-1", 6L, null));
+        ProductDTO edit = new ProductDTO(id.toHexString(), "Lampe", "neu", 19.9, 7, List.of("hash"), "cat-1");
+
+        ProductDTO saved = productService.updateProduct(id.toHexString(), edit, "\"" + id.toHexString() + "-5-7\"");
+
+        assertEquals("neu", saved.description());
+        assertEquals(0.0, conflicts("product", "rejected"));
+
+        //  If-Match vergleicht stark: ein schwacher Tag passt nie, auch bei gleicher Version
+        assertThrows(VersionConflictException.class,
+                () -> productService.updateProduct(id.toHexString(), edit, "W/\"" + id.toHexString() + "-5-7\""));
+    }
+
+    @Test
+    void productEdit_afterReservation_keepsTheReservedUnits() {
+        ObjectId id = new ObjectId();
+        Product loaded = new Product(id, "Lampe", "alt", 19.9, 10, List.of(), "cat-1", 5L, null);
+        when(productRepository.findById(id.toHexString())).thenReturn(Optional.of(loaded));
+        String etag = productService.findVersionedProductById(id.toHexString()).etag();
+
+        //  Checkout reserviert 4 Stück: $inc auf stock, Version bleibt
+        Product afterReservation = new Product(id, "Lampe", "alt", 19.9, 6, List.of(), "cat-1", 5L, null);
+        when(productRepository.findById(id.toHexString())).thenReturn(Optional.of(afterReservation));
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        when(mongoTemplate.findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(Product.class)))
+                .thenReturn(new Product(id, "Lampe", "neu", 19.9, 6, List.of(), "cat-1", 6L, null));
+
+        //  Formular schickt den Bestand aus dem GET unverändert zurück
+        ProductDTO edit = new ProductDTO(id.toHexString(), "Lampe", "neu", 19.9, 10, List.of(), "cat-1");
+        ProductDTO saved = productService.updateProduct(id.toHexString(), edit, etag);
+
+        assertEquals(6, saved.stock());
+        assertFalse(update.getValue().getUpdateObject().get("$inc", Document.class).containsKey("stock"));
+        assertFalse(update.getValue().getUpdateObject().get("$set", Document.class).containsKey("stock"));
+        verify(productRepository, never()).save(any(Product.class));
+
+        //  Admin erhöht im Formular um 2: gebucht wird nur die Differenz zum gelesenen Bestand
+        ProductDTO restock = new ProductDTO(id.toHexString(), "Lampe", "neu", 19.9, 12, List.of(), "cat-1");
+        productService.updateProduct(id.toHexString(), restock, etag);
+        assertEquals(2, update.getValue().getUpdateObject().get("$inc", Document.class).getInteger("stock"));
+    }
+
+    private double conflicts(String entity, String outcome) {
+        return meterRegistry.counter("version.conflicts", "entity", entity, "outcome", outcome).count();
+    }
+
+    private static Order order(Order.OrderStatus status, Order.PaymentStatus paymentStatus, long version) {
+        return new Order(new ObjectId(ORDER_ID), USER_EMAIL, List.of(new OrderItem("p1", "Lampe", List.of(), 1, 19.9)),
+                19.9, null, paymentStatus, status, Order.PaymentMethod.SEPA, null, false, version);
+    }
+}
@@ -0,0 +1,179 @@
+package java_work.de.backend.UserServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.dto.ProductDTO;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.repo.CategoryRepository;
+import java_work.de.backend.repo.ProductRepository;
+import java_work.de.backend.service.CatalogVersion;
+import java_work.de.backend.service.CategoryResolver;
+import java_work.de.backend.service.CategoryTree;
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ImageService;
+import java_work.de.backend.service.ImageStore;
+import java_work.de.backend.service.ProductCache;
+import java_work.de.backend.service.ProductChangedEvent;
+import java_work.de.backend.service.ProductSearchIndex;
+import java_work.de.backend.service.ProductService;
+import java_work.de.backend.service.StockChangedEvent;
+import java_work.de.backend.service.VersionConflicts;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductCacheTest {
+
+    private final Product lampe = new Product(new ObjectId(), "Lampe", null, 19.9, 3, List.of(), "cat-1", 0L, null);
+    private final String id = lampe.id().toHexString();
+
+    private ProductRepository productRepository;
+    private ProductCache productCache;
+    private CatalogVersion catalogVersion;
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        when(productRepository.findById(id)).thenReturn(Optional.of(lampe));
+        when(productRepository.findAll()).thenReturn(List.of(lampe));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        //  updateProduct schreibt per findAndModify (Versionsbedingung, Bestand als $inc)
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Product.class)))
+                .thenReturn(lampe);
+        catalogVersion = new CatalogVersion();
+        productCache = new ProductCache(new SimpleMeterRegistry(), catalogVersion, 1_000_000, 1_000,
+                Duration.ofMinutes(1), Duration.ofSeconds(30));
+        //  Events wie im Spring-Kontext direkt an den Cache weiterreichen
+        ApplicationEventPublisher eventPublisher = event -> productCache.onProductChanged((ProductChangedEvent) event);
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.existsById(any())).thenReturn(true);
+        productService = new ProductService(productRepository, categoryRepository, mongoTemplate,
+                new ImageService(mock(ImageStore.class)), mock(ImageRenditionService.class), productCache,
+                mock(ProductSearchIndex.class), mock(CategoryResolver.class), mock(CategoryTree.class), eventPublisher,
+                Optional.empty(), new VersionConflicts(new SimpleMeterRegistry()), 20, 100, 200);
+    }
+
+    @Test
+    void repeatedReads_areServedFromCache() {
+        productService.findProductById(id);
+        productService.findProductById(id);
+        productService.findAllProducts();
+        productService.findAllProducts();
+
+        verify(productRepository, times(1)).findById(id);
+        verify(productRepository, times(1)).findAll();
+    }
+
+    @Test
+    void saveUpdateAndDelete_invalidateProductAndListings() {
+        warm();
+        String etag = catalogVersion.etag();
+
+        productService.saveProduct(dto("Tisch"));
+        clearInvocations(productRepository);
+        warm();
+        verify(productRepository, times(1)).findAll(); //  Listen neu geladen
+        verify(productRepository, never()).findById(id); //  Anderes Produkt: Eintrag bleibt
+
+        productService.updateProduct(id, dto("Lampe XL"));
+        clearInvocations(productRepository);
+        warm();
+        verify(productRepository, times(1)).findAll();
+        verify(productRepository, times(1)).findById(id);
+
+        productService.deleteProduct(id);
+        clearInvocations(productRepository);
+        warm();
+        verify(productRepository, times(1)).findAll();
+        verify(productRepository, times(1)).findById(id);
+
+        assertNotEquals(etag, catalogVersion.etag());
+    }
+
+    @Test
+    void stockChange_evictsProductAndListings_andAdvancesCatalogVersion() {
+        warm();
+        String etag = catalogVersion.etag();
+
+        productCache.onStockChanged(new StockChangedEvent(id, false));
+        clearInvocations(productRepository);
+        warm();
+
+        //  Listen zeigen den Bestand: neu laden und neue ETag, sonst 304 mit altem Bestand
+        verify(productRepository, times(1)).findById(id);
+        verify(productRepository, times(1)).findAll();
+        assertNotEquals(etag, catalogVersion.etag());
+    }
+
+    @Test
+    void invalidationDuringLoad_doesNotLeaveTheStaleProductCached() {
+        //  Während des Lesens speichert ein anderer Request das Produkt neu
+        when(productRepository.findById(id)).thenAnswer(invocation -> {
+            productCache.invalidateProduct(id);
+            return Optional.of(lampe);
+        }).thenReturn(Optional.of(lampe));
+
+        productService.findProductById(id);
+        productService.findProductById(id);
+
+        verify(productRepository, times(2)).findById(id); //  Erster Stand wurde nicht behalten
+        productService.findProductById(id);
+        verify(productRepository, times(2)).findById(id); //  Ungestörter Ladevorgang wird gecacht
+    }
+
+    @Test
+    void invalidationDuringListingLoad_doesNotLeaveTheStaleListingCached() {
+        when(productRepository.findAll()).thenAnswer(invocation -> {
+            productCache.invalidateProduct(id);
+            return List.of(lampe);
+        }).thenReturn(List.of(lampe));
+
+        productService.findAllProducts();
+        productService.findAllProducts();
+        productService.findAllProducts();
+
+        verify(productRepository, times(2)).findAll();
+    }
+
+    @Test
+    void invalidationDuringMissLookup_doesNotMarkTheIdAsMissing() {
+        String neu = new ObjectId().toHexString();
+        when(productRepository.findById(neu)).thenAnswer(invocation -> {
+            productCache.invalidateProduct(neu); //  Wird gerade angelegt
+            return Optional.empty();
+        });
+
+        assertThrows(NoSuchElementException.class, () -> productService.findProductById(neu));
+
+        assertFalse(productCache.isKnownMissing(neu));
+    }
+
+    private void warm() {
+        productService.findAllProducts();
+        try {
+            productService.findProductById(id);
+        } catch (NoSuchElementException e) {
+            //  Nach dem Löschen
+        }
+    }
+
+    private static ProductDTO dto(String name) {
+        return new ProductDTO(null, name, null, 10.0, 1, List.of("a".repeat(64)), "cat-1");
+    }
+}
@@ -0,0 +1,180 @@
+package java_work.de.backend.UserServiceTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import jakarta.validation.Validation;
+import java_work.de.backend.dto.ImportErrorDTO;
+import java_work.de.backend.dto.ImportReportDTO;
+import java_work.de.backend.model.Category;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.repo.CategoryRepository;
+import java_work.de.backend.service.CategoryResolver;
+import java_work.de.backend.service.DataFormat;
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ImageService;
+import java_work.de.backend.service.ImageStore;
+import java_work.de.backend.service.ProductChangedEvent;
+import java_work.de.backend.service.ProductImportService;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductImportServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private CategoryResolver categoryResolver;
+    private final List<List<Product>> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAll()).thenReturn(List.of(new Category("cat-1", "Haushalt", null)));
+        categoryResolver = new CategoryResolver(categoryRepository);
+
+        //  Jeder Batch bekommt eigene BulkOperations, die alle Produkte als eingefügt melden
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(Product.class))).thenAnswer(invocation -> {
+            BulkOperations bulk = mock(BulkOperations.class);
+            List<Product> batch = new ArrayList<>();
+            when(bulk.insert(anyList())).thenAnswer(insert -> {
+                batch.addAll(insert.getArgument(0));
+                return bulk;
+            });
+            when(bulk.execute()).thenAnswer(execute -> insertedResult(batch.size()));
+            batches.add(batch);
+            return bulk;
+        });
+    }
+
+    @Test
+    void ndjson_isWrittenInBatches_andBadLinesAreReported() throws IOException {
+        String ndjson = """
+                {"name":"Lampe","price":19.9,"stock":3,"images":["https://cdn/lampe.png"],"categoryId":"cat-1"}
+                {"name":"kaputt",
+                {"name":"Tisch","price":120,"stock":1,"images":["https://cdn/tisch.png"],"categoryId":"cat-unbekannt"}
+
+                {"name":"Stuhl","price":45,"stock":8,"images":["https://cdn/stuhl.png"],"categoryId":"cat-1"}
+                {"name":"","price":-1,"stock":2,"images":["https://cdn/x.png"],"categoryId":"cat-1"}
+                {"name":"Regal","price":80,"stock":2,"images":["https://cdn/regal.png"],"categoryId":"cat-1"}
+                """;
+
+        ImportReportDTO report = service(2, 100).importProducts(stream(ndjson), DataFormat.NDJSON);
+
+        assertEquals(3, report.imported());
+        assertEquals(3, report.failed());
+        assertEquals(List.of(2L, 3L, 6L), report.errors().stream().map(ImportErrorDTO::line).toList());
+        assertTrue(report.errors().get(0).message().startsWith("Ungültiges JSON"));
+        assertEquals("Kategorie existiert nicht: cat-unbekannt", report.errors().get(1).message());
+        assertEquals("Name darf nicht leer sein!; Preis darf nicht negativ sein!", report.errors().get(2).message());
+
+        assertEquals(List.of(2, 1), batches.stream().map(List::size).toList());
+        assertEquals("Regal", batches.get(1).get(0).name());
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    void csv_supportsQuotedFields_semicolons_andMultipleImages() throws IOException {
+        String csv = """
+                name;description;price;stock;categoryId;images
+                "Lampe; LED";"Warmweiß,
+                dimmbar";"19,90";3;cat-1;https://cdn/a.png|https://cdn/b.png
+                Tisch;Eiche;abc;1;cat-1;https://cdn/tisch.png
+                """;
+
+        ImportReportDTO report = service(500, 100).importProducts(stream(csv), DataFormat.CSV);
+
+        assertEquals(1, report.imported());
+        assertEquals(List.of(new ImportErrorDTO(4, "Ungültige Zahl in Spalte price: abc")), report.errors());
+
+        Product lampe = batches.get(0).get(0);
+        assertEquals("Lampe; LED", lampe.name());
+        assertEquals("Warmweiß,\ndimmbar", lampe.description());
+        assertEquals(19.9, lampe.price());
+        assertEquals(List.of("https://cdn/a.png", "https://cdn/b.png"), lampe.images());
+    }
+
+    @Test
+    void csv_withoutRequiredColumn_isRejected() {
+        ProductImportService service = service(500, 100);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.importProducts(stream("name,price\nLampe,3\n"), DataFormat.CSV));
+    }
+
+    @Test
+    void duplicateIds_fromBulkWrite_areMappedBackToTheirLine() throws IOException {
+        ObjectId existing = new ObjectId();
+        BulkOperations bulk = mock(BulkOperations.class);
+        BulkOperationException duplicate = mock(BulkOperationException.class);
+        when(duplicate.getErrors()).thenReturn(List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)));
+        BulkWriteResult partial = insertedResult(1);
+        when(duplicate.getResult()).thenReturn(partial);
+        when(bulk.execute()).thenThrow(duplicate);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(Product.class))).thenReturn(bulk);
+
+        String ndjson = """
+                {"name":"Neu","price":1,"stock":1,"images":["https://cdn/n.png"],"categoryId":"cat-1"}
+                {"id":"%s","name":"Alt","price":1,"stock":1,"images":["https://cdn/a.png"],"categoryId":"cat-1"}
+                """.formatted(existing.toHexString());
+
+        ImageRenditionService renditionService = mock(ImageRenditionService.class);
+        ImportReportDTO report = service(500, 100, renditionService).importProducts(stream(ndjson), DataFormat.NDJSON);
+
+        assertEquals(1, report.imported());
+        assertEquals(List.of(new ImportErrorDTO(2, "Produkt-ID existiert bereits")), report.errors());
+        //  Varianten nur für die eingefügte Zeile, nicht für die abgelehnte
+        verify(renditionService).requestRenditions(List.of("https://cdn/n.png"));
+        verify(renditionService, never()).requestRenditions(List.of("https://cdn/a.png"));
+    }
+
+    @Test
+    void errorList_isCapped() throws IOException {
+        ImportReportDTO report = service(500, 2).importProducts(stream("x\ny\nz\n"), DataFormat.NDJSON);
+
+        assertEquals(0, report.imported());
+        assertEquals(3, report.failed());
+        assertEquals(2, report.errors().size());
+        assertTrue(report.errorsTruncated());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private ProductImportService service(int batchSize, int maxErrors) {
+        return service(batchSize, maxErrors, mock(ImageRenditionService.class));
+    }
+
+    private ProductImportService service(int batchSize, int maxErrors, ImageRenditionService renditionService) {
+        return new ProductImportService(mongoTemplate, categoryResolver, new ImageService(mock(ImageStore.class)),
+                renditionService, Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper(), eventPublisher, batchSize, maxErrors);
+    }
+
+    private static BulkWriteResult insertedResult(int inserted) {
+        BulkWriteResult result = mock(BulkWriteResult.class);
+        when(result.getInsertedCount()).thenReturn(inserted);
+        return result;
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,108 @@
+package java_work.de.backend.UserServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.dto.PageDTO;
+import java_work.de.backend.dto.ProductDTO;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.repo.CategoryRepository;
+import java_work.de.backend.repo.ProductRepository;
+import java_work.de.backend.service.CatalogVersion;
+import java_work.de.backend.service.CategoryResolver;
+import java_work.de.backend.service.CategoryTree;
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ImageService;
+import java_work.de.backend.service.ImageStore;
+import java_work.de.backend.service.ProductCache;
+import java_work.de.backend.service.ProductSearchIndex;
+import java_work.de.backend.service.ProductService;
+import java_work.de.backend.service.VersionConflicts;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductPageTest {
+
+    //  Aufsteigende IDs = Reihenfolge im _id-Index
+    private final List<Product> catalog = IntStream.range(0, 7)
+            .mapToObj(i -> new Product(new ObjectId(), "Produkt " + i, null, 10.0 + i, 1, List.of(), "cat-1", 0L, null))
+            .toList();
+
+    private MongoTemplate mongoTemplate;
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        //  Simuliert {_id: {$gt: cursor}} sortiert nach _id mit limit
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            Document id = query.getQueryObject().get("_id", Document.class);
+            ObjectId after = id == null ? null : id.get("$gt", ObjectId.class);
+            return catalog.stream()
+                    .filter(product -> after == null || product.id().compareTo(after) > 0)
+                    .limit(query.getLimit())
+                    .toList();
+        });
+        ProductCache productCache = new ProductCache(new SimpleMeterRegistry(), new CatalogVersion(), 1_000_000, 1_000,
+                Duration.ofMinutes(1), Duration.ofSeconds(30));
+        productService = new ProductService(mock(ProductRepository.class), mock(CategoryRepository.class), mongoTemplate,
+                new ImageService(mock(ImageStore.class)), mock(ImageRenditionService.class), productCache,
+                mock(ProductSearchIndex.class), mock(CategoryResolver.class), mock(CategoryTree.class),
+                mock(ApplicationEventPublisher.class), Optional.empty(), new VersionConflicts(new SimpleMeterRegistry()),
+                2, 3, 200);
+    }
+
+    @Test
+    void cursor_walksTheWholeCatalog_acrossPageBoundaries() {
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            PageDTO<ProductDTO> page = productService.findProductPage(cursor, 3);
+            page.items().forEach(product -> seen.add(product.id()));
+            cursor = page.next();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages); //  3 + 3 + 1
+        assertEquals(catalog.stream().map(product -> product.id().toHexString()).toList(), seen);
+    }
+
+    @Test
+    void pageSize_isCappedAtMaximum_andDefaultsWhenMissing() {
+        assertEquals(3, productService.findProductPage(null, 500).items().size());
+        assertEquals(2, productService.findProductPage(null, null).items().size());
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(query.capture(), eq(Product.class));
+        assertEquals(4, query.getAllValues().get(0).getLimit()); //  Maximum + 1 für "gibt es eine nächste Seite?"
+        assertEquals(3, query.getAllValues().get(1).getLimit());
+    }
+
+    @Test
+    void lastPage_hasNoNextCursor_andBadCursorIsRejected() {
+        String lastId = catalog.get(catalog.size() - 2).id().toHexString();
+        PageDTO<ProductDTO> last = productService.findProductPage(lastId, 3);
+        assertEquals(1, last.items().size());
+        assertNull(last.next());
+
+        assertThrows(IllegalArgumentException.class, () -> productService.findProductPage("kein-cursor", 3));
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Product.class)); //  Ungültiger Cursor erreicht Mongo nie
+    }
+}
@@ -0,0 +1,147 @@
+package java_work.de.backend.UserServiceTest;
+
+import java_work.de.backend.model.Product;
+import java_work.de.backend.service.ProductChangedEvent;
+import java_work.de.backend.service.ProductSearchIndex;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+
+    private final Product laptop = product("Gaming Laptop", "Schneller Laptop mit großem Bildschirm", "cat-it", 999.0);
+    private final Product bag = product("Tasche", "Passt für jeden Laptop bis 15 Zoll", "cat-acc", 39.0);
+    private final Product shoes = product("Schuhe Größe 42", "Bequeme Straßenschuhe", "cat-fashion", 59.0);
+    private final Product muesli = product("Müsli", "Knuspriges Frühstück", "cat-food", 4.5);
+
+    private MongoTemplate mongoTemplate;
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class)))
+                .thenAnswer(invocation -> Stream.of(laptop, bag, shoes, muesli));
+        index = new ProductSearchIndex(mongoTemplate);
+        index.rebuild();
+    }
+
+    @Test
+    void germanNormalization_matchesUmlautsAndSharpS() {
+        assertEquals(List.of("groesse", "strasse", "muesli"), ProductSearchIndex.tokenize("Größe STRASSE Müsli"));
+
+        assertEquals(List.of(muesli.id().toHexString()), index.search("muesli", 0, 10).productIds());
+        assertEquals(List.of(shoes.id().toHexString()), index.search("groesse", 0, 10).productIds());
+        assertEquals(List.of(shoes.id().toHexString()), index.search("strassenschuhe", 0, 10).productIds());
+    }
+
+    @Test
+    void nameMatch_ranksAboveDescriptionMatch() {
+        ProductSearchIndex.Hits hits = index.search("laptop", 0, 10);
+
+        assertEquals(2, hits.total());
+        assertEquals(List.of(laptop.id().toHexString(), bag.id().toHexString()), hits.productIds());
+    }
+
+    @Test
+    void allTermsMustMatch_andLastTermIsPrefix() {
+        assertEquals(List.of(laptop.id().toHexString()), index.search("laptop bildsch", 0, 10).productIds());
+        assertEquals(List.of(), index.search("laptop schuhe", 0, 10).productIds());
+    }
+
+    @Test
+    void paging_returnsRequestedSliceAndTotal() {
+        ProductSearchIndex.Hits second = index.search("laptop", 1, 1);
+
+        assertEquals(2, second.total());
+        assertEquals(List.of(bag.id().toHexString()), second.productIds());
+    }
+
+    @Test
+    void productEvents_updateIndexIncrementally() {
+        Product renamed = new Product(bag.id(), "Rucksack", "Für Wanderungen", 49.0, 3, List.of(), "cat-1", 1L, null);
+        index.onProductChanged(ProductChangedEvent.saved(renamed));
+        index.onProductChanged(ProductChangedEvent.deleted(laptop.id().toHexString()));
+
+        assertEquals(0, index.search("laptop", 0, 10).total());
+        assertEquals(List.of(bag.id().toHexString()), index.search("rucksack", 0, 10).productIds());
+        verify(mongoTemplate, times(1)).stream(any(Query.class), eq(Product.class));
+    }
+
+    @Test
+    void facetedSearch_countsCategoriesAndPriceBuckets() {
+        ProductSearchIndex.FacetedHits hits = index.facetedSearch("laptop", List.of(), null, null, 0, 10);
+
+        assertEquals(2, hits.total());
+        assertEquals(Map.of("cat-it", 1, "cat-acc", 1), hits.categoryCounts());
+        assertEquals(List.of(0, 1, 0, 0, 0, 1, 0), hits.priceBucketCounts());
+    }
+
+    @Test
+    void facetedSearch_excludesOwnFilterFromItsFacet() {
+        ProductSearchIndex.FacetedHits byCategory = index.facetedSearch("laptop", List.of("cat-acc"), null, null, 0, 10);
+
+        assertEquals(List.of(bag.id().toHexString()), byCategory.productIds());
+        assertEquals(Map.of("cat-it", 1, "cat-acc", 1), byCategory.categoryCounts());
+        assertEquals(List.of(0, 1, 0, 0, 0, 0, 0), byCategory.priceBucketCounts());
+
+        ProductSearchIndex.FacetedHits byPrice = index.facetedSearch(null, null, 30.0, 60.0, 0, 10);
+
+        assertEquals(List.of(bag.id().toHexString(), shoes.id().toHexString()), byPrice.productIds());
+        assertEquals(Map.of("cat-acc", 1, "cat-fashion", 1), byPrice.categoryCounts());
+        assertEquals(List.of(1, 1, 1, 0, 0, 1, 0), byPrice.priceBucketCounts());
+    }
+
+    @Test
+    void facetedSearch_followsProductUpdates() {
+        Product moved = new Product(shoes.id(), shoes.name(), shoes.description(), 120.0, 1, List.of(), "cat-acc", 1L, null);
+        index.onProductChanged(ProductChangedEvent.saved(moved));
+
+        ProductSearchIndex.FacetedHits hits = index.facetedSearch(null, List.of("cat-acc"), 100.0, null, 0, 10);
+
+        assertEquals(List.of(shoes.id().toHexString()), hits.productIds());
+        assertNull(hits.categoryCounts().get("cat-fashion"));
+    }
+
+    @Test
+    void shortPrefix_keepsMostFrequentTerms_andFlagsTruncation() {
+        //  55 Begriffe, die nur einmal vorkommen, und ein alphabetisch letzter Begriff in drei Produkten
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 55; i++) {
+            products.add(product(String.format("kabel%02d", i), "", "cat-it", 5.0));
+        }
+        List<Product> frequent = List.of(
+                product("kabelzz", "", "cat-it", 5.0),
+                product("kabelzz", "", "cat-it", 5.0),
+                product("kabelzz", "", "cat-it", 5.0));
+        products.addAll(frequent);
+        MongoTemplate template = mock(MongoTemplate.class);
+        when(template.stream(any(Query.class), eq(Product.class))).thenAnswer(invocation -> products.stream());
+        ProductSearchIndex large = new ProductSearchIndex(template);
+
+        ProductSearchIndex.Hits hits = large.search("kab", 0, 100);
+
+        assertTrue(hits.truncated());
+        assertEquals(3 + 49, hits.total());
+        assertTrue(hits.productIds().containsAll(frequent.stream().map(p -> p.id().toHexString()).toList()));
+        assertTrue(large.facetedSearch("kab", null, null, null, 0, 10).truncated());
+        assertFalse(large.search("kabelzz", 0, 10).truncated());
+        assertFalse(index.search("lap", 0, 10).truncated());
+    }
+
+    private static Product product(String name, String description, String categoryId, double price) {
+        return new Product(new ObjectId(), name, description, price, 1, List.of(), categoryId, 0L, null);
+    }
+}
@@ -0,0 +1,91 @@
+package java_work.de.backend.UserServiceTest;
+
+import java_work.de.backend.dto.SuggestionDTO;
+import java_work.de.backend.model.Category;
+import java_work.de.backend.model.Order;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.service.ProductChangedEvent;
+import java_work.de.backend.service.ProductSuggester;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductSuggesterTest {
+
+    private final Product laptop = product("Gaming Laptop", "cat-it");
+    private final Product lamp = product("Lampe", "cat-home");
+    private final Product ladder = product("Leiter", "cat-home");
+
+    private ProductSuggester suggester;
+
+    @BeforeEach
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.stream(any(Query.class), eq(Product.class)))
+                .thenAnswer(invocation -> Stream.of(laptop, lamp, ladder));
+        when(mongoTemplate.findAll(Category.class))
+                .thenReturn(List.of(new Category("cat-home", "Haushalt", null), new Category("cat-it", "Laptops & Zubehör", null)));
+        //  Die Lampe verkauft sich am besten, dann der Laptop
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Order.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(
+                        new Document("_id", lamp.id().toHexString()).append("units", 12),
+                        new Document("_id", laptop.id().toHexString()).append("units", 5)), new Document()));
+
+        suggester = new ProductSuggester(mongoTemplate, 20, Duration.ofHours(1));
+        suggester.rebuild();
+    }
+
+    @Test
+    void shortPrefix_isRankedByPopularity() {
+        List<String> texts = suggester.suggest("la", 10).stream().map(SuggestionDTO::text).toList();
+
+        assertEquals(List.of("Lampe", "Gaming Laptop", "Laptops & Zubehör"), texts);
+    }
+
+    @Test
+    void longerPrefix_matchesAnyWordOfTheName_andRespectsLimit() {
+        List<SuggestionDTO> suggestions = suggester.suggest("LAPT", 1);
+
+        assertEquals(1, suggestions.size());
+        assertEquals(new SuggestionDTO("product", laptop.id().toHexString(), "Gaming Laptop"), suggestions.get(0));
+    }
+
+    @Test
+    void umlautsInPrefix_areNormalized() {
+        List<SuggestionDTO> suggestions = suggester.suggest("zubeh", 10);
+
+        assertEquals(List.of(new SuggestionDTO("category", "cat-it", "Laptops & Zubehör")), suggestions);
+        assertEquals(suggestions, suggester.suggest("Zubehö", 10));
+    }
+
+    @Test
+    void productChanges_areMergedIncrementally() {
+        Product renamed = new Product(ladder.id(), "Lackierpistole", null, 30.0, 1, List.of(), "cat-home", 1L, null);
+        suggester.onProductChanged(ProductChangedEvent.saved(renamed));
+        suggester.onProductChanged(ProductChangedEvent.deleted(lamp.id().toHexString()));
+
+        List<String> texts = suggester.suggest("la", 10).stream().map(SuggestionDTO::text).toList();
+        assertEquals(List.of("Gaming Laptop", "Laptops & Zubehör", "Lackierpistole"), texts);
+        assertTrue(suggester.suggest("leiter", 10).isEmpty());
+        //  Der Kurz-Präfix-Bereich des alten Namens wird mit aktualisiert
+        assertTrue(suggester.suggest("le", 10).isEmpty());
+    }
+
+    private static Product product(String name, String categoryId) {
+        return new Product(new ObjectId(), name, "", 10.0, 1, List.of(), categoryId, 0L, null);
+    }
+}
@@ -0,0 +1,86 @@
+package java_work.de.backend.UserServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.dto.ProductSummaryDTO;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.repo.CategoryRepository;
+import java_work.de.backend.repo.ProductRepository;
+import java_work.de.backend.service.CatalogVersion;
+import java_work.de.backend.service.CategoryResolver;
+import java_work.de.backend.service.CategoryTree;
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ImageService;
+import java_work.de.backend.service.ImageStore;
+import java_work.de.backend.service.ProductCache;
+import java_work.de.backend.service.ProductSearchIndex;
+import java_work.de.backend.service.ProductService;
+import java_work.de.backend.service.VersionConflicts;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductSummaryTest {
+
+    private final Product lampe = new Product(new ObjectId(), "Lampe", null, 19.9, 3, List.of("a".repeat(64)), "cat-1", 0L, null);
+
+    private MongoTemplate mongoTemplate;
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.find(any(Query.class), eq(Product.class))).thenReturn(List.of(lampe));
+        ProductCache productCache = new ProductCache(new SimpleMeterRegistry(), new CatalogVersion(), 1_000_000, 1_000,
+                Duration.ofMinutes(1), Duration.ofSeconds(30));
+        ImageRenditionService renditionService = mock(ImageRenditionService.class);
+        when(renditionService.toUrls(any(), eq(ImageRenditionService.Variant.LISTING)))
+                .thenAnswer(invocation -> invocation.<List<String>>getArgument(0).stream()
+                        .map(hash -> "/api/images/" + hash + "?variant=listing").toList());
+        productService = new ProductService(mock(ProductRepository.class), mock(CategoryRepository.class), mongoTemplate,
+                new ImageService(mock(ImageStore.class)), renditionService, productCache,
+                mock(ProductSearchIndex.class), mock(CategoryResolver.class), mock(CategoryTree.class),
+                mock(ApplicationEventPublisher.class), Optional.empty(), new VersionConflicts(new SimpleMeterRegistry()),
+                20, 100, 200);
+    }
+
+    @Test
+    void summaryQuery_loadsOnlyTileFields_andSlicesImagesToOne() {
+        productService.findAllProductSummaries();
+        productService.findProductSummaryPage(null, 10);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(query.capture(), eq(Product.class));
+        for (Query captured : query.getAllValues()) {
+            Document fields = captured.getFieldsObject();
+            assertFalse(fields.containsKey("description")); //  Reine Inklusion: alles andere bleibt in MongoDB
+            assertEquals(1, fields.get("name"));
+            assertEquals(1, fields.get("price"));
+            assertEquals(1, fields.get("stock"));
+            assertEquals(1, fields.get("categoryId"));
+            assertEquals(new Document("$slice", 1), fields.get("images"));
+        }
+    }
+
+    @Test
+    void summary_pointsToTheListingVariantOfTheFirstImage() {
+        ProductSummaryDTO summary = productService.findAllProductSummaries().get(0);
+
+        assertEquals(lampe.id().toHexString(), summary.id());
+        assertEquals("Lampe", summary.name());
+        assertEquals("/api/images/" + "a".repeat(64) + "?variant=listing", summary.image());
+    }
+}
@@ -0,0 +1,156 @@
+package java_work.de.backend.UserServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java_work.de.backend.dto.ProductDTO;
+import java_work.de.backend.model.Product;
+import java_work.de.backend.repo.CategoryRepository;
+import java_work.de.backend.repo.ProductRepository;
+import java_work.de.backend.service.CatalogVersion;
+import java_work.de.backend.service.CategoryResolver;
+import java_work.de.backend.service.CategoryTree;
+import java_work.de.backend.service.ImageRenditionService;
+import java_work.de.backend.service.ImageService;
+import java_work.de.backend.service.ImageStore;
+import java_work.de.backend.service.ProductCache;
+import java_work.de.backend.service.ProductChangedEvent;
+import java_work.de.backend.service.ProductSearchIndex;
+import java_work.de.backend.service.ProductService;
+import java_work.de.backend.service.SingleFlight;
+import java_work.de.backend.service.VersionConflicts;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SingleFlightTest {
+
+    private final Product lampe = new Product(new ObjectId(), "Lampe", null, 19.9, 3, List.of(), "cat-1", 0L, null);
+
+    private ProductRepository productRepository;
+    private ProductCache productCache;
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        productCache = new ProductCache(new SimpleMeterRegistry(), new CatalogVersion(), 1_000_000, 1_000,
+                Duration.ofMinutes(1), Duration.ofSeconds(30));
+        productService = new ProductService(productRepository, mock(CategoryRepository.class), mock(MongoTemplate.class),
+                new ImageService(mock(ImageStore.class)), mock(ImageRenditionService.class), productCache,
+                mock(ProductSearchIndex.class), mock(CategoryResolver.class), mock(CategoryTree.class), mock(ApplicationEventPublisher.class),
+                Optional.empty(), new VersionConflicts(new SimpleMeterRegistry()), 20, 100, 200);
+    }
+
+    @Test
+    void concurrentMisses_forSameKey_shareOneLoad_andItsException() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        Thread leader = new Thread(() -> call(flight, failures, () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            throw new NoSuchElementException("weg");
+        }));
+        leader.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        List<Thread> followers = List.of(
+                new Thread(() -> call(flight, failures, () -> "zweiter Ladevorgang")),
+                new Thread(() -> call(flight, failures, () -> "zweiter Ladevorgang")));
+        followers.forEach(Thread::start);
+        for (Thread follower : followers) {
+            while (follower.getState() != Thread.State.WAITING) { // wartet im join() auf den Ladenden
+                Thread.onSpinWait();
+            }
+        }
+        release.countDown();
+        leader.join(5_000);
+        for (Thread follower : followers) {
+            follower.join(5_000);
+        }
+
+        assertEquals(3, failures.size());
+        failures.forEach(failure -> assertInstanceOf(NoSuchElementException.class, failure));
+        assertEquals(1, loads.get());
+        assertEquals(0, flight.inFlight());
+        assertEquals("neu", flight.load("k", () -> "neu")); //  Nach dem Abschluss wird wieder geladen
+    }
+
+    @Test
+    void hotProduct_onColdCache_isLoadedOnce() throws InterruptedException {
+        String id = lampe.id().toHexString();
+        when(productRepository.findById(id)).thenAnswer(invocation -> {
+            Thread.sleep(100); // langsame Datenbank, damit sich alle Anfragen überlappen
+            return Optional.of(lampe);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger answered = new AtomicInteger();
+        for (int i = 0; i < 200; i++) {
+            executor.execute(() -> {
+                await(start);
+                ProductDTO product = productService.findProductById(id);
+                if ("Lampe".equals(product.name())) {
+                    answered.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(200, answered.get());
+        verify(productRepository, times(1)).findById(id);
+    }
+
+    @Test
+    void unknownId_isNegativelyCached_untilTheProductChanges() {
+        String id = new ObjectId().toHexString();
+        when(productRepository.findById(id)).thenReturn(Optional.empty());
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(NoSuchElementException.class, () -> productService.findProductById(id));
+        }
+        verify(productRepository, times(1)).findById(id);
+
+        //  z. B. Import mit genau dieser ID: der Negativ-Eintrag muss weg
+        productCache.onProductChanged(new ProductChangedEvent(id, null, false, false));
+        assertThrows(NoSuchElementException.class, () -> productService.findProductById(id));
+        verify(productRepository, times(2)).findById(id);
+    }
+
+    private static void call(SingleFlight<String, String> flight, List<Throwable> failures, Supplier<String> loader) {
+        try {
+            flight.load("k", loader);
+        } catch (RuntimeException e) {
+            failures.add(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -33,7 +33,11 @@ export const getCart = async (token: string, userEmail: string): Promise<Cart> =
 //  Produkt in den Warenkorb legen
 export const addToCart = async (token: string, userEmail: string, product: OrderItem) => {
     try {
-        const response = await axios.post(`${API_URL}/${userEmail}/add`, product, {
+        //  Name, Bild und Preis ergänzt der Server aus dem Produkt
+        const response = await axios.post(`${API_URL}/${userEmail}/add`, {
+            productId: product.productId,
+            quantity: product.quantity,
+        }, {
             headers: getAuthHeader(token),
         });
         return response.data;
@@ -43,6 +47,25 @@ export const addToCart = async (token: string, userEmail: string, product: Order
     }
 };
 
+export type CartOperation = {
+    type: "ADD" | "UPDATE" | "REMOVE";
+    productId: string;
+    quantity?: number;
+};
+
+//  Mehrere Änderungen in einem Request; der Server antwortet mit dem fertigen Warenkorb
+export const applyCartBatch = async (token: string, userEmail: string, operations: CartOperation[]): Promise<Cart> => {
+    try {
+        const response = await axios.post(`${API_URL}/${userEmail}/batch`, { operations }, {
+            headers: getAuthHeader(token),
+        });
+        return response.data;
+    } catch (error) {
+        console.error(" Fehler beim Speichern der Warenkorb-Änderungen:", error);
+        throw error;
+    }
+};
+
 //  Menge aktualisieren
 export const updateQuantity = async (token: string, userEmail: string, productId: string, quantity: number) => {
     try {
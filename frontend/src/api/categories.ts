@@ -49,3 +49,14 @@ export const addCategory = async (name: string) => {
     }
 };
 
+
+// Kategoriebaum mit Produktanzahl und Preisspanne (öffentlich, kein Token nötig)
+export const getCategoryTree = async () => {
+    try {
+        const response = await axios.get(`${API_URL}/tree`);
+        return response.data;
+    } catch (error: any) {
+        console.error("Fehler beim Abrufen des Kategoriebaums:", error);
+        throw error;
+    }
+};
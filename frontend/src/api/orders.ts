@@ -78,6 +78,10 @@ export const checkout = async (
         return response.data;
     } catch (error) {
         console.error(" Fehler beim Checkout:", error);
+        //  409: nicht genug Bestand, Meldung vom Backend anzeigen
+        if (axios.isAxiosError(error) && error.response?.status === 409) {
+            throw new Error(error.response.data.message);
+        }
         throw new Error(" Bestellung konnte nicht abgeschlossen werden.");
     }
 };
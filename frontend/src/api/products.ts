@@ -12,14 +12,76 @@ export type Product = {
     categoryId: string;
 };
 
+//  Schlanke Variante für Produktkacheln (`?view=summary`)
+export type ProductSummary = {
+    id: string;
+    name: string;
+    price: number;
+    stock: number;
+    image: string | null; // Erstes Bild (kleine Variante)
+    categoryId: string;
+};
+
+export type Page<T> = {
+    items: T[];
+    next: string | null; // Cursor für die nächste Seite
+};
+
+export type ProductPage = Page<Product>;
+
+//  Gesamter Katalog ohne Pagination (explizites Opt-in im Backend)
 export const getProducts = async () => {
-    const response = await axios.get(API_URL);
+    const response = await axios.get(API_URL, { params: { unpaged: true } });
     return response.data.map((product: Product, index: number) => ({
         ...product,
         id: product.id || `temp-${index}`, // Falls ID fehlt, setze eine temporäre
     }));
 };
 
+//  Eine Seite Produkte laden (Keyset-Pagination über Cursor)
+export const getProductPage = async (cursor?: string | null, size?: number): Promise<ProductPage> => {
+    const response = await axios.get<ProductPage>(API_URL, { params: { cursor: cursor ?? undefined, size } });
+    return response.data;
+};
+
+//  Eine Seite Produkt-Zusammenfassungen laden (ohne Beschreibung und Bildergalerie)
+export const getProductSummaryPage = async (cursor?: string | null, size?: number): Promise<Page<ProductSummary>> => {
+    const response = await axios.get<Page<ProductSummary>>(API_URL, {
+        params: { view: "summary", cursor: cursor ?? undefined, size },
+    });
+    return response.data;
+};
+
+//  Einzelnes Produkt mit allen Details laden
+export const getProductById = async (id: string): Promise<Product> => {
+    const response = await axios.get<Product>(`${API_URL}/${id}`);
+    return response.data;
+};
+
+//  Produkt samt ETag laden: Grundlage zum Bearbeiten, der ETag geht beim Speichern als If-Match mit
+export type VersionedProduct = {
+    product: Product;
+    etag: string;
+};
+
+export const getVersionedProductById = async (id: string): Promise<VersionedProduct> => {
+    const response = await axios.get<Product>(`${API_URL}/${id}`, {
+        headers: { "Cache-Control": "no-cache" }, //  Immer beim Server nachfragen (304 liefert den gültigen ETag)
+    });
+    return { product: response.data, etag: response.headers["etag"] };
+};
+
+//  Mehrere Produkte in einem Aufruf laden (z. B. Warenkorb); Reihenfolge wie `ids`
+export type ProductBatch = {
+    items: Product[];
+    missing: string[]; // IDs, zu denen es kein Produkt (mehr) gibt
+};
+
+export const getProductsByIds = async (ids: string[]): Promise<ProductBatch> => {
+    const response = await axios.post<ProductBatch>(`${API_URL}/batch`, { ids });
+    return response.data;
+};
+
 
 //  Neues Produkt hinzufügen
 export const addProduct = async (token: string, product: Omit<Product, "id">): Promise<Product> => {
@@ -47,13 +109,66 @@ export const deleteProduct = async (token: string, id: string) => {
 };
 
 // Produkt bearbeiten
-export const updateProduct = async (token: string, id: string, product: Product): Promise<Product> => {
+//  `etag` aus getVersionedProductById: 409, falls das Produkt seitdem geändert wurde; der Bestand wird
+//  nur als Differenz zum dort gelesenen Stand gebucht (Verkäufe seitdem bleiben abgezogen)
+export const updateProduct = async (token: string, id: string, product: Product, etag: string): Promise<Product> => {
     const response = await axios.put<Product>(`${API_URL}/${id}`, product, {
-        headers: { Authorization: `Bearer ${token}` },
+        headers: { Authorization: `Bearer ${token}`, "If-Match": etag },
     });
     return response.data; //  Gib direkt das `Product` zurück
 };
 
+//  Volltextsuche über Name und Beschreibung (nach Relevanz sortiert, seitenweise)
+export const searchProducts = async (q: string, cursor?: string | null, size?: number): Promise<ProductPage> => {
+    const response = await axios.get<ProductPage>(`${API_URL}/search`, {
+        params: { q, cursor: cursor ?? undefined, size },
+    });
+    return response.data;
+};
+
+//  Kombinierte Suche (Text, Kategorien, Preis) mit Facetten-Zählungen
+export type CategoryFacet = { categoryId: string; name: string | null; count: number };
+export type PriceFacet = { min: number; max: number | null; count: number };
+export type ProductQueryResult = Page<Product> & {
+    total: number;
+    categories: CategoryFacet[];
+    prices: PriceFacet[];
+    truncated: boolean;
+};
+
+export type ProductQuery = {
+    q?: string;
+    categoryIds?: string[];
+    minPrice?: number;
+    maxPrice?: number;
+    cursor?: string | null;
+    size?: number;
+};
+
+export const queryProducts = async (query: ProductQuery): Promise<ProductQueryResult> => {
+    const params = new URLSearchParams();
+    if (query.q?.trim()) params.append("q", query.q);
+    query.categoryIds?.forEach((id) => params.append("categoryId", id));
+    if (query.minPrice !== undefined) params.append("minPrice", String(query.minPrice));
+    if (query.maxPrice !== undefined) params.append("maxPrice", String(query.maxPrice));
+    if (query.cursor) params.append("cursor", query.cursor);
+    if (query.size) params.append("size", String(query.size));
+    const response = await axios.get<ProductQueryResult>(`${API_URL}/query`, { params });
+    return response.data;
+};
+
+//  Vorschläge für die Autovervollständigung (Produkt- und Kategorienamen)
+export type Suggestion = {
+    type: "product" | "category";
+    id: string;
+    text: string;
+};
+
+export const getSuggestions = async (prefix: string, limit = 8): Promise<Suggestion[]> => {
+    const response = await axios.get<Suggestion[]>(`${API_URL}/suggest`, { params: { prefix, limit } });
+    return response.data;
+};
+
 //  Produkte nach Name suchen
 export const getProductsByName = async (name: string) => {
     const response = await axios.get(`${API_URL}/search/name`, { params: { name } });
@@ -62,8 +177,8 @@ export const getProductsByName = async (name: string) => {
 
 //  Produkte nach Kategorie (Beschreibung) suchen
 export const getProductsByCategory = async (category: string) => {
-    const response = await axios.get(`${API_URL}/search/category`, { params: { category } });
-    return response.data;
+    const response = await axios.get<Page<Product>>(`${API_URL}/search/category`, { params: { category } });
+    return response.data.items; //  Erste Seite; weitere Seiten über `cursor`
 };
 
 //  Produkte nach Preisbereich suchen
@@ -213,7 +213,7 @@ function CheckoutForm({
             }
         } catch (err) {
             console.error(" Fehler bei der Zahlung:", err);
-            setError("Ein Fehler ist aufgetreten.");
+            setError(err instanceof Error ? err.message : "Ein Fehler ist aufgetreten.");
         } finally {
             setLoading(false);
         }
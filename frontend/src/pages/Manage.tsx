@@ -1,5 +1,6 @@
-import { useEffect, useState } from "react";
-import { getProducts, addProduct, updateProduct, deleteProduct, Product } from "../api/products";
+import { useEffect, useRef, useState } from "react";
+import axios from "axios";
+import { getProducts, getVersionedProductById, addProduct, updateProduct, deleteProduct, Product, VersionedProduct } from "../api/products";
 import { useAuthStore } from "../store/authStore";
 import { useNavigate } from "react-router-dom";
 import {addCategory, getCategories} from "../api/categories.ts";
@@ -28,6 +29,10 @@ export default function Manage() {
         categoryId: "",
     });
 
+    //  Produkt samt ETag, geladen beim ersten Fokus im Formular (If-Match beim Speichern)
+    const editRequests = useRef<Record<string, Promise<VersionedProduct>>>({});
+    const editedIds = useRef<Set<string>>(new Set()); //  Zeilen mit ungespeicherten Änderungen
+
     const token = useAuthStore((state) => state.token);
     const isAdmin = useAuthStore((state) => state.isAdmin);
     const navigate = useNavigate();
@@ -154,26 +159,63 @@ export default function Manage() {
         }
     };
 
+    /*
+     Die Liste kommt ohne ETags. Vor dem Bearbeiten daher das Produkt einzeln laden: der aktuelle Stand
+     ersetzt die Zeile (sofern noch nichts geändert wurde), der ETag wird beim Speichern als If-Match gesendet.
+     */
+    const beginEdit = (id: string): Promise<VersionedProduct> => {
+        const pending = editRequests.current[id];
+        if (pending) return pending;
+
+        const request = getVersionedProductById(id).then((loaded) => {
+            if (!editedIds.current.has(id)) {
+                setProducts((prevProducts) => prevProducts.map((p) => (p.id === id ? loaded.product : p)));
+            }
+            return loaded;
+        });
+        request.catch(() => delete editRequests.current[id]); //  Beim nächsten Fokus neu versuchen
+        editRequests.current[id] = request;
+        return request;
+    };
+
+    //  Nach dem Speichern (oder 409) gilt die Zeile als unverändert, der nächste Fokus lädt neu
+    const endEdit = (id: string) => {
+        delete editRequests.current[id];
+        editedIds.current.delete(id);
+    };
+
     const handleUpdate = async (id: string) => {
         if (!token) return;
         try {
-            const productToUpdate = products.find((p) => p.id === id);
+            const loaded = await beginEdit(id);
+            //  Unverändert: der eben geladene Stand (die Liste in diesem Render kann älter sein)
+            const productToUpdate = editedIds.current.has(id) ? products.find((p) => p.id === id) : loaded.product;
             if (!productToUpdate) {
                 console.error("Produkt nicht gefunden!");
                 return;
             }
 
-            const updatedProduct = await updateProduct(token, id, productToUpdate);
+            const updatedProduct = await updateProduct(token, id, productToUpdate, loaded.etag);
+            endEdit(id);
 
             setProducts((prevProducts) =>
                 prevProducts.map((p) => (p.id === id ? updatedProduct : p))
             );
         } catch (error) {
+            //  409: Produkt wurde inzwischen geändert – aktuellen Stand anzeigen statt ihn zu überschreiben
+            if (axios.isAxiosError(error) && error.response?.status === 409) {
+                endEdit(id);
+                const current = error.response.data.current as Product;
+                setProducts((prevProducts) => prevProducts.map((p) => (p.id === id ? current : p)));
+                alert("Das Produkt wurde zwischenzeitlich geändert. Der aktuelle Stand wurde geladen.");
+                return;
+            }
             console.error("Fehler beim Aktualisieren:", error);
         }
     };
 
     const handleChange = (id: string, field: keyof Product, value: string | number) => {
+        editedIds.current.add(id);
         setProducts((prevProducts) =>
             prevProducts.map((p) => (p.id === id ? { ...p, [field]: value } : p))
         );
@@ -208,6 +250,7 @@ export default function Manage() {
         });
 
         Promise.all(promises).then(base64Images => {
+            editedIds.current.add(id);
             setProducts((prevProducts) =>
                 prevProducts.map((p) =>
                     p.id === id
@@ -220,6 +263,10 @@ export default function Manage() {
 
     const openImageInNewTab = (base64String: string) => {
         if (!base64String) return;
+        if (!base64String.startsWith("data:")) {
+            window.open(base64String, "_blank"); //  Bild liegt im Image-Store, URL direkt öffnen
+            return;
+        }
         const byteCharacters = atob(base64String.split(",")[1]);
         const byteNumbers = new Array(byteCharacters.length);
         for (let i = 0; i < byteCharacters.length; i++) {
@@ -296,7 +343,7 @@ export default function Manage() {
 
             <ul className="product-list">
                 {filteredProducts.map((product) => (
-                    <li key={product.id} className="product-item">
+                    <li key={product.id} className="product-item" onFocus={() => beginEdit(product.id)}>
                         <input
                             type="text"
                             value={product.name}
@@ -1,6 +1,11 @@
 import { useState, useEffect } from "react";
 import {
-    getProductsByName,
+    searchProducts,
+    getSuggestions,
+    Suggestion,
+    queryProducts,
+    CategoryFacet,
+    PriceFacet,
     getProductsByPrice,
     getProducts,
     getProductsByCategory, Product
@@ -18,6 +23,10 @@ export default function ProductSearch() {
     const [minPrice, setMinPrice] = useState("0");
     const [maxPrice, setMaxPrice] = useState("");
     const [products, setProducts] = useState<Product[]>([]);
+    const [suggestions, setSuggestions] = useState<Suggestion[]>([]);
+    const [selectedCategories, setSelectedCategories] = useState<string[]>([]);
+    const [categoryFacets, setCategoryFacets] = useState<CategoryFacet[]>([]);
+    const [priceFacets, setPriceFacets] = useState<PriceFacet[]>([]);
 
     useEffect(() => {
         document.title = "Produktsuche";
@@ -34,7 +43,7 @@ export default function ProductSearch() {
     const handleNameSearch = async () => {
         if (!name.trim()) return;
         try {
-            const data = await getProductsByName(name);
+            const data = (await searchProducts(name)).items;
             console.log("API-Antwort für Name-Suche:", data); // Debugging
             setProducts([...new Map((data as Product[]).map(item => [item.id, item])).values()]);
 
@@ -68,17 +77,42 @@ export default function ProductSearch() {
         }
     };
 
+    //  Vorschläge beim Tippen (kurz entprellt, Antwort kommt aus dem Speicher des Backends)
+    useEffect(() => {
+        if (!name.trim()) {
+            setSuggestions([]);
+            return;
+        }
+        const timeout = setTimeout(async () => {
+            try {
+                setSuggestions(await getSuggestions(name));
+            } catch (error) {
+                console.error("Fehler beim Laden der Vorschläge:", error);
+            }
+        }, 100);
+        return () => clearTimeout(timeout);
+    }, [name]);
+
     // Debouncing für die Suche
     useEffect(() => {
         const delayDebounceFn = setTimeout(() => {
-            const searchProducts = async () => {
-                if (name.trim()) {
+            const runSearch = async () => {
+                if (name.trim() || selectedCategories.length > 0 || minPrice.trim() || maxPrice.trim()) {
+                    //  Name, gewählte Kategorien und Preis in einer Abfrage, inklusive Facetten
+                    const min = parseFloat(minPrice);
+                    const max = parseFloat(maxPrice);
                     try {
-                        const data = await getProductsByName(name);
-                        console.log("Produkte nach Name:", data); // Debugging
-                        setProducts(data);
+                        const result = await queryProducts({
+                            q: name,
+                            categoryIds: selectedCategories,
+                            minPrice: isNaN(min) ? undefined : Math.max(0, min),
+                            maxPrice: isNaN(max) ? undefined : max,
+                        });
+                        setProducts(result.items);
+                        setCategoryFacets(result.categories);
+                        setPriceFacets(result.prices);
                     } catch (error) {
-                        console.error("Fehler beim Laden der Produkte nach Name:", error);
+                        console.error("Fehler bei der kombinierten Suche:", error);
                     }
                 } else if (category.trim()) {
                     try {
@@ -88,30 +122,35 @@ export default function ProductSearch() {
                     } catch (error) {
                         console.error("Fehler beim Laden der Produkte nach Kategorie:", error);
                     }
-                } else if (minPrice.trim() || maxPrice.trim()) {
-                    const min = Math.max(0, parseFloat(minPrice)); // Keine negativen Preise
-                    const max = parseFloat(maxPrice) || 100000; // Standard max, falls leer
-                    try {
-                        const data = await getProductsByPrice(min, max);
-                        console.log("Produkte nach Preis:", data); // Debugging
-                        setProducts(data);
-                    } catch (error) {
-                        console.error("Fehler beim Laden der Produkte nach Preis:", error);
-                    }
                 } else {
                     // Wenn alle Filter leer sind, lade alle Produkte
 
                 }
             };
 
-            searchProducts();
+            runSearch();
         }, 500); // 500ms Verzögerung
 
         return () => clearTimeout(delayDebounceFn);
-    }, [name, category, minPrice, maxPrice]);
+    }, [name, category, minPrice, maxPrice, selectedCategories]);
+
+    const toggleCategory = (categoryId: string) => {
+        setSelectedCategories((current) =>
+            current.includes(categoryId) ? current.filter((id) => id !== categoryId) : [...current, categoryId]
+        );
+    };
+
+    const selectPriceBucket = (bucket: PriceFacet) => {
+        setMinPrice(String(bucket.min));
+        setMaxPrice(bucket.max === null ? "" : String(bucket.max));
+    };
 
     const openImageInNewTab = (base64String: string) => {
         if (!base64String) return;
+        if (!base64String.startsWith("data:")) {
+            window.open(base64String, "_blank"); //  Bild liegt im Image-Store, URL direkt öffnen
+            return;
+        }
         const byteCharacters = atob(base64String.split(",")[1]);
         const byteNumbers = new Array(byteCharacters.length);
         for (let i = 0; i < byteCharacters.length; i++) {
@@ -135,7 +174,13 @@ export default function ProductSearch() {
                         value={name}
                         onChange={(e) => setName(e.target.value)}
                         className="Search-HomePage-Input"
+                        list="product-suggestions"
                     />
+                    <datalist id="product-suggestions">
+                        {suggestions.map((suggestion) => (
+                            <option key={`${suggestion.type}-${suggestion.id}`} value={suggestion.text} />
+                        ))}
+                    </datalist>
                     <button onClick={handleNameSearch} className="Search-HomePage-Button Search-HomePage-ButtonBlue">Suchen</button>
                 </div>
 
@@ -170,6 +215,34 @@ export default function ProductSearch() {
                 </div>
             </div>
 
+            {(categoryFacets.length > 0 || priceFacets.some((bucket) => bucket.count > 0)) && (
+                <div className="Search-HomePage-Facets">
+                    <div className="Search-HomePage-FacetGroup">
+                        {categoryFacets.map((facet) => (
+                            <label key={facet.categoryId} className="Search-HomePage-Facet">
+                                <input
+                                    type="checkbox"
+                                    checked={selectedCategories.includes(facet.categoryId)}
+                                    onChange={() => toggleCategory(facet.categoryId)}
+                                />
+                                {facet.name ?? facet.categoryId} ({facet.count})
+                            </label>
+                        ))}
+                    </div>
+                    <div className="Search-HomePage-FacetGroup">
+                        {priceFacets.filter((bucket) => bucket.count > 0).map((bucket) => (
+                            <button
+                                key={bucket.min}
+                                onClick={() => selectPriceBucket(bucket)}
+                                className="Search-HomePage-Facet"
+                            >
+                                {bucket.max === null ? `ab ${bucket.min}€` : `${bucket.min}–${bucket.max}€`} ({bucket.count})
+                            </button>
+                        ))}
+                    </div>
+                </div>
+            )}
+
             <div className="products-container">
                 <h3 className="products-title">🛒 Suchergebnisse</h3>
                 <ul className={`products-grid ${products.length === 1 ? "single-product" : ""}`}>
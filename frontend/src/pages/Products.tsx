@@ -1,10 +1,11 @@
 import { useEffect, useState } from "react";
-import { getProducts, Product } from "../api/products";
+import { getProductById, getProductSummaryPage, ProductSummary } from "../api/products";
 import { useAuthStore } from "../store/authStore.ts";
 import { useCartStore } from "../store/cartStore.ts";
 
 export default function Products() {
-    const [products, setProducts] = useState<Product[]>([]);
+    const [products, setProducts] = useState<ProductSummary[]>([]);
+    const [nextCursor, setNextCursor] = useState<string | null>(null);
     const { token } = useAuthStore();
     const userEmail = useAuthStore((state) => state.tokenEmail);
     const { addItem } = useCartStore();
@@ -14,15 +15,26 @@ export default function Products() {
 
     useEffect(() => {
         async function fetchData() {
-            const data = await getProducts();
-            setProducts(data);
+            const page = await getProductSummaryPage();
+            setProducts(page.items);
+            setNextCursor(page.next);
         }
         fetchData();
     }, []);
 
-    const openImageInModal = (images: string[], index: number) => {
-        setCurrentProductImages(images);
-        setCurrentImageIndex(index);
+    //  Nächste Seite an die Liste anhängen
+    const loadMore = async () => {
+        if (!nextCursor) return;
+        const page = await getProductSummaryPage(nextCursor);
+        setProducts((prev) => [...prev, ...page.items]);
+        setNextCursor(page.next);
+    };
+
+    //  Die Kachel kennt nur das erste Bild – für die Galerie das volle Produkt nachladen
+    const openImageInModal = async (productId: string) => {
+        const product = await getProductById(productId);
+        setCurrentProductImages(product.images ?? []);
+        setCurrentImageIndex(0);
         setIsModalOpen(true);
     };
 
@@ -42,55 +54,44 @@ export default function Products() {
         <div className="products-container">
             <h2 className="products-title">Produkte</h2>
             <div className="products-grid">
-                {products.map((product) => {
-                    const productImages = product.images && product.images.length > 0 ? product.images : [];
-                    return (
-                        <div key={product.id} className="product-card">
-                            {/*  Hauptbild (Erstes Bild aus `images`) */}
-                            {productImages.length > 0 ? (
-                                <img
-                                    src={productImages[0]}
-                                    alt={product.name}
-                                    className="product-image"
-                                    onClick={() => openImageInModal(productImages, 0)}
-                                />
-                            ) : (
-                                <p className="no-image-text">Kein Bild verfügbar</p>
-                            )}
-
-                            {/*  Bild-Galerie mit allen Bildern */}
-                            <div className="product-gallery">
-                                {productImages.length > 1 && productImages.map((image, index) => (
-                                    <img
-                                        key={index}
-                                        src={image}
-                                        alt={`${product.name} Bild ${index + 1}`}
-                                        className="product-thumbnail"
-                                        onClick={() => openImageInModal(productImages, index)}
-                                    />
-                                ))}
-                            </div>
+                {products.map((product) => (
+                    <div key={product.id} className="product-card">
+                        {/*  Hauptbild (kleine Variante des ersten Bildes) */}
+                        {product.image ? (
+                            <img
+                                src={product.image}
+                                alt={product.name}
+                                className="product-image"
+                                onClick={() => openImageInModal(product.id)}
+                            />
+                        ) : (
+                            <p className="no-image-text">Kein Bild verfügbar</p>
+                        )}
 
-                            <h3 className="product-name">{product.name}</h3>
-                            <p className="product-description-home">{product.description}</p>
-                            <p className="product-price">{product.price} €</p>
-                            <button
-                                onClick={() => addItem(token!, userEmail!, {
-                                    productId: product.id,
-                                    name: product.name,
-                                    images: productImages,
-                                    quantity: 1,
-                                    price: product.price
-                                })}
-                                className="add-to-cart-button"
-                            >
-                                🛒 In den Warenkorb
-                            </button>
-                        </div>
-                    );
-                })}
+                        <h3 className="product-name">{product.name}</h3>
+                        <p className="product-price">{product.price} €</p>
+                        <button
+                            onClick={() => addItem(token!, userEmail!, {
+                                productId: product.id,
+                                name: product.name,
+                                images: product.image ? [product.image] : [],
+                                quantity: 1,
+                                price: product.price
+                            })}
+                            className="add-to-cart-button"
+                        >
+                            🛒 In den Warenkorb
+                        </button>
+                    </div>
+                ))}
             </div>
 
+            {nextCursor && (
+                <button onClick={loadMore} className="add-to-cart-button">
+                    Mehr laden
+                </button>
+            )}
+
             {/* Modal für die Bildergalerie */}
             {isModalOpen && (
                 <div className="modal-overlay" onClick={closeModal}>
@@ -1,7 +1,15 @@
 import {create} from "zustand";
-import { getCart, addToCart, updateQuantity, removeItem, clearCart } from "../api/cart";
+import axios from "axios";
+import { getCart, clearCart, applyCartBatch, CartOperation } from "../api/cart";
 import { OrderItem } from "../api/orders.ts";
 
+//  Änderungen kurz sammeln und als ein Batch senden (schnelles Klicken = ein Request statt vieler)
+const BATCH_DELAY_MS = 250;
+let pendingOperations: CartOperation[] = [];
+let pendingFlush: Promise<void> | null = null;
+
+const sumPrices = (items: OrderItem[]) => items.reduce((sum, item) => sum + item.price * item.quantity, 0);
+
 
 type CartState = {
     items: OrderItem[];
@@ -13,78 +21,105 @@ type CartState = {
     clearCart: (token: string, userEmail: string) => Promise<void>;
 };
 
-export const useCartStore = create<CartState>((set) => ({
-    items: [],
-    totalPrice: 0,
+export const useCartStore = create<CartState>((set) => {
+    //  Alle bis hierhin gesammelten Operationen senden; der Server-Stand ersetzt die optimistische Anzeige
+    const queueOperation = (token: string, userEmail: string, operation: CartOperation) => {
+        pendingOperations.push(operation);
+        if (!pendingFlush) {
+            pendingFlush = new Promise<void>((resolve) => setTimeout(resolve, BATCH_DELAY_MS))
+                .then(async () => {
+                    const operations = pendingOperations;
+                    pendingOperations = [];
+                    pendingFlush = null;
+                    try {
+                        const cart = await applyCartBatch(token, userEmail, operations);
+                        set({ items: cart.items, totalPrice: sumPrices(cart.items) });
+                    } catch (error) {
+                        //  409: Warenkorb war dauerhaft umkämpft – aktuellen Stand vom Server übernehmen
+                        if (axios.isAxiosError(error) && error.response?.status === 409) {
+                            const current = error.response.data.current as { items: OrderItem[] };
+                            set({ items: current.items, totalPrice: sumPrices(current.items) });
+                        }
+                        throw error;
+                    }
+                });
+        }
+        return pendingFlush;
+    };
+
+    return {
+        items: [],
+        totalPrice: 0,
+
+        fetchCart: async (token, userEmail) => {  //  Token hinzugefügt
+            try {
+                const cart = await getCart(token, userEmail);
+                set({
+                    items: cart.items,
+                    totalPrice: cart.items.reduce((sum, item) => sum + item.price * item.quantity, 0),
+                });
+            } catch (error) {
+                console.error(" Fehler beim Laden des Warenkorbs:", error);
+            }
+        },
 
-    fetchCart: async (token, userEmail) => {  //  Token hinzugefügt
-        try {
-            const cart = await getCart(token, userEmail);
-            set({
-                items: cart.items,
-                totalPrice: cart.items.reduce((sum, item) => sum + item.price * item.quantity, 0),
+        addItem: async (token, userEmail, item) => {
+            try {
+                //  Artikel sofort in die UI setzen (ohne Wartezeit)
+                set((state) => ({
+                    items: [...state.items, item],
+                    totalPrice: state.totalPrice + item.price * item.quantity,
+                }));
+
+            } catch (error) {
+                console.error("Fehler beim Hinzufügen zum Warenkorb:", error);
+            }
+            //  API-Anfrage im Hintergrund senden (gebündelt)
+            await queueOperation(token, userEmail, { type: "ADD", productId: item.productId, quantity: item.quantity });
+        },
+
+
+        updateItemQuantity: async (token, userEmail, productId, quantity) => {
+            set((state) => {
+                const updatedItems = state.items.map((item) =>
+                    item.productId === productId ? { ...item, quantity } : item
+                );
+                return {
+                    items: updatedItems,
+                    totalPrice: updatedItems.reduce((sum, item) => sum + item.price * item.quantity, 0), // ✅ `totalPrice` direkt aktualisieren
+                };
             });
-        } catch (error) {
-            console.error(" Fehler beim Laden des Warenkorbs:", error);
-        }
-    },
-
-    addItem: async (token, userEmail, item) => {
-        try {
-            //  Artikel sofort in die UI setzen (ohne Wartezeit)
-            set((state) => ({
-                items: [...state.items, item],
-                totalPrice: state.totalPrice + item.price * item.quantity,
-            }));
-
-        } catch (error) {
-            console.error("Fehler beim Hinzufügen zum Warenkorb:", error);
-        }
-        //  API-Anfrage im Hintergrund senden
-        await addToCart(token, userEmail, item);
-    },
-
-
-    updateItemQuantity: async (token, userEmail, productId, quantity) => {
-        set((state) => {
-            const updatedItems = state.items.map((item) =>
-                item.productId === productId ? { ...item, quantity } : item
-            );
-            return {
-                items: updatedItems,
-                totalPrice: updatedItems.reduce((sum, item) => sum + item.price * item.quantity, 0), // ✅ `totalPrice` direkt aktualisieren
-            };
-        });
-
-        await updateQuantity(token, userEmail, productId, quantity);
-    },
-
-
-
-    removeItem: async (token, userEmail, productId) => {
-        try {
-            //  Sofort das Produkt aus dem UI entfernen
-            set((state) => ({
-                items: state.items.filter((item) => item.productId !== productId),
-                totalPrice: state.items
-                    .filter((item) => item.productId !== productId)
-                    .reduce((sum, item) => sum + item.price * item.quantity, 0),
-            }));
-
-            //  API-Anfrage im Hintergrund senden
-            await removeItem(token, userEmail, productId);
-        } catch (error) {
-            console.error("Fehler beim Entfernen des Artikels:", error);
-        }
-    },
 
+            await queueOperation(token, userEmail, { type: "UPDATE", productId, quantity });
+        },
 
-    clearCart: async (token, userEmail) => {
-        try {
-            await clearCart(token, userEmail);
-            set({ items: [], totalPrice: 0 });
-        } catch (error) {
-            console.error(" Fehler beim Leeren des Warenkorbs:", error);
-        }
-    },
-}));
+
+
+        removeItem: async (token, userEmail, productId) => {
+            try {
+                //  Sofort das Produkt aus dem UI entfernen
+                set((state) => ({
+                    items: state.items.filter((item) => item.productId !== productId),
+                    totalPrice: state.items
+                        .filter((item) => item.productId !== productId)
+                        .reduce((sum, item) => sum + item.price * item.quantity, 0),
+                }));
+
+                //  API-Anfrage im Hintergrund senden (gebündelt)
+                await queueOperation(token, userEmail, { type: "REMOVE", productId });
+            } catch (error) {
+                console.error("Fehler beim Entfernen des Artikels:", error);
+            }
+        },
+
+
+        clearCart: async (token, userEmail) => {
+            try {
+                await clearCart(token, userEmail);
+                set({ items: [], totalPrice: 0 });
+            } catch (error) {
+                console.error(" Fehler beim Leeren des Warenkorbs:", error);
+            }
+        },
+    };
+});